@@ -20,15 +20,22 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
+import io.conduktor.gateway.common.BoundedGatewayCacheProvider;
 import io.conduktor.gateway.common.DefaultGatewayCacheProvider;
 import io.conduktor.gateway.common.GatewayCacheProvider;
+import io.conduktor.gateway.common.PersistentGatewayCacheProvider;
 import io.conduktor.gateway.config.*;
 import io.conduktor.gateway.config.kafka.*;
 import io.conduktor.gateway.error.handler.ErrorHandler;
+import io.conduktor.gateway.interceptor.PartitionExecutor;
+import io.conduktor.gateway.metrics.HeavyHitters;
 import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.metrics.SlowRequestLog;
 import io.conduktor.gateway.model.BuildInfo;
+import io.conduktor.gateway.network.AdminEndpoint;
 import io.conduktor.gateway.network.BrokerManager;
 import io.conduktor.gateway.network.BrokerManagerWithPortMapping;
+import io.conduktor.gateway.network.ClusterTopologyWatcher;
 import io.conduktor.gateway.network.GatewayBrokers;
 import io.conduktor.gateway.service.*;
 import io.conduktor.gateway.thread.UpStreamResource;
@@ -40,6 +47,7 @@ import io.micrometer.core.instrument.binder.system.FileDescriptorMetrics;
 import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
 import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import io.micrometer.core.instrument.logging.LoggingMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingRegistryConfig;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
@@ -48,6 +56,7 @@ import org.apache.kafka.common.utils.SystemTime;
 import org.apache.kafka.common.utils.Time;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
@@ -77,10 +86,22 @@ public class DependencyInjector extends AbstractModule {
     @Provides
     @Singleton
     public MetricsRegistryProvider metricsRegistry(PrometheusMeterRegistry prometheusRegistry) {
-        var loggingRegistry = new LoggingMeterRegistry();
         var compositeRegistry = new CompositeMeterRegistry();
         compositeRegistry.add(prometheusRegistry);
-        compositeRegistry.add(loggingRegistry);
+        var loggingMetricsConfig = gatewayConfiguration.getLoggingMetricsConfig();
+        if (loggingMetricsConfig.isEnabled()) {
+            compositeRegistry.add(LoggingMeterRegistry.builder(new LoggingRegistryConfig() {
+                @Override
+                public Duration step() {
+                    return Duration.ofMillis(loggingMetricsConfig.getStepMs());
+                }
+
+                @Override
+                public String get(String key) {
+                    return null;
+                }
+            }).build());
+        }
         // Gauges loaded and unloaded classes.
         new ClassLoaderMetrics().bindTo(compositeRegistry);
         // Gauges buffer and memory pool utilization.
@@ -92,7 +113,7 @@ public class DependencyInjector extends AbstractModule {
         // Gauges thread peak, number of daemon threads, and live threads.
         new JvmThreadMetrics().bindTo(compositeRegistry);
         new FileDescriptorMetrics().bindTo(compositeRegistry);
-        return new MetricsRegistryProvider(compositeRegistry);
+        return new MetricsRegistryProvider(compositeRegistry, gatewayConfiguration.getChannelMetricsConfig().isEnabled());
     }
 
     @Provides
@@ -141,13 +162,32 @@ public class DependencyInjector extends AbstractModule {
         return clientService.getKafkaNodes();
     }
 
+    private Class<? extends GatewayCacheProvider> gatewayCacheProviderType() {
+        return switch (gatewayConfiguration.getGatewayCacheConfig().getType()) {
+            case TRANSIENT -> DefaultGatewayCacheProvider.class;
+            case BOUNDED -> BoundedGatewayCacheProvider.class;
+            case PERSISTENT -> PersistentGatewayCacheProvider.class;
+        };
+    }
+
     @Override
     protected void configure() {
         bind(GatewayConfiguration.class).toInstance(gatewayConfiguration);
+        var reusePortConfig = gatewayConfiguration.getReusePortConfig();
+        var upstreamThreadConfig = gatewayConfiguration.getThreadConfig().getUpstream();
         bind(UpstreamThreadConfig.class).annotatedWith(Names.named("upstreamThreadConfig"))
-                .toInstance(gatewayConfiguration.getThreadConfig().getUpstream());
+                .toInstance(new UpstreamThreadConfig(reusePortConfig.shareOf(upstreamThreadConfig.getNumberOfThread()),
+                        upstreamThreadConfig.getMaxPendingTask(), upstreamThreadConfig.getAssignmentPolicy(),
+                        upstreamThreadConfig.getRebalanceIdleMs(), upstreamThreadConfig.isPrioritizeControlPlane(),
+                        upstreamThreadConfig.getFairness()));
+        var batchHandOff = gatewayConfiguration.getThreadConfig().isBatchHandOff();
+        bind(Boolean.class).annotatedWith(Names.named("batchHandOff")).toInstance(batchHandOff);
         bind(Integer.class).annotatedWith(Names.named("downstreamThread"))
-                .toInstance(gatewayConfiguration.getThreadConfig().getDownStreamThread());
+                .toInstance(reusePortConfig.shareOf(batchHandOff
+                        ? upstreamThreadConfig.getNumberOfThread()
+                        : gatewayConfiguration.getThreadConfig().getDownStreamThread()));
+        bind(ReusePortConfig.class).annotatedWith(Names.named("reusePortConfig"))
+                .toInstance(reusePortConfig);
         bind(SslConfig.class).annotatedWith(Names.named("gatewaySslConfig"))
                 .toInstance(gatewayConfiguration.getAuthenticationConfig().getSslConfig());
         bind(HostPortConfiguration.class).toInstance(gatewayConfiguration.getHostPortConfiguration());
@@ -158,15 +198,40 @@ public class DependencyInjector extends AbstractModule {
         bind(GatewayBrokers.class).in(Singleton.class);
         bind(GatewayExecutor.class).in(Singleton.class);
         bind(BrokerManager.class).to(BrokerManagerWithPortMapping.class).in(Singleton.class);
+        bind(GaugeBackendBrokersTimerConfig.class).annotatedWith(Names.named("gaugeBackendBrokersTimerConfig"))
+                .toInstance(gatewayConfiguration.getGaugeBackendBrokersTimerConfig());
+        bind(ClusterTopologyWatcher.class).in(Singleton.class);
         bind(InFlightRequestService.class).in(Singleton.class);
+        bind(QuotaConfig.class).annotatedWith(Names.named("quotaConfig"))
+                .toInstance(gatewayConfiguration.getQuotaConfig());
+        bind(QuotaManager.class).in(Singleton.class);
+        bind(HeavyHittersConfig.class).annotatedWith(Names.named("heavyHittersConfig"))
+                .toInstance(gatewayConfiguration.getHeavyHittersConfig());
+        bind(HeavyHitters.class).in(Singleton.class);
+        bind(AdminEndpointConfig.class).annotatedWith(Names.named("adminEndpointConfig"))
+                .toInstance(gatewayConfiguration.getAdminEndpointConfig());
+        bind(AdminEndpoint.class).in(Singleton.class);
+        bind(SlowRequestLogConfig.class).annotatedWith(Names.named("slowRequestLogConfig"))
+                .toInstance(gatewayConfiguration.getSlowRequestLogConfig());
+        bind(SlowRequestLog.class).in(Singleton.class);
         bind(RebuilderTools.class).in(Singleton.class);
+        bind(ResponseCacheConfig.class).annotatedWith(Names.named("responseCacheConfig"))
+                .toInstance(gatewayConfiguration.getResponseCacheConfig());
         bind(InterceptorPoolService.class).in(Singleton.class);
         bind(InterceptorOrchestration.class).in(Singleton.class);
+        var partitionParallelismConfig = gatewayConfiguration.getPartitionParallelismConfig();
+        bind(PartitionParallelismConfig.class).annotatedWith(Names.named("partitionParallelismConfig"))
+                .toInstance(new PartitionParallelismConfig(reusePortConfig.shareOf(partitionParallelismConfig.getParallelism()),
+                        partitionParallelismConfig.getThresholdBytes()));
+        bind(ForkJoinPartitionExecutor.class).in(Singleton.class);
+        bind(PartitionExecutor.class).to(ForkJoinPartitionExecutor.class);
         bind(ErrorHandler.class).in(Singleton.class);
         bind(Long.class).annotatedWith(Names.named("inFlightRequestExpiryMs"))
                 .toInstance(gatewayConfiguration.getInFlightRequestExpiryMs());
         bind(ClientService.class).in(Singleton.class);
-        bind(GatewayCacheProvider.class).to(DefaultGatewayCacheProvider.class).in(Singleton.class);
+        bind(GatewayCacheConfig.class).annotatedWith(Names.named("gatewayCacheConfig"))
+                .toInstance(gatewayConfiguration.getGatewayCacheConfig());
+        bind(GatewayCacheProvider.class).to(gatewayCacheProviderType()).in(Singleton.class);
         bind(PluginLoader.class).toInstance(new PluginServiceLoader());
     }
 
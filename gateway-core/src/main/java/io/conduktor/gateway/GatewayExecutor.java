@@ -16,10 +16,16 @@
 package io.conduktor.gateway;
 
 import com.google.inject.Inject;
+import io.conduktor.gateway.common.GatewayCacheProvider;
 import io.conduktor.gateway.config.GatewayConfiguration;
 import io.conduktor.gateway.exception.GatewayStartFailException;
+import io.conduktor.gateway.metrics.HeavyHitters;
 import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.network.AdminEndpoint;
 import io.conduktor.gateway.network.BrokerManager;
+import io.conduktor.gateway.network.ClusterTopologyWatcher;
+import io.conduktor.gateway.service.ClientService;
+import io.conduktor.gateway.service.ForkJoinPartitionExecutor;
 import io.conduktor.gateway.thread.UpStreamResource;
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,22 +38,43 @@ public class GatewayExecutor implements AutoCloseable {
     private final BrokerManager brokerManager;
     private final GatewayConfiguration gatewayConfiguration;
     private final MetricsRegistryProvider metricsRegistryProvider;
+    private final ClusterTopologyWatcher clusterTopologyWatcher;
+    private final ClientService clientService;
+    private final HeavyHitters heavyHitters;
+    private final AdminEndpoint adminEndpoint;
+    private final ForkJoinPartitionExecutor partitionExecutor;
+    private final GatewayCacheProvider gatewayCacheProvider;
 
 
     @Inject
     public GatewayExecutor(UpStreamResource upStreamResource,
                            GatewayConfiguration gatewayConfiguration,
                            BrokerManager brokerManager,
-                           MetricsRegistryProvider metricsRegistryProvider) {
+                           MetricsRegistryProvider metricsRegistryProvider,
+                           ClusterTopologyWatcher clusterTopologyWatcher,
+                           ClientService clientService,
+                           HeavyHitters heavyHitters,
+                           AdminEndpoint adminEndpoint,
+                           ForkJoinPartitionExecutor partitionExecutor,
+                           GatewayCacheProvider gatewayCacheProvider) {
         this.upStreamResource = upStreamResource;
         this.brokerManager = brokerManager;
         this.gatewayConfiguration = gatewayConfiguration;
         this.metricsRegistryProvider = metricsRegistryProvider;
+        this.clusterTopologyWatcher = clusterTopologyWatcher;
+        this.clientService = clientService;
+        this.heavyHitters = heavyHitters;
+        this.adminEndpoint = adminEndpoint;
+        this.partitionExecutor = partitionExecutor;
+        this.gatewayCacheProvider = gatewayCacheProvider;
     }
 
     public void start() {
         try {
             brokerManager.setUpstreamResourceAndStartBroker(upStreamResource);
+            clusterTopologyWatcher.start();
+            heavyHitters.start();
+            adminEndpoint.start();
             log.info("Gateway started successfully with port range: {}", gatewayConfiguration.getHostPortConfiguration().getPortRange());
         } catch (GatewayStartFailException gatewayStartFailException) {
             throw gatewayStartFailException;
@@ -63,15 +90,35 @@ public class GatewayExecutor implements AutoCloseable {
     public void close() {
         log.info("Start to close resources.");
         try {
+            if (clusterTopologyWatcher != null) {
+                clusterTopologyWatcher.close();
+            }
             if (upStreamResource != null) {
                 upStreamResource.shutdownGracefully().get();
             }
+            if (partitionExecutor != null) {
+                // after the gateway threads, which are the ones fanning out to it
+                partitionExecutor.close();
+            }
+            if (gatewayCacheProvider != null) {
+                // once no interceptor can write to the caches anymore
+                gatewayCacheProvider.close();
+            }
+            if (adminEndpoint != null) {
+                adminEndpoint.close();
+            }
+            if (heavyHitters != null) {
+                heavyHitters.close();
+            }
             if (metricsRegistryProvider != null) {
                 metricsRegistryProvider.close();
             }
             if (Objects.nonNull(brokerManager)) {
                 brokerManager.close();
             }
+            if (clientService != null) {
+                clientService.close();
+            }
         } catch (Exception e) {
             log.error("An error occured when shutting down Gateway", e);
             throw new RuntimeException(e);
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link GatewayCache} over a Caffeine cache, made by {@link BoundedGatewayCacheProvider}.
+ */
+public class BoundedGatewayCache<K, V> implements GatewayCache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final Map<K, V> backingMap;
+
+    public BoundedGatewayCache(Cache<K, V> cache) {
+        this.cache = cache;
+        this.backingMap = cache.asMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object o) {
+        // unlike the map view, this triggers a refresh of stale entries of a loading cache
+        return cache.getIfPresent((K) o);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return backingMap.put(key, value);
+    }
+
+    @Override
+    public V remove(Object o) {
+        return backingMap.remove(o);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        cache.putAll(map);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, cache.estimatedSize());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return backingMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object o) {
+        return backingMap.containsKey(o);
+    }
+
+    @Override
+    public boolean containsValue(Object o) {
+        return backingMap.containsValue(o);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return backingMap.keySet();
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        var value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+        cache.cleanUp();
+    }
+
+    @Override
+    public Map<K, V> getAll() {
+        return new HashMap<>(backingMap);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        backingMap.forEach(action);
+    }
+
+    public Cache<K, V> cache() {
+        return cache;
+    }
+}
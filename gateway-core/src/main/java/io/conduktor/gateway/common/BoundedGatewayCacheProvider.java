@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.common;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.GatewayCacheConfig;
+import io.conduktor.gateway.exception.GatewayCacheException;
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.kafka.common.serialization.Serde;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Makes caches bounded by entries or by the serialized size of their entries, evicted with W-TinyLFU.
+ * Hits, misses and evictions of each cache are exported to Micrometer.
+ */
+public class BoundedGatewayCacheProvider implements GatewayCacheProvider {
+
+    private final GatewayCacheConfig cacheConfig;
+    private final MetricsRegistryProvider metricsRegistryProvider;
+    private final AtomicInteger cacheCount = new AtomicInteger();
+
+    @Inject
+    public BoundedGatewayCacheProvider(@Named("gatewayCacheConfig") GatewayCacheConfig cacheConfig,
+                                       MetricsRegistryProvider metricsRegistryProvider) {
+        this.cacheConfig = cacheConfig;
+        this.metricsRegistryProvider = metricsRegistryProvider;
+    }
+
+    @Override
+    public <K, V> GatewayCache<K, V> makeCache(Serde<K> keySerde, Serde<V> valueSerde) {
+        return makeCache(keySerde, valueSerde, null);
+    }
+
+    @Override
+    public <K, V> GatewayCache<K, V> makeCache(Serde<K> keySerde, Serde<V> valueSerde, Function<K, V> loader) {
+        var builder = Caffeine.newBuilder().recordStats();
+        if (cacheConfig.getMaxWeightBytes() > 0) {
+            builder.maximumWeight(cacheConfig.getMaxWeightBytes())
+                    .<K, V>weigher((key, value) -> sizeOf(keySerde, key) + sizeOf(valueSerde, value));
+        } else if (cacheConfig.getMaxEntries() > 0) {
+            builder.maximumSize(cacheConfig.getMaxEntries());
+        }
+        if (cacheConfig.getExpireAfterWriteMs() > 0) {
+            builder.expireAfterWrite(cacheConfig.getExpireAfterWriteMs(), TimeUnit.MILLISECONDS);
+        }
+        BoundedGatewayCache<K, V> cache;
+        if (loader != null && cacheConfig.getRefreshAfterWriteMs() > 0) {
+            builder.refreshAfterWrite(cacheConfig.getRefreshAfterWriteMs(), TimeUnit.MILLISECONDS);
+            cache = new BoundedGatewayCache<>(builder.<K, V>build(loader::apply));
+        } else {
+            cache = new BoundedGatewayCache<>(builder.<K, V>build());
+        }
+        CaffeineCacheMetrics.monitor(metricsRegistryProvider.registry(), cache.cache(),
+                MetricsRegistryKeys.GATEWAY_CACHE + "-" + cacheCount.incrementAndGet());
+        return cache;
+    }
+
+    private static <T> int sizeOf(Serde<T> serde, T data) {
+        if (serde == null || data == null) {
+            return 1;
+        }
+        try {
+            var bytes = serde.serializer().serialize(null, data);
+            return bytes == null ? 1 : Math.max(1, bytes.length);
+        } catch (RuntimeException e) {
+            throw new GatewayCacheException("Cannot weigh cache entry", e);
+        }
+    }
+}
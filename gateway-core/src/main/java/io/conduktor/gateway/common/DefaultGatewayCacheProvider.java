@@ -25,7 +25,7 @@ public class DefaultGatewayCacheProvider implements GatewayCacheProvider {
     }
 
     @Override
-    public <K, V> GatewayCache makeCache(Serde<K> keySerde, Serde<V> valueSerde) {
+    public <K, V> GatewayCache<K, V> makeCache(Serde<K> keySerde, Serde<V> valueSerde) {
         return new TransientGatewayCache<K, V>();
     }
 }
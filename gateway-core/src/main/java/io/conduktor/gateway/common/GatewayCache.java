@@ -18,6 +18,7 @@ package io.conduktor.gateway.common;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 public interface GatewayCache<K,V> {
 
@@ -46,5 +47,13 @@ public interface GatewayCache<K,V> {
 
     void close() throws IOException;
 
+    /**
+     * @return a copy of every entry, prefer {@link #forEach(BiConsumer)} to only walk through them
+     */
     Map<K, V> getAll();
+
+    /**
+     * Walks through the entries without copying them, changes made meanwhile may or may not be seen.
+     */
+    void forEach(BiConsumer<? super K, ? super V> action);
 }
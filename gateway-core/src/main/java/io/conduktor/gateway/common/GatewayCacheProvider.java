@@ -17,7 +17,30 @@ package io.conduktor.gateway.common;
 
 import org.apache.kafka.common.serialization.Serde;
 
-public interface GatewayCacheProvider {
+import java.util.function.Function;
 
-    <K, V> GatewayCache makeCache(Serde<K> keySerde, Serde<V> valueSerde);
+public interface GatewayCacheProvider extends AutoCloseable {
+
+    <K, V> GatewayCache<K, V> makeCache(Serde<K> keySerde, Serde<V> valueSerde);
+
+    /**
+     * @param loader reloads the value of a key once it is older than the configured refresh time, where supported
+     */
+    default <K, V> GatewayCache<K, V> makeCache(Serde<K> keySerde, Serde<V> valueSerde, Function<K, V> loader) {
+        return makeCache(keySerde, valueSerde);
+    }
+
+    /**
+     * @param name identifies the cache across restarts, where its entries are persisted
+     */
+    default <K, V> GatewayCache<K, V> makeCache(String name, Serde<K> keySerde, Serde<V> valueSerde) {
+        return makeCache(keySerde, valueSerde);
+    }
+
+    /**
+     * releases what the caches hold outside the heap, they must not be used afterwards
+     */
+    @Override
+    default void close() {
+    }
 }
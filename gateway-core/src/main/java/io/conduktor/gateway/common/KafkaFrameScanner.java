@@ -0,0 +1,254 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.common;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.utils.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the topic and partition skeleton of raw Produce and Fetch frames without decoding them.
+ * Record batches are skipped over, so the cost only depends on the number of partitions.
+ * Scanning never moves the position of the given buffer.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class KafkaFrameScanner {
+
+    private static final short MAX_PRODUCE_VERSION = 9;
+    // Fetch v13+ identifies topics by id only
+    private static final short MAX_FETCH_VERSION = 12;
+
+    public record ScannedFrame(Map<String, List<Integer>> partitionsByTopic) {
+
+        public boolean isEmpty() {
+            return partitionsByTopic.isEmpty();
+        }
+    }
+
+    /**
+     * @param body request body, right after the request header
+     * @return the scanned frame or null when the api key or version is not supported or the frame is malformed
+     */
+    public static ScannedFrame scanRequest(ApiKeys apiKey, short version, ByteBuffer body) {
+        try {
+            return switch (apiKey) {
+                case PRODUCE -> version <= MAX_PRODUCE_VERSION ? scanProduceRequest(body.duplicate(), version) : null;
+                case FETCH -> version <= MAX_FETCH_VERSION ? scanFetchRequest(body.duplicate(), version) : null;
+                default -> null;
+            };
+        } catch (RuntimeException e) {
+            // let the full decoder report it
+            return null;
+        }
+    }
+
+    /**
+     * @param body response body, right after the response header
+     * @return the scanned frame or null when the api key or version is not supported or the frame is malformed
+     */
+    public static ScannedFrame scanResponse(ApiKeys apiKey, short version, ByteBuffer body) {
+        try {
+            return apiKey == ApiKeys.FETCH && version <= MAX_FETCH_VERSION ? scanFetchResponse(body.duplicate(), version) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param body produce request body, right after the request header
+     * @return the acks of the request, or -1 when it cannot be read
+     */
+    public static short produceAcks(ByteBuffer body, short version) {
+        try {
+            var buffer = body.duplicate();
+            if (version >= 3) {
+                skipString(buffer, version >= 9);
+            }
+            return buffer.getShort();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Moves the buffer past a response header of the given version.
+     */
+    public static void skipResponseHeader(ByteBuffer buffer, short headerVersion) {
+        buffer.getInt();
+        if (headerVersion >= 1) {
+            skipTaggedFields(buffer);
+        }
+    }
+
+    private static ScannedFrame scanProduceRequest(ByteBuffer buffer, short version) {
+        var flexible = version >= 9;
+        if (version >= 3) {
+            skipString(buffer, flexible);
+        }
+        buffer.getShort(); // acks
+        buffer.getInt(); // timeout_ms
+        var partitionsByTopic = new LinkedHashMap<String, List<Integer>>();
+        var topicCount = readArrayLength(buffer, flexible);
+        for (int i = 0; i < topicCount; i++) {
+            var partitions = partitionsByTopic.computeIfAbsent(readString(buffer, flexible), topic -> new ArrayList<>());
+            var partitionCount = readArrayLength(buffer, flexible);
+            for (int j = 0; j < partitionCount; j++) {
+                partitions.add(buffer.getInt());
+                skipBytes(buffer, flexible);
+                skipTaggedFields(buffer, flexible);
+            }
+            skipTaggedFields(buffer, flexible);
+        }
+        return new ScannedFrame(partitionsByTopic);
+    }
+
+    private static ScannedFrame scanFetchRequest(ByteBuffer buffer, short version) {
+        var flexible = version >= 12;
+        buffer.getInt(); // replica_id
+        buffer.getInt(); // max_wait_ms
+        buffer.getInt(); // min_bytes
+        if (version >= 3) {
+            buffer.getInt(); // max_bytes
+        }
+        if (version >= 4) {
+            buffer.get(); // isolation_level
+        }
+        if (version >= 7) {
+            buffer.getInt(); // session_id
+            buffer.getInt(); // session_epoch
+        }
+        var partitionsByTopic = new LinkedHashMap<String, List<Integer>>();
+        var topicCount = readArrayLength(buffer, flexible);
+        for (int i = 0; i < topicCount; i++) {
+            var partitions = partitionsByTopic.computeIfAbsent(readString(buffer, flexible), topic -> new ArrayList<>());
+            var partitionCount = readArrayLength(buffer, flexible);
+            for (int j = 0; j < partitionCount; j++) {
+                partitions.add(buffer.getInt());
+                var skip = 8 + 4; // fetch_offset, partition_max_bytes
+                if (version >= 9) {
+                    skip += 4; // current_leader_epoch
+                }
+                if (version >= 12) {
+                    skip += 4; // last_fetched_epoch
+                }
+                if (version >= 5) {
+                    skip += 8; // log_start_offset
+                }
+                skip(buffer, skip);
+                skipTaggedFields(buffer, flexible);
+            }
+            skipTaggedFields(buffer, flexible);
+        }
+        return new ScannedFrame(partitionsByTopic);
+    }
+
+    private static ScannedFrame scanFetchResponse(ByteBuffer buffer, short version) {
+        var flexible = version >= 12;
+        if (version >= 1) {
+            buffer.getInt(); // throttle_time_ms
+        }
+        if (version >= 7) {
+            buffer.getShort(); // error_code
+            buffer.getInt(); // session_id
+        }
+        var partitionsByTopic = new LinkedHashMap<String, List<Integer>>();
+        var topicCount = readArrayLength(buffer, flexible);
+        for (int i = 0; i < topicCount; i++) {
+            var partitions = partitionsByTopic.computeIfAbsent(readString(buffer, flexible), topic -> new ArrayList<>());
+            var partitionCount = readArrayLength(buffer, flexible);
+            for (int j = 0; j < partitionCount; j++) {
+                partitions.add(buffer.getInt());
+                var skip = 2 + 8; // error_code, high_watermark
+                if (version >= 4) {
+                    skip += 8; // last_stable_offset
+                }
+                if (version >= 5) {
+                    skip += 8; // log_start_offset
+                }
+                skip(buffer, skip);
+                if (version >= 4) {
+                    var abortedCount = readArrayLength(buffer, flexible);
+                    for (int k = 0; k < abortedCount; k++) {
+                        skip(buffer, 8 + 8); // producer_id, first_offset
+                        skipTaggedFields(buffer, flexible);
+                    }
+                }
+                if (version >= 11) {
+                    buffer.getInt(); // preferred_read_replica
+                }
+                skipBytes(buffer, flexible);
+                skipTaggedFields(buffer, flexible);
+            }
+            skipTaggedFields(buffer, flexible);
+        }
+        return new ScannedFrame(partitionsByTopic);
+    }
+
+    /**
+     * @return the number of elements, 0 for a null array
+     */
+    private static int readArrayLength(ByteBuffer buffer, boolean flexible) {
+        var length = flexible ? ByteUtils.readUnsignedVarint(buffer) - 1 : buffer.getInt();
+        return Math.max(length, 0);
+    }
+
+    private static String readString(ByteBuffer buffer, boolean flexible) {
+        var length = flexible ? ByteUtils.readUnsignedVarint(buffer) - 1 : buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer buffer, boolean flexible) {
+        var length = flexible ? ByteUtils.readUnsignedVarint(buffer) - 1 : buffer.getShort();
+        skip(buffer, Math.max(length, 0));
+    }
+
+    private static void skipBytes(ByteBuffer buffer, boolean flexible) {
+        var length = flexible ? ByteUtils.readUnsignedVarint(buffer) - 1 : buffer.getInt();
+        skip(buffer, Math.max(length, 0));
+    }
+
+    private static void skipTaggedFields(ByteBuffer buffer, boolean flexible) {
+        if (flexible) {
+            skipTaggedFields(buffer);
+        }
+    }
+
+    private static void skipTaggedFields(ByteBuffer buffer) {
+        var count = ByteUtils.readUnsignedVarint(buffer);
+        for (int i = 0; i < count; i++) {
+            ByteUtils.readUnsignedVarint(buffer); // tag
+            skip(buffer, ByteUtils.readUnsignedVarint(buffer));
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int length) {
+        buffer.position(buffer.position() + length);
+    }
+
+}
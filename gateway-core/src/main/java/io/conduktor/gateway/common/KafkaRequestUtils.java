@@ -15,10 +15,69 @@
 
 package io.conduktor.gateway.common;
 
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.AbstractRequestResponse;
+import org.apache.kafka.common.requests.FetchRequest;
+import org.apache.kafka.common.requests.FetchResponse;
+import org.apache.kafka.common.requests.ProduceRequest;
+import org.apache.kafka.common.requests.ProduceResponse;
 import org.apache.kafka.common.requests.RequestHeader;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 public class KafkaRequestUtils {
+
+    private static final Map<ApiKeys, Class<?>> REQUEST_TYPES = messageTypes("Request");
+    private static final Map<ApiKeys, Class<?>> RESPONSE_TYPES = messageTypes("Response");
+
     public static RequestHeader duplicateRequestHeader(RequestHeader requestHeader){
         return new RequestHeader(requestHeader.data().duplicate(),requestHeader.headerVersion());
     }
+
+    /**
+     * @return the request class of the api key, null if it cannot be resolved
+     */
+    public static Class<?> requestType(ApiKeys apiKey) {
+        return REQUEST_TYPES.get(apiKey);
+    }
+
+    /**
+     * @return the response class of the api key, null if it cannot be resolved
+     */
+    public static Class<?> responseType(ApiKeys apiKey) {
+        return RESPONSE_TYPES.get(apiKey);
+    }
+
+    /**
+     * @return topic names carried by a Produce or Fetch message, empty for any other message
+     */
+    public static List<String> topicsOf(AbstractRequestResponse message) {
+        var topics = new ArrayList<String>();
+        if (message instanceof ProduceRequest request) {
+            request.data().topicData().forEach(topic -> topics.add(topic.name()));
+        } else if (message instanceof ProduceResponse response) {
+            response.data().responses().forEach(topic -> topics.add(topic.name()));
+        } else if (message instanceof FetchRequest request) {
+            request.data().topics().forEach(topic -> topics.add(topic.topic()));
+        } else if (message instanceof FetchResponse response) {
+            response.data().responses().forEach(topic -> topics.add(topic.topic()));
+        }
+        return topics;
+    }
+
+    // kafka names every message class after its api key, e.g. ListOffsets -> ListOffsetsRequest
+    private static Map<ApiKeys, Class<?>> messageTypes(String suffix) {
+        var types = new EnumMap<ApiKeys, Class<?>>(ApiKeys.class);
+        for (var apiKey : ApiKeys.values()) {
+            try {
+                types.put(apiKey, Class.forName(AbstractRequestResponse.class.getPackageName() + "." + apiKey.name + suffix));
+            } catch (ClassNotFoundException ignored) {
+                // unresolved types are always decoded
+            }
+        }
+        return types;
+    }
 }
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.common;
+
+import io.conduktor.gateway.exception.GatewayCacheException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serde;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link GatewayCache} keeping its values off heap in a memory-mapped, append-only file.
+ * Only keys and their file offsets are held on heap, the index is rebuilt from the file when it is opened again.
+ * <p>
+ * Each record is a state byte, the key and value lengths, then the serialized key and value.
+ * A value length of -1 marks a removal. A record only becomes live once its state byte is set,
+ * after the byte following it has been cleared, so a record torn by a crash ends the log when it is read back.
+ * The file is rewritten without its dead records once they outweigh the live ones.
+ * <p>
+ * A lock file next to it keeps a second process from opening the same cache, as the rewrite replaces the cache file itself.
+ */
+@Slf4j
+public class PersistentGatewayCache<K, V> implements GatewayCache<K, V> {
+
+    private static final byte END = 0;
+    private static final byte LIVE = 1;
+    private static final int HEADER_BYTES = 1 + Integer.BYTES + Integer.BYTES;
+    private static final int REMOVED = -1;
+
+    private final Path file;
+    private final Serde<K> keySerde;
+    private final Serde<V> valueSerde;
+    private final int initialFileBytes;
+    private final int maxFileBytes;
+    private final Map<K, Integer> index = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileLock fileLock;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private long liveBytes;
+
+    public PersistentGatewayCache(Path file, Serde<K> keySerde, Serde<V> valueSerde, int initialFileBytes, int maxFileBytes) {
+        this.file = file;
+        this.keySerde = keySerde;
+        this.valueSerde = valueSerde;
+        this.initialFileBytes = Math.max(HEADER_BYTES + 1, initialFileBytes);
+        this.maxFileBytes = Math.max(this.initialFileBytes, maxFileBytes);
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.fileLock = lockFile(file);
+        } catch (IOException e) {
+            throw new GatewayCacheException("Cannot lock cache file " + file, e);
+        }
+        try {
+            map(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            closeQuietly(fileLock.channel());
+            throw new GatewayCacheException("Cannot open cache file " + file, e);
+        }
+        recover();
+        if (isWorthCompacting()) {
+            compact();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object o) {
+        lock.readLock().lock();
+        try {
+            var offset = index.get((K) o);
+            return offset == null ? null : readValue(offset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * a null value, or one serialized to null, removes the key as the file has no way to tell it from a removal
+     */
+    @Override
+    public V put(K key, V value) {
+        var valueBytes = value == null ? null : valueSerde.serializer().serialize(null, value);
+        if (valueBytes == null) {
+            return remove(key);
+        }
+        var keyBytes = keySerde.serializer().serialize(null, key);
+        lock.writeLock().lock();
+        try {
+            var offset = append(keyBytes, valueBytes);
+            liveBytes += recordBytes(offset);
+            var previous = index.put(key, offset);
+            if (previous == null) {
+                return null;
+            }
+            liveBytes -= recordBytes(previous);
+            return readValue(previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object o) {
+        var key = (K) o;
+        lock.writeLock().lock();
+        try {
+            var previous = index.get(key);
+            if (previous == null) {
+                return null;
+            }
+            // read before appending, a compaction moves the record
+            var value = readValue(previous);
+            var previousBytes = recordBytes(previous);
+            append(keySerde.serializer().serialize(null, key), null);
+            index.remove(key);
+            liveBytes -= previousBytes;
+            return value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        map.forEach(this::put);
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            liveBytes = 0;
+            writePosition = 0;
+            channel.truncate(0);
+            map(channel);
+        } catch (IOException e) {
+            throw new GatewayCacheException("Cannot clear cache file " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object o) {
+        return index.containsKey(o);
+    }
+
+    @Override
+    public boolean containsValue(Object o) {
+        lock.readLock().lock();
+        try {
+            return index.values().stream().anyMatch(offset -> readValue(offset).equals(o));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        var value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+            channel.close();
+        } finally {
+            // releases the lock
+            closeQuietly(fileLock.channel());
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll() {
+        var all = new HashMap<K, V>();
+        forEach(all::put);
+        return all;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        lock.readLock().lock();
+        try {
+            index.forEach((key, offset) -> action.accept(key, readValue(offset)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the lock of this cache, held until it is closed
+     */
+    private static FileLock lockFile(Path file) throws IOException {
+        var lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            var fileLock = lockChannel.tryLock();
+            if (fileLock != null) {
+                return fileLock;
+            }
+        } catch (OverlappingFileLockException e) {
+            // held by another cache of this process
+        }
+        closeQuietly(lockChannel);
+        throw new GatewayCacheException("Cache file " + file + " is already used by another gateway, "
+                + "gateways sharing a host need a cache directory each");
+    }
+
+    private static void closeQuietly(FileChannel fileChannel) {
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            log.warn("Cannot close cache lock file", e);
+        }
+    }
+
+    /**
+     * @return true when this cache serializes its keys and values the same way as the given serdes
+     */
+    boolean isSerializedWith(Serde<?> keySerde, Serde<?> valueSerde) {
+        return sameSerde(this.keySerde, keySerde) && sameSerde(this.valueSerde, valueSerde);
+    }
+
+    private static boolean sameSerde(Serde<?> serde, Serde<?> other) {
+        return serde.getClass() == other.getClass()
+                && serde.serializer().getClass() == other.serializer().getClass()
+                && serde.deserializer().getClass() == other.deserializer().getClass();
+    }
+
+    private void recover() {
+        var position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity() && buffer.get(position) == LIVE) {
+            var keyLength = buffer.getInt(position + 1);
+            var valueLength = buffer.getInt(position + 1 + Integer.BYTES);
+            if (keyLength < 0 || valueLength < REMOVED
+                    || (long) position + HEADER_BYTES + keyLength + Math.max(0, valueLength) > buffer.capacity()) {
+                log.warn("Cache file {} is corrupted at {}, dropping what follows", file, position);
+                break;
+            }
+            var key = keySerde.deserializer().deserialize(null, bytesAt(position + HEADER_BYTES, keyLength));
+            var previous = valueLength == REMOVED ? index.remove(key) : index.put(key, position);
+            if (previous != null) {
+                liveBytes -= recordBytes(previous);
+            }
+            if (valueLength != REMOVED) {
+                liveBytes += recordBytes(position);
+            }
+            position += recordBytes(position);
+        }
+        writePosition = position;
+        log.info("Recovered {} entries from cache file {}", index.size(), file);
+    }
+
+    private int append(byte[] keyBytes, byte[] valueBytes) {
+        var length = HEADER_BYTES + keyBytes.length + (valueBytes == null ? 0 : valueBytes.length);
+        ensureCapacity(length);
+        var offset = writePosition;
+        buffer.putInt(offset + 1, keyBytes.length);
+        buffer.putInt(offset + 1 + Integer.BYTES, valueBytes == null ? REMOVED : valueBytes.length);
+        buffer.put(offset + HEADER_BYTES, keyBytes);
+        if (valueBytes != null) {
+            buffer.put(offset + HEADER_BYTES + keyBytes.length, valueBytes);
+        }
+        if (offset + length < buffer.capacity()) {
+            buffer.put(offset + length, END);
+        }
+        buffer.put(offset, LIVE);
+        writePosition += length;
+        return offset;
+    }
+
+    private void ensureCapacity(int length) {
+        if ((long) writePosition + length + 1 <= buffer.capacity()) {
+            return;
+        }
+        if (isWorthCompacting()) {
+            compact();
+            if ((long) writePosition + length + 1 <= buffer.capacity()) {
+                return;
+            }
+        }
+        var required = (long) writePosition + length + 1;
+        if (required > maxFileBytes) {
+            throw new GatewayCacheException("Cache file " + file + " is full at " + maxFileBytes + " bytes");
+        }
+        var capacity = (long) buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        try {
+            map(channel, (int) Math.min(capacity, maxFileBytes));
+        } catch (IOException e) {
+            throw new GatewayCacheException("Cannot grow cache file " + file, e);
+        }
+    }
+
+    private boolean isWorthCompacting() {
+        return writePosition > initialFileBytes / 2 && writePosition - liveBytes > liveBytes;
+    }
+
+    /**
+     * Rewrites the live records to a new file, which then replaces the current one.
+     */
+    private void compact() {
+        var compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (var target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var offsets = new HashMap<K, Integer>();
+            var position = 0;
+            for (var entry : index.entrySet()) {
+                var length = recordBytes(entry.getValue());
+                target.write(buffer.slice(entry.getValue(), length), position);
+                offsets.put(entry.getKey(), position);
+                position += length;
+            }
+            target.force(true);
+            channel.close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            index.putAll(offsets);
+            log.debug("Compacted cache file {} from {} to {} bytes", file, writePosition, position);
+            writePosition = position;
+            liveBytes = position;
+        } catch (IOException e) {
+            throw new GatewayCacheException("Cannot compact cache file " + file, e);
+        }
+    }
+
+    private void map(FileChannel fileChannel) throws IOException {
+        map(fileChannel, (int) Math.min(maxFileBytes, Math.max(initialFileBytes, fileChannel.size())));
+    }
+
+    private void map(FileChannel fileChannel, int capacity) throws IOException {
+        this.channel = fileChannel;
+        this.buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private V readValue(int offset) {
+        var keyLength = buffer.getInt(offset + 1);
+        var valueLength = buffer.getInt(offset + 1 + Integer.BYTES);
+        return valueSerde.deserializer().deserialize(null, bytesAt(offset + HEADER_BYTES + keyLength, valueLength));
+    }
+
+    private int recordBytes(int offset) {
+        return HEADER_BYTES + buffer.getInt(offset + 1) + Math.max(0, buffer.getInt(offset + 1 + Integer.BYTES));
+    }
+
+    private byte[] bytesAt(int offset, int length) {
+        var bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+}
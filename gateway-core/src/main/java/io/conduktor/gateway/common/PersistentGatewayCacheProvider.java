@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.common;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.GatewayCacheConfig;
+import io.conduktor.gateway.exception.GatewayCacheException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serde;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes named caches persisted in a memory-mapped file each, under the configured directory.
+ * Caches made without a name, or without serdes, cannot be found again after a restart and stay in memory.
+ */
+@Slf4j
+public class PersistentGatewayCacheProvider implements GatewayCacheProvider {
+
+    private static final int INITIAL_FILE_BYTES = 1 << 20;
+
+    private final GatewayCacheConfig cacheConfig;
+    private final Map<String, PersistentGatewayCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    @Inject
+    public PersistentGatewayCacheProvider(@Named("gatewayCacheConfig") GatewayCacheConfig cacheConfig) {
+        this.cacheConfig = cacheConfig;
+    }
+
+    @Override
+    public <K, V> GatewayCache<K, V> makeCache(Serde<K> keySerde, Serde<V> valueSerde) {
+        return new TransientGatewayCache<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> GatewayCache<K, V> makeCache(String name, Serde<K> keySerde, Serde<V> valueSerde) {
+        if (keySerde == null || valueSerde == null) {
+            log.warn("Cache {} has no serdes, it will not be persisted", name);
+            return makeCache(keySerde, valueSerde);
+        }
+        // two caches over the same file would overwrite each other
+        var cache = caches.computeIfAbsent(name, key -> new PersistentGatewayCache<>(fileOf(key),
+                keySerde,
+                valueSerde,
+                Math.min(INITIAL_FILE_BYTES, cacheConfig.getMaxFileBytes()),
+                cacheConfig.getMaxFileBytes()));
+        if (!cache.isSerializedWith(keySerde, valueSerde)) {
+            throw new GatewayCacheException("Cache " + name + " is already made with other serdes");
+        }
+        return (GatewayCache<K, V>) cache;
+    }
+
+    /**
+     * forces every cache file to disk and unmaps it
+     */
+    @Override
+    public void close() {
+        caches.forEach((name, cache) -> {
+            try {
+                cache.close();
+            } catch (Exception e) {
+                log.warn("Cannot close cache {}", name, e);
+            }
+        });
+        caches.clear();
+    }
+
+    private Path fileOf(String name) {
+        return Path.of(cacheConfig.getDirectory()).resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + ".cache");
+    }
+}
@@ -15,10 +15,11 @@
 
 package io.conduktor.gateway.common;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 public class TransientGatewayCache<K, V> implements GatewayCache<K,V> {
 
@@ -61,9 +62,12 @@ public class TransientGatewayCache<K, V> implements GatewayCache<K,V> {
 
     @Override
     public Map<K, V> getAll() {
-        return backingMap.entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        return new HashMap<>(backingMap);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        backingMap.forEach(action);
     }
 
     @Override
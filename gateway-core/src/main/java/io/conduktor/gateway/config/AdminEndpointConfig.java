@@ -0,0 +1,42 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * HTTP endpoint serving /metrics (prometheus), /health and /debug/threads, on the downstream event loops.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class AdminEndpointConfig {
+
+    private boolean enabled = false;
+    /**
+     * not shared with SO_REUSEPORT (see {@link ReusePortConfig}), gateway processes sharing a host need one each
+     */
+    private int port = 8888;
+    /**
+     * a scrape is served to every caller within this time, so several scrapers cost a single encoding
+     */
+    private long scrapeCacheMs = 1_000;
+}
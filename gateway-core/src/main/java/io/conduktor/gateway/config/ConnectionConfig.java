@@ -18,6 +18,7 @@ package io.conduktor.gateway.config;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
 
 @ToString
@@ -28,6 +29,14 @@ public class ConnectionConfig {
 
     private int numOfConnection = 10;
     private int maxIdleTimeMs = 200_000;
+    @Setter
+    private UpstreamTransport transport = UpstreamTransport.SELECTOR;
+    @Setter
+    private ConnectionLanesConfig lanes = new ConnectionLanesConfig();
+    @Setter
+    private UpstreamFailoverConfig failover = new UpstreamFailoverConfig();
+    @Setter
+    private UpstreamWarmPoolConfig warmPool = new UpstreamWarmPoolConfig();
 
     public void setNumOfConnection(int numOfConnection) {
         this.numOfConnection = Math.max(1, numOfConnection);
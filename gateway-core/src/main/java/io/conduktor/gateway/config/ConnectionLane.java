@@ -0,0 +1,44 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+
+/**
+ * Class of upstream connections a request is sent on, so small requests never queue behind large fetch responses.
+ */
+public enum ConnectionLane {
+    /**
+     * every request, when lanes are disabled
+     */
+    SHARED,
+    /**
+     * long polling fetches and their large responses
+     */
+    FETCH,
+    PRODUCE,
+    /**
+     * group coordination, metadata, offsets and everything else
+     */
+    CONTROL;
+
+    public static ConnectionLane of(ApiKeys apiKey) {
+        return switch (apiKey) {
+            case FETCH -> FETCH;
+            case PRODUCE -> PRODUCE;
+            default -> CONTROL;
+        };
+    }
+}
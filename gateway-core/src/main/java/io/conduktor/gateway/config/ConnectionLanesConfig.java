@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * How many connections each {@link ConnectionLane} gets per broker and per upstream thread,
+ * when disabled every request shares {@link ConnectionConfig#getNumOfConnection()} connections.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ConnectionLanesConfig {
+
+    private boolean enabled = false;
+    private int fetch = 4;
+    private int produce = 4;
+    private int control = 2;
+
+    public int size(ConnectionLane lane) {
+        return Math.max(1, switch (lane) {
+            case FETCH -> fetch;
+            case PRODUCE -> produce;
+            case CONTROL -> control;
+            case SHARED -> throw new IllegalArgumentException("the shared lane is sized by numOfConnection");
+        });
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deficit round robin across the client connections of a gateway thread, so a client pipelining
+ * large requests cannot starve the small ones sharing its thread.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class FairnessConfig {
+
+    private boolean enabled = false;
+    /**
+     * bytes of requests a connection of weight 1 may have rebuilt per round
+     */
+    private int quantumBytes = 16_384;
+    /**
+     * weight of connections authenticated as a given principal, the others have a weight of 1
+     */
+    private Map<String, Integer> principalWeights = new HashMap<>();
+
+    public void setQuantumBytes(int quantumBytes) {
+        this.quantumBytes = Math.max(1, quantumBytes);
+    }
+
+    public int weightOf(String principal) {
+        return principal == null ? 1 : Math.max(1, principalWeights.getOrDefault(principal, 1));
+    }
+}
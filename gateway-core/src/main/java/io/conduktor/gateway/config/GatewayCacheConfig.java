@@ -0,0 +1,55 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Caches interceptors create through the {@link io.conduktor.gateway.common.GatewayCacheProvider}.
+ * Bounds and expiry only apply to {@link GatewayCacheType#BOUNDED}, 0 disables each of them.
+ * Persistence only applies to {@link GatewayCacheType#PERSISTENT} caches made with a name.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class GatewayCacheConfig {
+
+    private GatewayCacheType type = GatewayCacheType.TRANSIENT;
+    private long maxEntries = 100_000;
+    /**
+     * bound on the serialized size of keys and values, takes over {@link #maxEntries} when set
+     */
+    private long maxWeightBytes = 0;
+    private long expireAfterWriteMs = 0;
+    /**
+     * entries read this long after being written are reloaded in the background, for caches made with a loader
+     */
+    private long refreshAfterWriteMs = 0;
+    /**
+     * where {@link GatewayCacheType#PERSISTENT} caches keep their files, gateway processes sharing a host
+     * (see {@link ReusePortConfig}) need one each as a cache file is locked by the process opening it
+     */
+    private String directory = "gateway-cache";
+    /**
+     * size a persistent cache file may grow to, at most 2GB
+     */
+    private int maxFileBytes = 1 << 30;
+}
@@ -48,6 +48,26 @@ public class GatewayConfiguration {
 
     private GaugeBackendBrokersTimerConfig gaugeBackendBrokersTimerConfig;
 
+    private PartitionParallelismConfig partitionParallelismConfig;
+
+    private ReusePortConfig reusePortConfig;
+
+    private QuotaConfig quotaConfig;
+
+    private ResponseCacheConfig responseCacheConfig;
+
+    private GatewayCacheConfig gatewayCacheConfig;
+
+    private HeavyHittersConfig heavyHittersConfig;
+
+    private AdminEndpointConfig adminEndpointConfig;
+
+    private LoggingMetricsConfig loggingMetricsConfig;
+
+    private ChannelMetricsConfig channelMetricsConfig;
+
+    private SlowRequestLogConfig slowRequestLogConfig;
+
     @Valid
     private List<InterceptorPluginConfig> interceptors;
 
@@ -58,6 +78,16 @@ public class GatewayConfiguration {
         this.inFlightRequestExpiryMs = 30000; //30s;
         this.authenticationConfig = new AuthenticationConfig();
         this.gaugeBackendBrokersTimerConfig = new GaugeBackendBrokersTimerConfig();
+        this.partitionParallelismConfig = new PartitionParallelismConfig();
+        this.reusePortConfig = new ReusePortConfig();
+        this.quotaConfig = new QuotaConfig();
+        this.responseCacheConfig = new ResponseCacheConfig();
+        this.gatewayCacheConfig = new GatewayCacheConfig();
+        this.heavyHittersConfig = new HeavyHittersConfig();
+        this.adminEndpointConfig = new AdminEndpointConfig();
+        this.loggingMetricsConfig = new LoggingMetricsConfig();
+        this.channelMetricsConfig = new ChannelMetricsConfig();
+        this.slowRequestLogConfig = new SlowRequestLogConfig();
         this.interceptors = Collections.emptyList();
     }
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Per client id and per principal traffic accounting, only the heaviest ones are exported as metrics.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class HeavyHittersConfig {
+
+    private boolean enabled = false;
+    /**
+     * how many of the heaviest clients and principals are exported, the rest are summed up as "other"
+     */
+    private int topK = 20;
+    /**
+     * how many keys each sketch tracks, the more the more accurate the top K
+     */
+    private int capacity = 200;
+    /**
+     * traffic is accounted over windows of this length, the metrics show the last complete one
+     */
+    private long exportIntervalMs = 10_000;
+}
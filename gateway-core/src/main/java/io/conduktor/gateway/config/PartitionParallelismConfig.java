@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class PartitionParallelismConfig {
+
+    /**
+     * size of the shared {@link java.util.concurrent.ForkJoinPool} used to process partitions of a request in parallel
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * requests smaller than this (sum of partition sizes, in bytes) are processed on the calling thread
+     */
+    private int thresholdBytes = 1024 * 1024;
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setThresholdBytes(int thresholdBytes) {
+        this.thresholdBytes = Math.max(0, thresholdBytes);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Byte rate quotas on produce and fetch traffic, enforced per client id, user or source ip.
+ * Clients over their quota get throttle_time_ms in the response and their connection muted, like a broker does.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class QuotaConfig {
+
+    private boolean enabled = false;
+    private QuotaKeyType keyType = QuotaKeyType.CLIENT_ID;
+    /**
+     * produce bytes per second allowed per key, 0 means unlimited
+     */
+    private long produceBytesPerSecond = 0;
+    /**
+     * fetch bytes per second allowed per key, 0 means unlimited
+     */
+    private long fetchBytesPerSecond = 0;
+    /**
+     * how many milliseconds worth of quota a key may spend at once
+     */
+    private long burstMs = 1000;
+    /**
+     * upper bound of a single throttle, mirrors the broker quota window
+     */
+    private int maxThrottleTimeMs = 30_000;
+    /**
+     * quota state of keys idle for this long is dropped
+     */
+    private long idleExpiryMs = 600_000;
+}
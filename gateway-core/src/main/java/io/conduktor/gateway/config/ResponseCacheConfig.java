@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.apache.kafka.common.protocol.ApiKeys;
+
+import java.util.List;
+
+/**
+ * Read-through cache of responses to idempotent admin reads that dashboards poll.
+ * Identical requests share one upstream call and its response for the configured ttl.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ResponseCacheConfig {
+
+    private boolean enabled = false;
+    /**
+     * how long identical requests wait on the one in flight upstream before sending their own
+     */
+    private long singleFlightTimeoutMs = 5_000;
+    private List<CachedApiKeyConfig> apiKeys = List.of(
+            new CachedApiKeyConfig(ApiKeys.DESCRIBE_CONFIGS, 5_000, 1_000),
+            new CachedApiKeyConfig(ApiKeys.LIST_GROUPS, 5_000, 100),
+            new CachedApiKeyConfig(ApiKeys.DESCRIBE_GROUPS, 2_000, 1_000),
+            new CachedApiKeyConfig(ApiKeys.LIST_OFFSETS, 1_000, 1_000));
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.config;
+
+import com.google.common.annotations.VisibleForTesting;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Lets several gateway processes on the same host bind the same port range,
+ * the kernel then balances new client connections across them (SO_REUSEPORT, epoll only).
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class ReusePortConfig {
+
+    @Setter
+    private boolean enabled = false;
+    /**
+     * number of gateway processes sharing this host, thread pools are capped to this process' share of the cores
+     */
+    private int processes = 1;
+
+    public void setProcesses(int processes) {
+        this.processes = Math.max(1, processes);
+    }
+
+    /**
+     * @param threads configured size of a thread pool
+     * @return the size capped to this process' share of the cores
+     */
+    public int shareOf(int threads) {
+        return shareOf(threads, Runtime.getRuntime().availableProcessors());
+    }
+
+    @VisibleForTesting
+    int shareOf(int threads, int cores) {
+        if (processes <= 1) {
+            return threads;
+        }
+        return Math.min(threads, Math.max(1, cores / processes));
+    }
+}
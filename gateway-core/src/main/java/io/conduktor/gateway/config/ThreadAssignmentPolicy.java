@@ -0,0 +1,37 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+/**
+ * How a new client connection picks the {@link io.conduktor.gateway.thread.GatewayThread} serving it.
+ */
+public enum ThreadAssignmentPolicy {
+    /**
+     * one thread after the other, whatever their load
+     */
+    ROUND_ROBIN,
+    /**
+     * the thread with the fewest tasks waiting in its queue
+     */
+    LEAST_PENDING_TASKS,
+    /**
+     * the thread with the fewest requests waiting for their response
+     */
+    LEAST_IN_FLIGHT,
+    /**
+     * the thread that moved the fewest bytes per second recently
+     */
+    LEAST_BYTES_RATE
+}
@@ -18,6 +18,7 @@ package io.conduktor.gateway.config;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
 
 @ToString
@@ -28,6 +29,13 @@ public class ThreadConfig {
 
     private int downStreamThread = 2;
     private UpstreamThreadConfig upstream = new UpstreamThreadConfig();
+    /**
+     * pairs each downstream event loop with one gateway thread, the downstream thread count then follows the upstream one.
+     * Requests still cross from the event loop to the gateway thread and back, but once per read burst and once per
+     * batch of responses rather than once per message. It does not rebuild requests on the event loop itself.
+     */
+    @Setter
+    private boolean batchHandOff = false;
 
     public void setDownStreamThread(int downStreamThread) {
         this.downStreamThread = Math.max(1, downStreamThread);
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * What happens to clients when one of their upstream connections drops. When disabled their sockets are closed,
+ * otherwise the requests in flight on it are answered with retriable errors and the connection is re-established.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UpstreamFailoverConfig {
+
+    private boolean enabled = false;
+    /**
+     * wait before the first reconnect attempt, doubled on each disconnect until a request gets through again
+     */
+    private long reconnectBackoffMs = 50;
+    private long reconnectBackoffMaxMs = 1_000;
+}
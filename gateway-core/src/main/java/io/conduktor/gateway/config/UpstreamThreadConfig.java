@@ -34,5 +34,22 @@ public class UpstreamThreadConfig {
      * to indicate max number of pending tasks a {@link GatewayThread} can handle
      */
     private int maxPendingTask = 1024;
+    /**
+     * how a new client connection picks its {@link GatewayThread}
+     */
+    private ThreadAssignmentPolicy assignmentPolicy = ThreadAssignmentPolicy.ROUND_ROBIN;
+    /**
+     * a connection idle for this long, with nothing in flight, moves to the least loaded thread
+     * on its next request, 0 never moves it
+     */
+    private long rebalanceIdleMs = 0;
+    /**
+     * group coordination and metadata requests are rebuilt ahead of produce and fetch requests of other clients
+     */
+    private boolean prioritizeControlPlane = false;
+    /**
+     * how request rebuild work of different client connections is shared on a {@link GatewayThread}
+     */
+    private FairnessConfig fairness = new FairnessConfig();
 
 }
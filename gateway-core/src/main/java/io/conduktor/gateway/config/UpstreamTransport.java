@@ -0,0 +1,29 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+/**
+ * How a {@link io.conduktor.gateway.thread.GatewayThread} talks to the Kafka brokers.
+ */
+public enum UpstreamTransport {
+    /**
+     * a Kafka {@link org.apache.kafka.common.network.Selector} polled by the gateway thread itself
+     */
+    SELECTOR,
+    /**
+     * Netty channels reading responses into pooled buffers handed to the client without copies
+     */
+    NETTY
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Keeps the upstream connections of every thread open ahead of the first client, probed with ApiVersions requests
+ * which also measure the round trip time to each broker.
+ */
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class UpstreamWarmPoolConfig {
+
+    private boolean enabled = false;
+    /**
+     * should stay below {@link ConnectionConfig#getMaxIdleTimeMs()} so probed connections are never idle
+     */
+    private long probeIntervalMs = 10_000;
+    /**
+     * a new client gets the less loaded of two pool connections, load being round trip time times clients
+     */
+    private boolean rttAwareSelection = true;
+}
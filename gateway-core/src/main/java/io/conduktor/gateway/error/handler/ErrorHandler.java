@@ -17,11 +17,13 @@ package io.conduktor.gateway.error.handler;
 
 import com.google.inject.Inject;
 import io.conduktor.gateway.common.ExceptionUtils;
+import io.conduktor.gateway.common.KafkaFrameScanner;
 import io.conduktor.gateway.error.handler.components.DefaultResponseErrorBuilder;
 import io.conduktor.gateway.interceptor.InterceptorIntentionException;
 import io.conduktor.gateway.service.ClientRequest;
 import io.conduktor.gateway.service.RebuilderTools;
 import io.netty.buffer.ByteBuf;
+import org.apache.kafka.common.protocol.Errors;
 import org.apache.kafka.common.requests.AbstractResponse;
 import org.apache.kafka.common.requests.ResponseHeader;
 
@@ -47,9 +49,7 @@ public class ErrorHandler {
 
     @SuppressWarnings({"unchecked", "AccessStaticViaInstance"})
     public void handleRequestError(ClientRequest clientRequest, ByteBuffer kafkaPayload) {
-        var requestHeader = clientRequest.getClientRequestHeader();
-        var request = rebuilderTools.serdeService().fromBuffer(requestHeader.apiKey(), requestHeader.apiVersion(), kafkaPayload);
-        var errorResponse = responseErrorBuilder.fromRequest(request);
+        var errorResponse = errorResponse(clientRequest, kafkaPayload, Errors.UNKNOWN_SERVER_ERROR.exception());
         var bufferResponse = rebuilderTools.serdeService().toBuffer(clientRequest, errorResponse);
         clientRequest.marKDoneWithResponse(bufferResponse);
     }
@@ -57,14 +57,44 @@ public class ErrorHandler {
     @SuppressWarnings({"unchecked", "AccessStaticViaInstance"})
     public void handleResponseError(ClientRequest clientRequest, Throwable throwable) {
         throwable = ExceptionUtils.getRootCause(throwable);
-        var gatewayRequestHeader = clientRequest.getGatewayRequestHeader();
-        //use gateway request header to deserialize response from server
-        var request = rebuilderTools.serdeService().fromBuffer(gatewayRequestHeader.apiKey(), gatewayRequestHeader.apiVersion(), clientRequest.getRequest());
-        var errorResponse = responseErrorBuilder.fromRequest(request, throwable);
+        var errorResponse = errorResponse(clientRequest, clientRequest.getRequest(), throwable);
         var bufferResponse = rebuilderTools.serdeService().toBuffer(clientRequest, errorResponse);
         clientRequest.marKDoneWithResponse(bufferResponse);
     }
 
+    /**
+     * Answers a request whose upstream connection dropped before its response came back, with a retriable error.
+     * Requests served by partition leaders get NOT_LEADER_OR_FOLLOWER so clients refresh their metadata first,
+     * as the broker may be leaving the cluster.
+     */
+    public void handleUpstreamDisconnection(ClientRequest clientRequest) {
+        var error = switch (clientRequest.getClientRequestHeader().apiKey()) {
+            case PRODUCE, FETCH, LIST_OFFSETS, OFFSET_FOR_LEADER_EPOCH, DELETE_RECORDS -> Errors.NOT_LEADER_OR_FOLLOWER;
+            default -> Errors.NETWORK_EXCEPTION;
+        };
+        handleResponseError(clientRequest, error.exception());
+    }
+
+    /**
+     * Builds the error response without parsing the request again when possible:
+     * the request parsed by the rebuilder is reused, otherwise Produce and Fetch answers are built from the frame skeleton.
+     */
+    @SuppressWarnings({"unchecked", "AccessStaticViaInstance"})
+    private AbstractResponse errorResponse(ClientRequest clientRequest, ByteBuffer kafkaPayload, Throwable throwable) {
+        if (clientRequest.getParsedRequest() != null) {
+            return responseErrorBuilder.fromRequest(clientRequest.getParsedRequest(), throwable);
+        }
+        var requestHeader = clientRequest.getClientRequestHeader();
+        var frame = clientRequest.getRequestFrame() != null
+                ? clientRequest.getRequestFrame()
+                : KafkaFrameScanner.scanRequest(requestHeader.apiKey(), requestHeader.apiVersion(), kafkaPayload);
+        if (frame != null) {
+            return responseErrorBuilder.fromFrame(requestHeader.apiKey(), requestHeader.apiVersion(), frame, throwable);
+        }
+        var request = rebuilderTools.serdeService().fromBuffer(requestHeader.apiKey(), requestHeader.apiVersion(), kafkaPayload);
+        return responseErrorBuilder.fromRequest(request, throwable);
+    }
+
     public boolean handleGatewayException(ClientRequest clientRequest, Throwable cause) {
         if (cause instanceof InterceptorIntentionException interceptorIntentionException) {
             handleInterceptorIntentionError(clientRequest, interceptorIntentionException);
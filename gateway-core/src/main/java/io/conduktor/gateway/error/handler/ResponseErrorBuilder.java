@@ -15,6 +15,8 @@
 
 package io.conduktor.gateway.error.handler;
 
+import io.conduktor.gateway.common.KafkaFrameScanner;
+import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.protocol.Errors;
 import org.apache.kafka.common.requests.AbstractRequest;
 import org.apache.kafka.common.requests.AbstractResponse;
@@ -27,4 +29,9 @@ public interface ResponseErrorBuilder<I extends AbstractRequest, O extends Abstr
 
     O fromRequest(I request, Throwable throwable);
 
+    /**
+     * Builds the error response from the topic/partition skeleton of a request that was never decoded
+     */
+    AbstractResponse fromFrame(ApiKeys apiKey, short version, KafkaFrameScanner.ScannedFrame frame, Throwable throwable);
+
 }
@@ -15,14 +15,27 @@
 
 package io.conduktor.gateway.error.handler.components;
 
+import io.conduktor.gateway.common.KafkaFrameScanner;
 import io.conduktor.gateway.error.handler.ResponseErrorBuilder;
 import org.apache.kafka.common.errors.InvalidTopicException;
 import org.apache.kafka.common.errors.PolicyViolationException;
+import org.apache.kafka.common.message.FetchResponseData;
+import org.apache.kafka.common.message.ProduceResponseData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.protocol.Message;
+import org.apache.kafka.common.record.RecordBatch;
 import org.apache.kafka.common.requests.AbstractRequest;
 import org.apache.kafka.common.requests.AbstractResponse;
+import org.apache.kafka.common.requests.ApiError;
+import org.apache.kafka.common.requests.FetchResponse;
+import org.apache.kafka.common.requests.ProduceResponse;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.apache.kafka.common.protocol.Errors.UNKNOWN_SERVER_ERROR;
 import static org.apache.kafka.common.protocol.Errors.maybeUnwrapException;
@@ -31,12 +44,80 @@ public class DefaultResponseErrorBuilder<I extends AbstractRequest, O extends Ab
 
     private static final List<Class<?>> handleableErrors = List.of(InvalidTopicException.class, PolicyViolationException.class);
 
+    /**
+     * partition level error responses, built once per api key, version and error then copied for every partition
+     */
+    private final Map<TemplateKey, Message> partitionTemplates = new ConcurrentHashMap<>();
+
+    private record TemplateKey(ApiKeys apiKey, short version, Errors error) {
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public O fromRequest(I request, Throwable throwable) {
         return (O) request.getErrorResponse(forException(throwable));
     }
 
+    @Override
+    public AbstractResponse fromFrame(ApiKeys apiKey, short version, KafkaFrameScanner.ScannedFrame frame, Throwable throwable) {
+        var apiError = ApiError.fromThrowable(forException(throwable));
+        var template = partitionTemplates.computeIfAbsent(new TemplateKey(apiKey, version, apiError.error()), this::partitionTemplate);
+        return switch (apiKey) {
+            case PRODUCE -> produceErrorResponse((ProduceResponseData.PartitionProduceResponse) template, version, frame, apiError);
+            case FETCH -> fetchErrorResponse((FetchResponseData.PartitionData) template, frame, apiError);
+            default -> throw new IllegalArgumentException("No error response template for " + apiKey);
+        };
+    }
+
+    private Message partitionTemplate(TemplateKey key) {
+        return switch (key.apiKey()) {
+            case PRODUCE -> new ProduceResponseData.PartitionProduceResponse()
+                    .setErrorCode(key.error().code())
+                    .setBaseOffset(ProduceResponse.INVALID_OFFSET)
+                    .setLogAppendTimeMs(RecordBatch.NO_TIMESTAMP)
+                    .setLogStartOffset(ProduceResponse.INVALID_OFFSET);
+            case FETCH -> FetchResponse.partitionResponse(-1, key.error());
+            default -> throw new IllegalArgumentException("No error response template for " + key.apiKey());
+        };
+    }
+
+    private ProduceResponse produceErrorResponse(ProduceResponseData.PartitionProduceResponse template,
+                                                 short version,
+                                                 KafkaFrameScanner.ScannedFrame frame,
+                                                 ApiError apiError) {
+        var data = new ProduceResponseData();
+        frame.partitionsByTopic().forEach((topic, partitions) -> {
+            var partitionResponses = new ArrayList<ProduceResponseData.PartitionProduceResponse>(partitions.size());
+            for (var partition : partitions) {
+                var partitionResponse = template.duplicate().setIndex(partition);
+                if (version >= 8) {
+                    partitionResponse.setErrorMessage(apiError.message());
+                }
+                partitionResponses.add(partitionResponse);
+            }
+            data.responses().add(new ProduceResponseData.TopicProduceResponse()
+                    .setName(topic)
+                    .setPartitionResponses(partitionResponses));
+        });
+        return new ProduceResponse(data);
+    }
+
+    private FetchResponse fetchErrorResponse(FetchResponseData.PartitionData template,
+                                             KafkaFrameScanner.ScannedFrame frame,
+                                             ApiError apiError) {
+        var data = new FetchResponseData().setErrorCode(apiError.error().code());
+        frame.partitionsByTopic().forEach((topic, partitions) -> {
+            var partitionResponses = new ArrayList<FetchResponseData.PartitionData>(partitions.size());
+            for (var partition : partitions) {
+                partitionResponses.add(template.duplicate().setPartitionIndex(partition));
+            }
+            data.responses().add(new FetchResponseData.FetchableTopicResponse()
+                    .setTopic(topic)
+                    .setPartitions(partitionResponses));
+        });
+        return new FetchResponse(data);
+    }
+
     private Throwable forException(Throwable t) {
         if (Objects.isNull(t)) {
             return UNKNOWN_SERVER_ERROR.exception();
@@ -20,7 +20,9 @@ import lombok.Data;
 import lombok.experimental.Accessors;
 import org.apache.kafka.common.requests.AbstractRequestResponse;
 
+import java.util.Collection;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 @Data
 @Accessors(fluent = true)
@@ -30,9 +32,27 @@ public class InterceptorValue {
     private Interceptor<AbstractRequestResponse> interceptor;
     private int priority;
     private Long timeoutMs;
+    /**
+     * when set, the interceptor only runs for messages touching a matching topic
+     */
+    private Pattern topicPattern;
+
+    public InterceptorValue(Interceptor<AbstractRequestResponse> interceptor, int priority, Long timeoutMs) {
+        this(interceptor, priority, timeoutMs, null);
+    }
 
     public Long timeoutMs() {
         return Objects.requireNonNullElse(timeoutMs, 30_000L);
     }
 
+    /**
+     * @param topics topics of the message, null when they are unknown
+     */
+    public boolean appliesTo(Collection<String> topics) {
+        if (Objects.isNull(topicPattern) || Objects.isNull(topics)) {
+            return true;
+        }
+        return topics.stream().anyMatch(topic -> Objects.nonNull(topic) && topicPattern.matcher(topic).matches());
+    }
+
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.jfr;
+
+import io.conduktor.gateway.service.ClientRequest;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event about one request, the recording thread is captured by the recorder itself.
+ * Events are only committed when enabled and over their threshold, see gateway.jfc.
+ */
+@Category({"Conduktor Gateway", "Requests"})
+@StackTrace(false)
+public abstract class GatewayRequestEvent extends Event {
+
+    // the recorder ignores private fields of a super class
+    @Label("API Key")
+    protected String apiKey;
+
+    @Label("API Version")
+    protected short apiVersion;
+
+    @Label("Client Id")
+    protected String clientId;
+
+    @Label("Client Correlation Id")
+    protected int clientCorrelationId;
+
+    @Label("Gateway Correlation Id")
+    protected int gatewayCorrelationId;
+
+    @Label("Size")
+    @DataAmount
+    protected long size;
+
+    public void request(ClientRequest clientRequest) {
+        var clientRequestHeader = clientRequest.getClientRequestHeader();
+        apiKey = clientRequestHeader.apiKey().name();
+        apiVersion = clientRequestHeader.apiVersion();
+        clientId = clientRequestHeader.clientId();
+        clientCorrelationId = clientRequestHeader.correlationId();
+        if (clientRequest.getGatewayRequestHeader() != null) {
+            gatewayCorrelationId = clientRequest.getGatewayCorrelationId();
+        }
+    }
+
+    public void apiKey(String apiKey, short apiVersion, int clientCorrelationId) {
+        this.apiKey = apiKey;
+        this.apiVersion = apiVersion;
+        this.clientCorrelationId = clientCorrelationId;
+    }
+
+    public void size(long size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.conduktor.gateway.UpstreamSend")
+@Label("Upstream Send")
+@Description("A request handed over to the connection to its Kafka broker")
+public class UpstreamSendEvent extends GatewayRequestEvent {
+
+    @Label("Connection Id")
+    private String connectionId;
+
+    public void connectionId(String connectionId) {
+        this.connectionId = connectionId;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.metrics;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.HeavyHittersConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.FastThreadLocal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts requests and bytes per client id and per principal, and exports the heaviest of them.
+ * Each thread records into its own Space-Saving sketches. Every window they are merged,
+ * the top K keys of each dimension get a gauge and the rest is summed up under {@link #OTHER},
+ * so the number of series stays bounded however many clients connect.
+ * The sketches of a thread that terminated are exported a last time, then forgotten.
+ */
+@Slf4j
+public class HeavyHitters implements AutoCloseable {
+
+    public static final String OTHER = "__other__";
+    private static final String UNKNOWN = "__unknown__";
+
+    private final HeavyHittersConfig config;
+    private final MeterRegistry registry;
+    private final List<SpaceSaving[]> allSketches = new CopyOnWriteArrayList<>();
+    private final Queue<SpaceSaving[]> retiredSketches = new ConcurrentLinkedQueue<>();
+    private final FastThreadLocal<SpaceSaving[]> sketches = new FastThreadLocal<>() {
+        @Override
+        protected SpaceSaving[] initialValue() {
+            var threadSketches = new SpaceSaving[Dimension.values().length];
+            for (var dimension : Dimension.values()) {
+                threadSketches[dimension.ordinal()] = new SpaceSaving(config.getCapacity());
+            }
+            allSketches.add(threadSketches);
+            return threadSketches;
+        }
+
+        @Override
+        protected void onRemoval(SpaceSaving[] threadSketches) {
+            retiredSketches.add(threadSketches);
+        }
+    };
+    private final Map<Tags, HitterGauges> gauges = new HashMap<>();
+    private ScheduledExecutorService executor;
+
+    @Inject
+    public HeavyHitters(@Named("heavyHittersConfig") HeavyHittersConfig config,
+                        MetricsRegistryProvider metricsRegistryProvider) {
+        this.config = config;
+        this.registry = metricsRegistryProvider.registry();
+    }
+
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("heavy-hitters", true));
+        executor.scheduleAtFixedRate(this::export, config.getExportIntervalMs(), config.getExportIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param requestCount 1 for a request, 0 for the bytes of a response
+     */
+    public void record(String clientId, String principal, long bytes, long requestCount) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        var threadSketches = sketches.get();
+        threadSketches[Dimension.CLIENT_ID.ordinal()].add(clientId == null ? UNKNOWN : clientId, bytes, requestCount);
+        threadSketches[Dimension.PRINCIPAL.ordinal()].add(principal == null ? UNKNOWN : principal, bytes, requestCount);
+    }
+
+    @VisibleForTesting
+    synchronized void export() {
+        // taken before draining, no thread records into them anymore so this drain is their last
+        var retired = new ArrayList<SpaceSaving[]>();
+        for (var threadSketches = retiredSketches.poll(); threadSketches != null; threadSketches = retiredSketches.poll()) {
+            retired.add(threadSketches);
+        }
+        try {
+            var exported = new HashSet<Tags>();
+            for (var dimension : Dimension.values()) {
+                exportDimension(dimension, exported);
+            }
+            // keys out of the top K lose their series
+            var dropped = gauges.entrySet().iterator();
+            while (dropped.hasNext()) {
+                var entry = dropped.next();
+                if (!exported.contains(entry.getKey())) {
+                    entry.getValue().remove(registry);
+                    dropped.remove();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cannot export heavy hitters", e);
+        } finally {
+            allSketches.removeAll(retired);
+        }
+    }
+
+    @VisibleForTesting
+    int trackedThreads() {
+        return allSketches.size();
+    }
+
+    private void exportDimension(Dimension dimension, HashSet<Tags> exported) {
+        var bytesByKey = new HashMap<String, long[]>();
+        long totalBytes = 0;
+        long totalRequests = 0;
+        for (var threadSketches : allSketches) {
+            var snapshot = threadSketches[dimension.ordinal()].drain();
+            totalBytes += snapshot.totalBytes();
+            totalRequests += snapshot.totalRequests();
+            for (var hitter : snapshot.hitters()) {
+                var merged = bytesByKey.computeIfAbsent(hitter.key(), key -> new long[2]);
+                merged[0] += hitter.bytes();
+                merged[1] += hitter.requests();
+            }
+        }
+        var top = bytesByKey.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0]).reversed())
+                .limit(config.getTopK())
+                .toList();
+        long topBytes = 0;
+        long topRequests = 0;
+        for (var entry : top) {
+            // a sketch may over count a key, never let it go over the total
+            var bytes = Math.min(entry.getValue()[0], totalBytes - topBytes);
+            var requests = Math.min(entry.getValue()[1], totalRequests - topRequests);
+            set(dimension, entry.getKey(), bytes, requests, exported);
+            topBytes += bytes;
+            topRequests += requests;
+        }
+        set(dimension, OTHER, totalBytes - topBytes, totalRequests - topRequests, exported);
+    }
+
+    private void set(Dimension dimension, String key, long bytes, long requests, HashSet<Tags> exported) {
+        var tags = Tags.of("dimension", dimension.tag, "key", key);
+        exported.add(tags);
+        var hitterGauges = gauges.computeIfAbsent(tags, t -> new HitterGauges(registry, t));
+        hitterGauges.bytes.set(bytes);
+        hitterGauges.requests.set(requests);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private enum Dimension {
+        CLIENT_ID("client_id"),
+        PRINCIPAL("principal");
+
+        private final String tag;
+
+        Dimension(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final class HitterGauges {
+
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong requests = new AtomicLong();
+        private final Gauge bytesGauge;
+        private final Gauge requestsGauge;
+
+        private HitterGauges(MeterRegistry registry, Tags tags) {
+            this.bytesGauge = Gauge.builder(MetricsRegistryKeys.HEAVY_HITTERS_BYTES, bytes, AtomicLong::get)
+                    .tags(tags)
+                    .baseUnit("bytes")
+                    .register(registry);
+            this.requestsGauge = Gauge.builder(MetricsRegistryKeys.HEAVY_HITTERS_REQUESTS, requests, AtomicLong::get)
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        private void remove(MeterRegistry registry) {
+            registry.remove(bytesGauge);
+            registry.remove(requestsGauge);
+        }
+    }
+}
@@ -25,9 +25,38 @@ public interface MetricsRegistryKeys {
     String THREAD_REBUILD_REQUEST = "gateway.thread.request.rebuild";
     String THREAD_RECEIVED_REQUEST = "gateway.thread.request.received";
     String THREAD_TASKS = "gateway.thread.tasks";
+    String THREAD_QUEUE_WAIT = "gateway.thread.queue.wait";
 
     String UPSTREAMIO_CONNECTIONS_UPSTREAM_CONNECTED = "gateway.upstreamio.connections.upstream.connected";
     String UPSTREAMIO_CONNECTIONS_DOWNSTREAM = "gateway.upstreamio.connections.downstream";
     String UPSTREAMIO_NODES = "gateway.upstreamio.nodes";
+    String UPSTREAMIO_FAILED_OVER_REQUESTS = "gateway.upstreamio.failover.requests";
+    String UPSTREAMIO_RTT = "gateway.upstreamio.rtt";
     String UPSTREAM_NODES = "gateway.upstream.nodes";
+    /**
+     * Brokers of the backend cluster, as last seen by the topology watcher.
+     */
+    String BACKEND_BROKERS = "gateway.backend.brokers";
+    /**
+     * Requests answered with a throttle because their client went over its byte quota.
+     */
+    String QUOTA_THROTTLED = "gateway.quota.throttled";
+    /**
+     * Lookups of the response cache of idempotent admin reads, tagged by result: hit, miss or shared.
+     */
+    String RESPONSE_CACHE = "gateway.response_cache";
+    /**
+     * Name prefix of the caches interceptors make, their statistics are tagged with it.
+     */
+    String GATEWAY_CACHE = "gateway.cache";
+    /**
+     * Traffic of the heaviest client ids and principals over the last window, tagged by dimension and key.
+     */
+    String HEAVY_HITTERS_BYTES = "gateway.heavy_hitters.bytes";
+    String HEAVY_HITTERS_REQUESTS = "gateway.heavy_hitters.requests";
+    /**
+     * Traffic of each client connection, tagged by direction and channel, when channel metrics are enabled.
+     */
+    String CHANNEL_BYTES = "gateway.channel.bytes";
+    String CHANNEL_MESSAGES = "gateway.channel.messages";
 }
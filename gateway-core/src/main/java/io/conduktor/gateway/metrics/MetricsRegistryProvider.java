@@ -30,20 +30,32 @@ import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MetricsRegistryProvider implements Closeable {
 
     private static final User DUMMY_USER = new User("Conduktor");
     @Getter
     private final MeterRegistry meterRegistry;
+    /**
+     * bytes are counted on every read and write of every client channel, a striped adder keeps the
+     * event loops off a shared cache line and is only summed on scrape
+     */
     @Getter
-    private final Counter downstreamCounter;
+    private final LongAdder downstreamBytes = new LongAdder();
     @Getter
-    private final Counter upstreamCounter;
+    private final LongAdder upstreamBytes = new LongAdder();
+    @Getter
+    private final boolean channelMetricsEnabled;
     private final ConcurrentHashMap<User, Queue<GatewayChannel>> channelsByUser = new ConcurrentHashMap<>();
 
     public MetricsRegistryProvider(MeterRegistry meterRegistry) {
+        this(meterRegistry, false);
+    }
+
+    public MetricsRegistryProvider(MeterRegistry meterRegistry, boolean channelMetricsEnabled) {
         this.meterRegistry = meterRegistry;
+        this.channelMetricsEnabled = channelMetricsEnabled;
         meterRegistry.config().meterFilter(new MeterFilter() {
             @Override
             public DistributionStatisticConfig configure(@NonNull Meter.Id id,@NonNull DistributionStatisticConfig config) {
@@ -57,8 +69,12 @@ public class MetricsRegistryProvider implements Closeable {
                 return config;
             }
         });
-        this.upstreamCounter = registry().counter(MetricsRegistryKeys.BYTES_EXCHANGED, Tags.of("direction", "upstream"));
-        this.downstreamCounter = registry().counter(MetricsRegistryKeys.BYTES_EXCHANGED, Tags.of("direction", "downstream"));
+        FunctionCounter.builder(MetricsRegistryKeys.BYTES_EXCHANGED, upstreamBytes, LongAdder::sum)
+                .tags(Tags.of("direction", "upstream"))
+                .register(registry());
+        FunctionCounter.builder(MetricsRegistryKeys.BYTES_EXCHANGED, downstreamBytes, LongAdder::sum)
+                .tags(Tags.of("direction", "downstream"))
+                .register(registry());
     }
 
     public MeterRegistry registry() {
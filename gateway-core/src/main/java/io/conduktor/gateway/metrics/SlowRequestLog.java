@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.SlowRequestLogConfig;
+import io.conduktor.gateway.service.ClientRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flight log of slow requests: every gateway thread keeps the stage timeline of its last requests whose
+ * end-to-end time went over the threshold, in a lock-free ring overwriting the oldest entries.
+ */
+public class SlowRequestLog {
+
+    private static final long UNKNOWN = -1;
+
+    private final SlowRequestLogConfig config;
+    private final long thresholdNanos;
+    private final List<Ring> rings = new CopyOnWriteArrayList<>();
+
+    @Inject
+    public SlowRequestLog(@Named("slowRequestLogConfig") SlowRequestLogConfig config) {
+        this.config = config;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getThresholdMs());
+    }
+
+    /**
+     * @return a ring for the calling gateway thread
+     */
+    public Ring newRing() {
+        var ring = new Ring(config.isEnabled() ? config.getCapacity() : 1);
+        rings.add(ring);
+        return ring;
+    }
+
+    /**
+     * @return slow requests of all threads, the most recent first
+     */
+    public List<SlowRequest> snapshot() {
+        var slowRequests = new ArrayList<SlowRequest>();
+        rings.forEach(ring -> ring.drainTo(slowRequests));
+        slowRequests.sort(Comparator.comparingLong(SlowRequest::completedAtMs).reversed());
+        return slowRequests;
+    }
+
+    public final class Ring {
+
+        private final AtomicReferenceArray<SlowRequest> slots;
+        private final int mask;
+        private final AtomicLong sequence = new AtomicLong();
+
+        private Ring(int capacity) {
+            var size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        public boolean isEnabled() {
+            return config.isEnabled();
+        }
+
+        /**
+         * Keeps the request if it was slower than the threshold, safe to call from any thread.
+         */
+        public void offer(ClientRequest clientRequest, long responseBytes) {
+            if (!config.isEnabled()) {
+                return;
+            }
+            var doneNanos = System.nanoTime();
+            if (doneNanos - clientRequest.getInitiatedNanos() < thresholdNanos) {
+                return;
+            }
+            var slot = (int) (sequence.getAndIncrement() & mask);
+            slots.lazySet(slot, SlowRequest.of(clientRequest, responseBytes, doneNanos));
+        }
+
+        private void drainTo(List<SlowRequest> slowRequests) {
+            for (var slot = 0; slot < slots.length(); slot++) {
+                var slowRequest = slots.get(slot);
+                if (slowRequest != null) {
+                    slowRequests.add(slowRequest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stage durations are in microseconds, -1 for a stage the request did not go through
+     * (e.g. answered by the gateway without reaching Kafka).
+     */
+    public record SlowRequest(long completedAtMs,
+                              String thread,
+                              String apiKey,
+                              short apiVersion,
+                              String clientId,
+                              int clientCorrelationId,
+                              int gatewayCorrelationId,
+                              String upstreamConnectionId,
+                              long requestBytes,
+                              long responseBytes,
+                              long totalMicros,
+                              long rebuildRequestMicros,
+                              long waitUpstreamMicros,
+                              long upstreamMicros,
+                              long rebuildResponseMicros,
+                              List<ClientRequest.InterceptorTiming> interceptors) {
+
+        static SlowRequest of(ClientRequest clientRequest, long responseBytes, long doneNanos) {
+            var requestHeader = clientRequest.getClientRequestHeader();
+            var initiated = clientRequest.getInitiatedNanos();
+            var rebuilt = clientRequest.getRequestRebuiltNanos();
+            var sent = clientRequest.getSentToKafkaNanos();
+            var received = clientRequest.getResponseReceivedNanos();
+            return new SlowRequest(System.currentTimeMillis(),
+                    Thread.currentThread().getName(),
+                    requestHeader.apiKey().name(),
+                    requestHeader.apiVersion(),
+                    requestHeader.clientId(),
+                    requestHeader.correlationId(),
+                    clientRequest.getGatewayRequestHeader() == null ? -1 : clientRequest.getGatewayCorrelationId(),
+                    clientRequest.getConnectionId(),
+                    clientRequest.getRequest() == null ? 0 : clientRequest.getRequest().remaining(),
+                    responseBytes,
+                    micros(initiated, doneNanos),
+                    micros(initiated, rebuilt),
+                    micros(rebuilt, sent),
+                    micros(sent, received),
+                    micros(received, doneNanos),
+                    List.copyOf(clientRequest.getInterceptorTimings()));
+        }
+
+        private static long micros(long fromNanos, long toNanos) {
+            if (fromNanos == 0 || toNanos == 0) {
+                return UNKNOWN;
+            }
+            return TimeUnit.NANOSECONDS.toMicros(toNanos - fromNanos);
+        }
+    }
+}
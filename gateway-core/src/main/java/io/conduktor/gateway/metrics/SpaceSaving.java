@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving sketch of the heaviest keys by bytes, in a fixed number of slots.
+ * A key missing once the slots are full takes over the lightest slot and inherits its count,
+ * so a tracked key is never under counted and any key heavier than total / capacity is tracked.
+ * Slots are kept in a min-heap by bytes, counts only grow so an update sifts its slot down in O(log capacity).
+ */
+class SpaceSaving {
+
+    private final int capacity;
+    private final String[] keys;
+    private final long[] bytes;
+    private final long[] requests;
+    // heap[0] is the lightest slot, position[slot] is where the slot sits in the heap
+    private final int[] heap;
+    private final int[] position;
+    private final Map<String, Integer> slots;
+    private int size;
+    private long totalBytes;
+    private long totalRequests;
+
+    SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.keys = new String[this.capacity];
+        this.bytes = new long[this.capacity];
+        this.requests = new long[this.capacity];
+        this.heap = new int[this.capacity];
+        this.position = new int[this.capacity];
+        this.slots = new HashMap<>(this.capacity * 2);
+    }
+
+    synchronized void add(String key, long byteCount, long requestCount) {
+        totalBytes += byteCount;
+        totalRequests += requestCount;
+        var slot = slots.get(key);
+        if (slot == null) {
+            if (size < capacity) {
+                slot = size++;
+                heap[slot] = slot;
+                siftUp(slot);
+            } else {
+                slot = heap[0];
+                slots.remove(keys[slot]);
+                requests[slot] = 0;
+            }
+            keys[slot] = key;
+            slots.put(key, slot);
+        }
+        bytes[slot] += byteCount;
+        requests[slot] += requestCount;
+        siftDown(position[slot]);
+    }
+
+    /**
+     * @return what was accounted since the last drain, the sketch starts over empty
+     */
+    synchronized Snapshot drain() {
+        var hitters = new ArrayList<Hitter>(size);
+        for (var slot = 0; slot < size; slot++) {
+            hitters.add(new Hitter(keys[slot], bytes[slot], requests[slot]));
+        }
+        var snapshot = new Snapshot(hitters, totalBytes, totalRequests);
+        Arrays.fill(keys, null);
+        Arrays.fill(bytes, 0);
+        Arrays.fill(requests, 0);
+        slots.clear();
+        size = 0;
+        totalBytes = 0;
+        totalRequests = 0;
+        return snapshot;
+    }
+
+    private void siftUp(int index) {
+        var slot = heap[index];
+        while (index > 0) {
+            var parent = (index - 1) / 2;
+            if (bytes[heap[parent]] <= bytes[slot]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            position[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = slot;
+        position[slot] = index;
+    }
+
+    private void siftDown(int index) {
+        var slot = heap[index];
+        while (true) {
+            var child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && bytes[heap[child + 1]] < bytes[heap[child]]) {
+                child++;
+            }
+            if (bytes[heap[child]] >= bytes[slot]) {
+                break;
+            }
+            heap[index] = heap[child];
+            position[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = slot;
+        position[slot] = index;
+    }
+
+    record Hitter(String key, long bytes, long requests) {
+    }
+
+    record Snapshot(List<Hitter> hitters, long totalBytes, long totalRequests) {
+    }
+}
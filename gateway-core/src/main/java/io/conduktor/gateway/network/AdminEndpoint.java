@@ -0,0 +1,252 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.network;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.AdminEndpointConfig;
+import io.conduktor.gateway.config.HostPortConfiguration;
+import io.conduktor.gateway.exception.GatewayStartFailException;
+import io.conduktor.gateway.metrics.SlowRequestLog;
+import io.conduktor.gateway.thread.GatewayThread;
+import io.conduktor.gateway.thread.UpStreamResource;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.prometheus.client.exporter.common.TextFormat;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small HTTP endpoint for operators, served by the downstream event loops:
+ * <ul>
+ *     <li>/metrics: prometheus scrape, encoded straight into a pooled buffer and cached for {@link AdminEndpointConfig#getScrapeCacheMs()}</li>
+ *     <li>/health: UP (200) once the gateway knows at least one kafka node, DOWN (503) otherwise</li>
+ *     <li>/debug/threads: pending tasks, in-flight requests and upstream connections of each {@link GatewayThread}</li>
+ *     <li>/debug/slow-requests: stage timeline of the last slow requests, see {@link SlowRequestLog}</li>
+ * </ul>
+ */
+@Slf4j
+public class AdminEndpoint implements AutoCloseable {
+
+    private static final int MAX_REQUEST_BYTES = 8192;
+    private static final long DEBUG_TIMEOUT_MS = 2_000;
+
+    private final AdminEndpointConfig config;
+    private final String bindHost;
+    private final GatewayBrokers gatewayBrokers;
+    private final PrometheusMeterRegistry prometheusRegistry;
+    private final UpStreamResource upStreamResource;
+    private final SlowRequestLog slowRequestLog;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long scrapeCacheNanos;
+    private ByteBuf cachedScrape;
+    private long scrapedAtNanos;
+    private Channel channel;
+
+    @Inject
+    public AdminEndpoint(@Named("adminEndpointConfig") AdminEndpointConfig config,
+                         HostPortConfiguration hostPortConfiguration,
+                         GatewayBrokers gatewayBrokers,
+                         PrometheusMeterRegistry prometheusRegistry,
+                         UpStreamResource upStreamResource,
+                         SlowRequestLog slowRequestLog) {
+        this.config = config;
+        this.bindHost = hostPortConfiguration.getGatewayBindHost();
+        this.gatewayBrokers = gatewayBrokers;
+        this.prometheusRegistry = prometheusRegistry;
+        this.upStreamResource = upStreamResource;
+        this.slowRequestLog = slowRequestLog;
+        this.scrapeCacheNanos = TimeUnit.MILLISECONDS.toNanos(config.getScrapeCacheMs());
+    }
+
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            channel = new ServerBootstrap()
+                    .group(gatewayBrokers.getBossGroup())
+                    .channel(gatewayBrokers.serverChannelType())
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline()
+                                    .addLast(new HttpServerCodec())
+                                    .addLast(new HttpObjectAggregator(MAX_REQUEST_BYTES))
+                                    .addLast(newHandler());
+                        }
+                    })
+                    .bind(bindHost, config.getPort())
+                    .sync()
+                    .channel();
+            log.info("Admin endpoint bound: {}", channel.localAddress());
+        } catch (Exception exception) {
+            // epoll, used with SO_REUSEPORT, reports it as a native IOException
+            if (exception instanceof BindException || exception instanceof Errors.NativeIoException) {
+                if (gatewayBrokers.isReusePort()) {
+                    // the admin port is not shared, each process sharing the gateway ports needs its own
+                    throw new GatewayStartFailException("admin port " + config.getPort() + " is in used!!! "
+                            + "Gateway processes sharing a host with SO_REUSEPORT need an admin port each, set ADMIN_ENDPOINT_PORT "
+                            + "per process or ADMIN_ENDPOINT_ENABLED=false");
+                }
+                throw new GatewayStartFailException("admin port " + config.getPort() + " is in used!!!");
+            }
+            throw new RuntimeException(exception);
+        }
+    }
+
+    @VisibleForTesting
+    SimpleChannelInboundHandler<FullHttpRequest> newHandler() {
+        return new AdminHandler();
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            channel.close().awaitUninterruptibly(5, TimeUnit.SECONDS);
+        }
+        synchronized (this) {
+            if (cachedScrape != null) {
+                cachedScrape.release();
+                cachedScrape = null;
+            }
+        }
+    }
+
+    private synchronized ByteBuf scrape() {
+        var now = System.nanoTime();
+        if (cachedScrape == null || now - scrapedAtNanos >= scrapeCacheNanos) {
+            var buf = PooledByteBufAllocator.DEFAULT.directBuffer(cachedScrape == null ? 64 * 1024 : cachedScrape.capacity());
+            try (var writer = new OutputStreamWriter(new ByteBufOutputStream(buf), StandardCharsets.UTF_8)) {
+                prometheusRegistry.scrape(writer);
+            } catch (IOException e) {
+                buf.release();
+                throw new UncheckedIOException(e);
+            }
+            if (cachedScrape != null) {
+                cachedScrape.release();
+            }
+            cachedScrape = buf;
+            scrapedAtNanos = now;
+        }
+        return cachedScrape.retainedDuplicate();
+    }
+
+    private CompletableFuture<Object> threads() {
+        var threads = new ArrayList<CompletableFuture<GatewayThread.DebugInfo>>();
+        for (var executor : upStreamResource) {
+            threads.add(((GatewayThread) executor).debugInfo().orTimeout(DEBUG_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+        return CompletableFuture.allOf(threads.toArray(CompletableFuture[]::new))
+                .thenApply(unused -> threads.stream().map(CompletableFuture::join).toList());
+    }
+
+    private class AdminHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            var keepAlive = HttpUtil.isKeepAlive(request);
+            if (!HttpMethod.GET.equals(request.method())) {
+                send(ctx, keepAlive, text(HttpResponseStatus.METHOD_NOT_ALLOWED, "only GET is supported"));
+                return;
+            }
+            switch (new QueryStringDecoder(request.uri()).path()) {
+                case "/metrics" -> {
+                    var response = new DefaultFullHttpResponse(request.protocolVersion(), HttpResponseStatus.OK, scrape());
+                    response.headers().set(HttpHeaderNames.CONTENT_TYPE, TextFormat.CONTENT_TYPE_004);
+                    send(ctx, keepAlive, response);
+                }
+                case "/health" -> {
+                    var nodes = upStreamResource.nodeCount();
+                    send(ctx, keepAlive, json(nodes > 0 ? HttpResponseStatus.OK : HttpResponseStatus.SERVICE_UNAVAILABLE,
+                            Map.of("status", nodes > 0 ? "UP" : "DOWN", "kafkaNodes", nodes)));
+                }
+                case "/debug/threads" -> threads().whenComplete((threads, ex) -> send(ctx, keepAlive, ex == null
+                        ? json(HttpResponseStatus.OK, threads)
+                        : text(HttpResponseStatus.SERVICE_UNAVAILABLE, "gateway threads did not answer: " + ex)));
+                case "/debug/slow-requests" -> send(ctx, keepAlive, json(HttpResponseStatus.OK, slowRequestLog.snapshot()));
+                default -> send(ctx, keepAlive, text(HttpResponseStatus.NOT_FOUND, "not found"));
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("Error on admin endpoint connection {}", ctx.channel().remoteAddress(), cause);
+            send(ctx, false, text(HttpResponseStatus.INTERNAL_SERVER_ERROR, String.valueOf(cause.getMessage())));
+        }
+
+        private FullHttpResponse json(HttpResponseStatus status, Object body) {
+            try {
+                var response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                        Unpooled.wrappedBuffer(objectMapper.writeValueAsBytes(body)));
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+                return response;
+            } catch (JsonProcessingException e) {
+                return text(HttpResponseStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+            }
+        }
+
+        private FullHttpResponse text(HttpResponseStatus status, String body) {
+            var response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                    Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+            return response;
+        }
+
+        private void send(ChannelHandlerContext ctx, boolean keepAlive, FullHttpResponse response) {
+            HttpUtil.setContentLength(response, response.content().readableBytes());
+            HttpUtil.setKeepAlive(response, keepAlive);
+            var written = ctx.writeAndFlush(response);
+            if (!keepAlive) {
+                written.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+    }
+}
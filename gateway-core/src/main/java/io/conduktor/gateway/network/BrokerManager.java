@@ -74,6 +74,8 @@ public abstract class BrokerManager implements AutoCloseable {
     protected Supplier<GatewayChannelInitializer> channelInitializerSupplier;
     protected Node firstNode;
     private Map<String, SslContext> expandedKeystore;
+    private volatile Runnable unknownBrokerListener = () -> {
+    };
 
     public BrokerManager(
             List<Node> nodes,
@@ -101,6 +103,7 @@ public abstract class BrokerManager implements AutoCloseable {
 
     public void setUpstreamResourceAndStartBroker(UpStreamResource upStreamResource) {
         this.upStreamResource = upStreamResource;
+        upStreamResource.pairWith(gatewayBrokers.getBossGroup());
         startBroker();
     }
 
@@ -201,6 +204,21 @@ public abstract class BrokerManager implements AutoCloseable {
 
     public abstract Map<String, Endpoint> getRealToGatewayMap(List<Node> brokers);
 
+    public UpStreamResource getUpStreamResource() {
+        return upStreamResource;
+    }
+
+    public void setUnknownBrokerListener(Runnable unknownBrokerListener) {
+        this.unknownBrokerListener = unknownBrokerListener;
+    }
+
+    /**
+     * To be called when a response mentions a broker without gateway mapping, so the topology gets refreshed.
+     */
+    public void unknownBrokerSeen() {
+        unknownBrokerListener.run();
+    }
+
     public abstract Endpoint getGatewayByReal(String host, int port);
 
     public abstract Node getRealNodeByGateway(SocketChannel socketChannel);
@@ -223,7 +241,7 @@ public abstract class BrokerManager implements AutoCloseable {
     @SuppressWarnings("resource")
     private Consumer<SocketChannel> logicHandler() {
         return gatewaySocketChannel -> {
-            var gatewayThread = (GatewayThread) upStreamResource.next();
+            var gatewayThread = upStreamResource.gatewayThreadFor(gatewaySocketChannel);
             SecurityHandler authenticator = switch (authenticationConfig.getAuthenticatorType()) {
                 case NONE, SSL -> new NoneSecurityHandler();
                 case SASL_PLAINTEXT, SASL_SSL ->
@@ -231,6 +249,7 @@ public abstract class BrokerManager implements AutoCloseable {
             };
             var gatewayChannel = new GatewayChannel(authenticator, this, gatewaySocketChannel, gatewayThread, gatewayHost);
             authenticator.setGatewayChannel(gatewayChannel);
+            gatewayThread.assign(gatewayChannel);
             channels.put(gatewayChannel, 1);
             metricsRegistryProvider.trackGatewayChannel(gatewayChannel);
             gatewaySocketChannel.pipeline().addLast(gatewayChannel);
@@ -40,8 +40,8 @@ public class BrokerManagerWithPortMapping extends BrokerManager {
 
     private final List<Integer> gatewayPorts;
 
-    private Map<String, GatewayPortAndKafkaNodePair> realHostToPortMappings = new HashMap<>();
-    private Map<Integer, Node> portToNodeMap = new HashMap<>();
+    private volatile Map<String, GatewayPortAndKafkaNodePair> realHostToPortMappings = new HashMap<>();
+    private volatile Map<Integer, Node> portToNodeMap = new HashMap<>();
 
     @Inject
     public BrokerManagerWithPortMapping(@Named("kafkaNodes") List<Node> nodes,
@@ -127,11 +127,10 @@ public class BrokerManagerWithPortMapping extends BrokerManager {
 
     @Override
     public Endpoint getGatewayByReal(String host, int port) {
-        var key = keyOf(host, port);
-        if (!realHostToPortMappings.containsKey(key)) {
+        var portAndNode = realHostToPortMappings.get(keyOf(host, port));
+        if (portAndNode == null) {
             return null;
         }
-        var portAndNode = realHostToPortMappings.get(key);
         return new Endpoint(gatewayHost, portAndNode.getGatewayPort());
     }
 
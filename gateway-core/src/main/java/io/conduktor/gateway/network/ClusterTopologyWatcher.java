@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.GaugeBackendBrokersTimerConfig;
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.service.ClientService;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.kafka.common.Node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the gateway port mappings in line with the backend cluster.
+ * It polls describeCluster in the background and applies changes on its own thread,
+ * so rewriting Metadata and DescribeCluster responses only reads the current mappings.
+ */
+@Slf4j
+public class ClusterTopologyWatcher implements AutoCloseable {
+
+    // on demand refreshes, triggered by unknown brokers in responses, are not run more often than this
+    private static final long MIN_REFRESH_INTERVAL_MS = 1000;
+
+    private final ClientService clientService;
+    private final BrokerManager brokerManager;
+    private final GaugeBackendBrokersTimerConfig timerConfig;
+    private final List<Node> initialNodes;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicInteger backendBrokers;
+    private volatile long lastRefreshMs;
+    private Set<Node> currentNodes = Set.of();
+
+    @Inject
+    public ClusterTopologyWatcher(ClientService clientService,
+                                  BrokerManager brokerManager,
+                                  @Named("gaugeBackendBrokersTimerConfig") GaugeBackendBrokersTimerConfig timerConfig,
+                                  @Named("kafkaNodes") List<Node> initialNodes,
+                                  MetricsRegistryProvider metricsRegistryProvider) {
+        this.clientService = clientService;
+        this.brokerManager = brokerManager;
+        this.timerConfig = timerConfig;
+        this.initialNodes = initialNodes;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("cluster-topology-watcher", true));
+        this.backendBrokers = metricsRegistryProvider.registry().gauge(MetricsRegistryKeys.BACKEND_BROKERS, new AtomicInteger(0));
+    }
+
+    /**
+     * Maps every broker known at startup, then keeps polling the cluster.
+     */
+    public void start() {
+        apply(initialNodes);
+        brokerManager.setUnknownBrokerListener(this::requestRefresh);
+        executor.scheduleWithFixedDelay(this::refresh, timerConfig.getInitialDelayMs(), timerConfig.getDelayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Asks for a refresh soon, e.g. because a client saw a broker the gateway does not know yet.
+     */
+    public void requestRefresh() {
+        if (System.currentTimeMillis() - lastRefreshMs < MIN_REFRESH_INTERVAL_MS) {
+            return;
+        }
+        try {
+            executor.execute(this::refresh);
+        } catch (RejectedExecutionException e) {
+            log.debug("Topology watcher is closed, refresh ignored");
+        }
+    }
+
+    private void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        lastRefreshMs = System.currentTimeMillis();
+        try {
+            clientService.describeClusterNodes().whenComplete((nodes, exception) -> {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            if (exception != null) {
+                                log.warn("Failed to refresh the backend cluster topology", exception);
+                            } else {
+                                apply(nodes);
+                            }
+                        } finally {
+                            refreshing.set(false);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    refreshing.set(false);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to refresh the backend cluster topology", e);
+            refreshing.set(false);
+        }
+    }
+
+    private void apply(Collection<Node> nodes) {
+        if (CollectionUtils.isEmpty(nodes)) {
+            return;
+        }
+        var newNodes = new HashSet<>(nodes);
+        if (newNodes.equals(currentNodes)) {
+            return;
+        }
+        log.info("Backend cluster topology changed: {}", newNodes);
+        brokerManager.getRealToGatewayMap(new ArrayList<>(newNodes));
+        currentNodes = newNodes;
+        backendBrokers.set(newNodes.size());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -18,6 +18,7 @@ package io.conduktor.gateway.network;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.conduktor.gateway.config.HostPortConfiguration;
+import io.conduktor.gateway.config.ReusePortConfig;
 import io.conduktor.gateway.exception.GatewayStartFailException;
 import io.conduktor.gateway.metrics.MetricsRegistryKeys;
 import io.conduktor.gateway.metrics.MetricsRegistryProvider;
@@ -26,6 +27,11 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
@@ -52,12 +58,19 @@ public class GatewayBrokers {
     private final Map<Integer, GatewayChannelInitializer> gatewayChannelInitializers;
     private final Gauge gauge;
     private final String gatewayBindHost;
+    @Getter
+    private final boolean reusePort;
 
     @Inject
     public GatewayBrokers(@Named("downstreamThread") Integer downstreamThread,
+                          @Named("reusePortConfig") ReusePortConfig reusePortConfig,
                           HostPortConfiguration hostPortConfiguration,
                           MetricsRegistryProvider metricsRegistryProvider) {
-        this.bossGroup = new NioEventLoopGroup(downstreamThread);
+        this.reusePort = reusePortConfig.isEnabled();
+        if (reusePort && !Epoll.isAvailable()) {
+            throw new GatewayStartFailException("SO_REUSEPORT requires the epoll transport, which is not available: " + Epoll.unavailabilityCause());
+        }
+        this.bossGroup = reusePort ? new EpollEventLoopGroup(downstreamThread) : new NioEventLoopGroup(downstreamThread);
         this.gatewayBrokers = new HashMap<>();
         this.gatewayChannelInitializers = new HashMap<>();
         this.gatewayBindHost = hostPortConfiguration.getGatewayBindHost();
@@ -85,9 +98,13 @@ public class GatewayBrokers {
     public void acquirePort(int port, GatewayChannelInitializer channelInitializer) {
         try {
             gatewayChannelInitializers.put(port, channelInitializer);
-            var channel = new ServerBootstrap()
+            var bootstrap = new ServerBootstrap()
                     .group(bossGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(serverChannelType());
+            if (reusePort) {
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+            var channel = bootstrap
                     .handler(new LoggingHandler(LogLevel.DEBUG))
                     .childHandler(channelInitializer)
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
@@ -106,6 +123,10 @@ public class GatewayBrokers {
         }
     }
 
+    Class<? extends ServerChannel> serverChannelType() {
+        return reusePort ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
     public void deactivateBrokersNotUsed(List<Integer> usedPort) {
         gatewayChannelInitializers.keySet().forEach(port -> {
             if (usedPort.contains(port)) {
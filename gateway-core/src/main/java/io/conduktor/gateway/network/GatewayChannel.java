@@ -16,6 +16,8 @@
 package io.conduktor.gateway.network;
 
 import io.conduktor.gateway.authorization.SecurityHandler;
+import io.conduktor.gateway.jfr.RequestReceivedEvent;
+import io.conduktor.gateway.jfr.ResponseFlushEvent;
 import io.conduktor.gateway.service.ClientRequest;
 import io.conduktor.gateway.thread.GatewayThread;
 import io.netty.buffer.ByteBuf;
@@ -33,14 +35,20 @@ import org.apache.kafka.common.network.Authenticator;
 import org.apache.kafka.common.network.ChannelState;
 import org.apache.kafka.common.network.DelayedResponseAuthenticationException;
 import org.apache.kafka.common.network.TransportLayer;
+import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.utils.Utils;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * connection from client to gateway
@@ -51,8 +59,11 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
     private final SocketChannel gatewaySocketChannel;
 
     private final String gatewayHost;
+    /**
+     * may change between two requests when the connection is rebalanced, only written on the channel event loop
+     */
     @Getter
-    private final GatewayThread gatewayThread;
+    private volatile GatewayThread gatewayThread;
     @Getter
     private final SecurityHandler authenticator;
     private final BrokerManager brokerManager;
@@ -68,6 +79,30 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
 
     private volatile boolean isClosed;
     private int successfulAuthentications;
+    /**
+     * when reads from this client resume after a quota throttle, only touched on the channel event loop
+     */
+    private long unmuteAtNanos;
+    private long lastRequestNanos = System.nanoTime();
+    /**
+     * in batch hand-off mode, requests are handed to the gateway thread once per read burst
+     * and responses are written back once per batch, instead of one task per message
+     */
+    private final boolean batchHandOff;
+    /**
+     * requests read since the last read completion, only touched on the channel event loop
+     */
+    private final List<ByteBuf> readBatch = new ArrayList<>();
+    private final AtomicBoolean responseFlushScheduled = new AtomicBoolean();
+    /**
+     * requests of this client waiting at normal priority on its gateway thread, a control-plane request
+     * only jumps ahead when there are none so the client still gets its responses in order
+     */
+    private final AtomicInteger normalPriorityRequests = new AtomicInteger();
+    /**
+     * requests handed to the gateway thread whatever their priority, not rebuilt yet
+     */
+    private final AtomicInteger submittedRequests = new AtomicInteger();
 
 
     public GatewayChannel(SecurityHandler authenticator,
@@ -79,6 +114,7 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
         this.brokerManager = brokerManager;
         this.gatewayHost = gatewayHost;
         this.gatewayThread = gatewayThread;
+        this.batchHandOff = brokerManager.getUpStreamResource().batchHandOff();
         this.state = ChannelState.NOT_CONNECTED;
         this.gatewaySocketChannel = gatewaySocketChannel;
         if (gatewaySocketChannel != null) {
@@ -103,10 +139,11 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
                     } catch (IOException e) {
                         log.error("Error happen when close authenticator. ", e);
                     }
+                    // set first, requests done from now on release their response themselves
+                    this.isClosed = true;
                     closeFuture.toCompletableFuture().complete(null);
                     pendingSendRequests.clear();
-                    pendingResponseRequests.clear();
-                    this.isClosed = true;
+                    releasePendingResponses();
                 });
     }
 
@@ -163,6 +200,11 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
     @Override
     public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
         var buf = (ByteBuf) msg;
+        var event = new RequestReceivedEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            describe(event, buf);
+        }
         try {
             handleIncomingRequest(buf);
         } catch (Exception e) {
@@ -179,10 +221,43 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
             }
             close();
         } finally { //avoid buffer leaks
+            event.commit();
             buf.release();
         }
     }
 
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        handOffReadBatch();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        readBatch.forEach(ByteBuf::release);
+        readBatch.clear();
+        ctx.fireChannelInactive();
+    }
+
+    private void handOffReadBatch() {
+        if (readBatch.isEmpty()) {
+            return;
+        }
+        var batch = List.copyOf(readBatch);
+        readBatch.clear();
+        gatewayThread.justSend(batch, this);
+    }
+
+    private static void describe(RequestReceivedEvent event, ByteBuf buf) {
+        event.size(buf.readableBytes());
+        // frames exchanged while authenticating have no request header
+        if (buf.readableBytes() >= 8) {
+            var apiKey = buf.getShort(buf.readerIndex());
+            event.apiKey(ApiKeys.hasId(apiKey) ? ApiKeys.forId(apiKey).name() : String.valueOf(apiKey),
+                    buf.getShort(buf.readerIndex() + 2), buf.getInt(buf.readerIndex() + 4));
+        }
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
         if (evt instanceof SniCompletionEvent sniEvent) {
@@ -218,17 +293,132 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
             ++successfulAuthentications;
             state = ChannelState.READY;
         }
+        if (batchHandOff) {
+            readBatch.add(byteBuf.retain());
+            return;
+        }
+        maybeRebalance();
         gatewayThread.justSend(byteBuf, this);
     }
 
+    /**
+     * Moves a connection back from idle to the least loaded thread, so long-lived connections
+     * do not stay on whatever thread was the least loaded when they connected.
+     */
+    private void maybeRebalance() {
+        var now = System.nanoTime();
+        var idleNanos = now - lastRequestNanos;
+        lastRequestNanos = now;
+        var upStreamResource = brokerManager.getUpStreamResource();
+        if (upStreamResource.rebalanceIdleMs() <= 0
+                || idleNanos < TimeUnit.MILLISECONDS.toNanos(upStreamResource.rebalanceIdleMs())
+                || submittedRequests.get() > 0
+                || !pendingResponseRequests.isEmpty()
+                || !pendingSendRequests.isEmpty()) {
+            return;
+        }
+        var leastLoaded = upStreamResource.nextGatewayThread();
+        if (leastLoaded != gatewayThread) {
+            log.debug("Move idle connection {} from {} to {}", socketDescription(), gatewayThread, leastLoaded);
+            var previous = gatewayThread;
+            leastLoaded.assign(this);
+            gatewayThread = leastLoaded;
+            previous.execute(() -> previous.release(this));
+        }
+    }
+
     public void sendResponse() {
+        if (isClosed) {
+            releasePendingResponses();
+            return;
+        }
+        if (batchHandOff) {
+            scheduleResponseFlush();
+            return;
+        }
         if (pendingResponseRequests.peek() != null && pendingResponseRequests.peek().isDone()) {
-            var doneRequest = pendingResponseRequests.poll();
-            gatewaySocketChannel.writeAndFlush(doneRequest.getResponse());
+            writeResponse(pendingResponseRequests.poll(), true);
             sendResponse();
         }
     }
 
+    /**
+     * Takes a single hop to the channel event loop for all responses completed until it runs, then flushes once.
+     */
+    private void scheduleResponseFlush() {
+        if (!responseFlushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        gatewaySocketChannel.eventLoop().execute(() -> {
+            responseFlushScheduled.set(false);
+            var written = false;
+            while (pendingResponseRequests.peek() != null && pendingResponseRequests.peek().isDone()) {
+                writeResponse(pendingResponseRequests.poll(), false);
+                written = true;
+            }
+            if (written) {
+                gatewaySocketChannel.flush();
+            }
+        });
+    }
+
+    private void releasePendingResponses() {
+        for (var request = pendingResponseRequests.poll(); request != null; request = pendingResponseRequests.poll()) {
+            request.releaseResponse();
+        }
+    }
+
+    private void writeResponse(ClientRequest doneRequest, boolean flush) {
+        if (!doneRequest.claimResponse()) {
+            return;
+        }
+        var event = new ResponseFlushEvent();
+        event.begin();
+        var size = doneRequest.getResponse().readableBytes();
+        if (flush) {
+            gatewaySocketChannel.writeAndFlush(doneRequest.getResponse());
+        } else {
+            gatewaySocketChannel.write(doneRequest.getResponse());
+        }
+        if (event.shouldCommit()) {
+            event.request(doneRequest);
+            event.size(size);
+            event.commit();
+        }
+        var requestEvent = doneRequest.getRequestEvent();
+        if (requestEvent != null && requestEvent.shouldCommit()) {
+            requestEvent.request(doneRequest);
+            requestEvent.size(size);
+            requestEvent.commit();
+        }
+    }
+
+
+    /**
+     * Stops reading from the client for the given time, as a broker mutes a channel over its quota.
+     */
+    public void throttle(int throttleTimeMs) {
+        if (gatewaySocketChannel == null || throttleTimeMs <= 0) {
+            return;
+        }
+        var eventLoop = gatewaySocketChannel.eventLoop();
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> throttle(throttleTimeMs));
+            return;
+        }
+        var unmuteAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(throttleTimeMs);
+        if (unmuteAt <= unmuteAtNanos) {
+            return;
+        }
+        unmuteAtNanos = unmuteAt;
+        gatewaySocketChannel.config().setAutoRead(false);
+        eventLoop.schedule(() -> {
+            if (System.nanoTime() - unmuteAtNanos >= 0) {
+                gatewaySocketChannel.config().setAutoRead(true);
+            }
+        }, throttleTimeMs, TimeUnit.MILLISECONDS);
+    }
+
 
     public ClientRequest nextRequestToSend() {
         var next = pendingSendRequests.peek();
@@ -252,10 +442,27 @@ public class GatewayChannel extends ChannelInboundHandlerAdapter implements Auto
 
 
     public void enqueueRequest(ClientRequest request) {
-        pendingResponseRequests.add(request);
+        if (request.isExpectingResponse()) {
+            pendingResponseRequests.add(request);
+        }
         pendingSendRequests.add(request);
     }
 
+    /**
+     * @return requests of this client still waiting for their response
+     */
+    public int inFlightRequests() {
+        return pendingResponseRequests.size();
+    }
+
+    public AtomicInteger normalPriorityRequests() {
+        return normalPriorityRequests;
+    }
+
+    public AtomicInteger submittedRequests() {
+        return submittedRequests;
+    }
+
     public SocketChannel getGatewaySocketChannel() {
         return gatewaySocketChannel;
     }
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.config.ConnectionConfig;
+import io.conduktor.gateway.network.handler.UpstreamSaslClientHandler;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.internal.PlatformDependent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.network.Mode;
+import org.apache.kafka.common.network.Selectable;
+import org.apache.kafka.common.security.JaasContext;
+import org.apache.kafka.common.security.auth.AuthenticateCallbackHandler;
+import org.apache.kafka.common.security.auth.Login;
+import org.apache.kafka.common.security.auth.SecurityProtocol;
+import org.apache.kafka.common.security.authenticator.DefaultLogin;
+import org.apache.kafka.common.security.authenticator.LoginManager;
+import org.apache.kafka.common.security.authenticator.SaslClientCallbackHandler;
+import org.apache.kafka.common.security.kerberos.KerberosLogin;
+import org.apache.kafka.common.security.oauthbearer.internals.OAuthBearerRefreshingLogin;
+import org.apache.kafka.common.security.oauthbearer.internals.OAuthBearerSaslClientCallbackHandler;
+import org.apache.kafka.common.security.oauthbearer.internals.OAuthBearerSaslClientProvider;
+import org.apache.kafka.common.security.scram.internals.ScramSaslClientProvider;
+import org.apache.kafka.common.security.ssl.SslFactory;
+import org.apache.kafka.common.utils.Utils;
+
+import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Talks to the kafka cluster over Netty channels: responses are framed into pooled buffers on the upstream event loop
+ * and queued for the gateway thread, which hands them to the client without copying them.
+ * TLS and SASL are configured from the same kafka properties as the {@link SelectorUpstreamIO}.
+ */
+@Slf4j
+public class NettyUpstreamIO extends UpstreamIO {
+
+    private static final ConfigDef CONFIG = new ConfigDef()
+            .define(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, ConfigDef.Type.STRING, CommonClientConfigs.DEFAULT_SECURITY_PROTOCOL,
+                    ConfigDef.Importance.MEDIUM, CommonClientConfigs.SECURITY_PROTOCOL_DOC)
+            .define(CommonClientConfigs.SEND_BUFFER_CONFIG, ConfigDef.Type.INT, 128 * 1024,
+                    ConfigDef.Range.atLeast(CommonClientConfigs.SEND_BUFFER_LOWER_BOUND), ConfigDef.Importance.MEDIUM, CommonClientConfigs.SEND_BUFFER_DOC)
+            .define(CommonClientConfigs.RECEIVE_BUFFER_CONFIG, ConfigDef.Type.INT, 32 * 1024,
+                    ConfigDef.Range.atLeast(CommonClientConfigs.RECEIVE_BUFFER_LOWER_BOUND), ConfigDef.Importance.MEDIUM, CommonClientConfigs.RECEIVE_BUFFER_DOC)
+            .define(CommonClientConfigs.CLIENT_ID_CONFIG, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW, CommonClientConfigs.CLIENT_ID_DOC)
+            .define(CommonClientConfigs.REQUEST_TIMEOUT_MS_CONFIG, ConfigDef.Type.INT, 30_000,
+                    ConfigDef.Range.atLeast(0), ConfigDef.Importance.MEDIUM, CommonClientConfigs.REQUEST_TIMEOUT_MS_DOC)
+            .withClientSslSupport()
+            .withClientSaslSupport();
+    private static final AttributeKey<String> STATE = AttributeKey.valueOf("upstreamState");
+    private static final String CONNECTING = "CONNECTING";
+    private static final String AUTHENTICATING = "AUTHENTICATING";
+    private static final String READY = "READY";
+
+    static {
+        ScramSaslClientProvider.initialize();
+        OAuthBearerSaslClientProvider.initialize();
+    }
+
+    private final Supplier<EventLoop> eventLoopSupplier;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+    private final String clientId;
+    /**
+     * how long the broker may take to authenticate a connection, request.timeout.ms as for any other request
+     */
+    private final int authenticationTimeoutMs;
+    private final SslFactory sslFactory;
+    private final String saslMechanism;
+    private final String saslServiceName;
+    private final LoginManager loginManager;
+    private final AuthenticateCallbackHandler saslCallbackHandler;
+    /**
+     * written on the upstream event loop, read on the gateway thread
+     */
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Queue<Receive> receives = PlatformDependent.newMpscQueue();
+    private final Queue<String> disconnects = PlatformDependent.newMpscQueue();
+    private final Semaphore wakeups = new Semaphore(0);
+    private final List<Receive> completedReceives = new ArrayList<>();
+    private final List<String> disconnected = new ArrayList<>();
+    private EventLoop eventLoop;
+
+    public NettyUpstreamIO(Properties selectorProps,
+                           ConnectionConfig connectionConfig,
+                           Supplier<EventLoop> eventLoopSupplier) {
+        super(connectionConfig);
+        this.eventLoopSupplier = eventLoopSupplier;
+        var config = new AbstractConfig(CONFIG, Utils.propsToMap(selectorProps), false);
+        this.sendBufferSize = config.getInt(CommonClientConfigs.SEND_BUFFER_CONFIG);
+        this.receiveBufferSize = config.getInt(CommonClientConfigs.RECEIVE_BUFFER_CONFIG);
+        this.clientId = config.getString(CommonClientConfigs.CLIENT_ID_CONFIG);
+        this.authenticationTimeoutMs = config.getInt(CommonClientConfigs.REQUEST_TIMEOUT_MS_CONFIG);
+        var securityProtocol = SecurityProtocol.forName(config.getString(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG));
+        if (securityProtocol == SecurityProtocol.SSL || securityProtocol == SecurityProtocol.SASL_SSL) {
+            this.sslFactory = new SslFactory(Mode.CLIENT);
+            this.sslFactory.configure(config.values());
+        } else {
+            this.sslFactory = null;
+        }
+        if (securityProtocol == SecurityProtocol.SASL_PLAINTEXT || securityProtocol == SecurityProtocol.SASL_SSL) {
+            this.saslMechanism = config.getString(SaslConfigs.SASL_MECHANISM);
+            var serviceName = config.getString(SaslConfigs.SASL_KERBEROS_SERVICE_NAME);
+            var jaasContext = JaasContext.loadClientContext(config.values());
+            try {
+                this.loginManager = LoginManager.acquireLoginManager(jaasContext, saslMechanism, defaultLoginClass(saslMechanism), config.values());
+            } catch (LoginException e) {
+                throw new KafkaException("Failed to login for SASL mechanism " + saslMechanism, e);
+            }
+            this.saslServiceName = serviceName != null ? serviceName : loginManager.serviceName();
+            this.saslCallbackHandler = saslCallbackHandler(config, saslMechanism);
+            this.saslCallbackHandler.configure(config.values(), saslMechanism, jaasContext.configurationEntries());
+        } else {
+            this.saslMechanism = null;
+            this.saslServiceName = null;
+            this.loginManager = null;
+            this.saslCallbackHandler = null;
+        }
+    }
+
+    @Override
+    public void poll(long timeout) {
+        if (receives.isEmpty() && disconnects.isEmpty()) {
+            try {
+                if (wakeups.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public Collection<Receive> completedReceives() {
+        completedReceives.clear();
+        Receive receive;
+        while ((receive = receives.poll()) != null) {
+            completedReceives.add(receive);
+        }
+        return completedReceives;
+    }
+
+    @Override
+    public void wakeup() {
+        wakeups.release();
+    }
+
+    @Override
+    public Collection<String> disconnected() {
+        disconnected.clear();
+        String connectionId;
+        while ((connectionId = disconnects.poll()) != null) {
+            disconnected.add(connectionId);
+        }
+        return disconnected;
+    }
+
+    @Override
+    protected boolean isReady(String connectionId) {
+        return isReady(channels.get(connectionId));
+    }
+
+    /**
+     * the channel is looked up once, its close listener removes it from another thread
+     */
+    @Override
+    protected boolean isAbleToSend(String connectionId) {
+        var channel = channels.get(connectionId);
+        return isReady(channel) && channel.isWritable();
+    }
+
+    private static boolean isReady(Channel channel) {
+        return channel != null && channel.isActive() && READY.equals(channel.attr(STATE).get());
+    }
+
+    @Override
+    protected void connect(UpStreamConnection upStreamConnection) {
+        var connectionId = upStreamConnection.getConnectionId();
+        if (channels.containsKey(connectionId)) {
+            // still connecting or authenticating
+            return;
+        }
+        var node = upStreamConnection.getNode();
+        var eventLoop = eventLoop();
+        var bootstrap = new Bootstrap()
+                .group(eventLoop)
+                .channel(eventLoop.parent() instanceof EpollEventLoopGroup ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .attr(STATE, CONNECTING)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        initUpstreamChannel(channel, connectionId, node.host(), node.port());
+                    }
+                });
+        if (sendBufferSize != Selectable.USE_DEFAULT_BUFFER_SIZE) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, sendBufferSize);
+        }
+        if (receiveBufferSize != Selectable.USE_DEFAULT_BUFFER_SIZE) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+        log.debug("Initiating connection to host {} and port {} with id {}", node.host(), node.port(), connectionId);
+        var connectFuture = bootstrap.connect(node.host(), node.port());
+        var channel = connectFuture.channel();
+        channels.put(connectionId, channel);
+        channel.closeFuture().addListener(future -> {
+            if (channels.remove(connectionId, channel)) {
+                disconnects.offer(connectionId);
+                wakeup();
+            }
+        });
+        connectFuture.addListener(future -> {
+            if (!future.isSuccess()) {
+                log.warn("Cannot connect to kafka server {}:{} with id {}", node.host(), node.port(), connectionId, future.cause());
+                channel.close();
+            }
+        });
+    }
+
+    @Override
+    protected boolean send(String connectionId, ByteBuffer payload) {
+        var channel = channels.get(connectionId);
+        if (channel == null || !channel.isActive()) {
+            // closed since isAbleToSend, its disconnection is reported by the next poll
+            return false;
+        }
+        channel.writeAndFlush(Unpooled.wrappedBuffer(payload)).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                // closing fails the requests in flight on it, as the selector does on a failed send
+                log.warn("Cannot send to the connection {}, closing it", connectionId, future.cause());
+                future.channel().close();
+            }
+        });
+        return true;
+    }
+
+    @Override
+    protected void close(String connectionId) {
+        var channel = channels.get(connectionId);
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Override
+    protected String state(String connectionId) {
+        var channel = channels.get(connectionId);
+        return channel == null ? DISCONNECTED : channel.attr(STATE).get();
+    }
+
+    @Override
+    protected int connectedCount() {
+        var connected = 0;
+        for (var channel : channels.values()) {
+            if (channel.isActive()) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        Receive receive;
+        while ((receive = receives.poll()) != null) {
+            receive.payload().release();
+        }
+        if (sslFactory != null) {
+            Utils.closeQuietly(sslFactory, "upstream ssl factory");
+        }
+        if (saslCallbackHandler != null) {
+            saslCallbackHandler.close();
+            loginManager.release();
+        }
+    }
+
+    private EventLoop eventLoop() {
+        if (eventLoop == null) {
+            eventLoop = eventLoopSupplier.get();
+        }
+        return eventLoop;
+    }
+
+    private void initUpstreamChannel(Channel channel, String connectionId, String host, int port) {
+        var pipeline = channel.pipeline();
+        if (sslFactory != null) {
+            pipeline.addLast(new SslHandler(sslFactory.createSslEngine(host, port)));
+        }
+        if (connectionMaxIdleMS > 0) {
+            pipeline.addLast(new IdleStateHandler(0, 0, connectionMaxIdleMS, TimeUnit.MILLISECONDS));
+        }
+        // strips the size prefix, as NetworkReceive#payload does
+        pipeline.addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, Integer.BYTES, 0, Integer.BYTES));
+        if (saslMechanism != null) {
+            pipeline.addLast(new UpstreamSaslClientHandler(saslMechanism, loginManager.subject(), saslCallbackHandler,
+                    saslServiceName, host, clientId, sslFactory != null, authenticationTimeoutMs));
+        }
+        pipeline.addLast(new ResponseHandler(connectionId));
+    }
+
+    private static Class<? extends Login> defaultLoginClass(String mechanism) {
+        return switch (mechanism) {
+            case SaslConfigs.GSSAPI_MECHANISM -> KerberosLogin.class;
+            case "OAUTHBEARER" -> OAuthBearerRefreshingLogin.class;
+            default -> DefaultLogin.class;
+        };
+    }
+
+    private static AuthenticateCallbackHandler saslCallbackHandler(AbstractConfig config, String mechanism) {
+        var callbackHandlerClass = config.getClass(SaslConfigs.SASL_CLIENT_CALLBACK_HANDLER_CLASS);
+        if (callbackHandlerClass != null) {
+            return (AuthenticateCallbackHandler) Utils.newInstance(callbackHandlerClass);
+        }
+        return "OAUTHBEARER".equals(mechanism) ? new OAuthBearerSaslClientCallbackHandler() : new SaslClientCallbackHandler();
+    }
+
+    /**
+     * last handler of an upstream channel, tracks when it can be written to and queues its responses for the gateway thread
+     */
+    private class ResponseHandler extends ChannelInboundHandlerAdapter {
+
+        private final String connectionId;
+
+        private ResponseHandler(String connectionId) {
+            this.connectionId = connectionId;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            if (sslFactory == null && saslMechanism == null) {
+                ready(ctx.channel());
+            } else {
+                ctx.channel().attr(STATE).set(AUTHENTICATING);
+            }
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt == UpstreamSaslClientHandler.State.COMPLETE) {
+                ready(ctx.channel());
+            } else if (evt == UpstreamSaslClientHandler.State.REAUTHENTICATE) {
+                // no new request until the broker accepted the credentials again
+                ctx.channel().attr(STATE).set(AUTHENTICATING);
+            } else if (evt instanceof SslHandshakeCompletionEvent handshake) {
+                if (!handshake.isSuccess()) {
+                    log.warn("TLS handshake with {} failed", ctx.channel().remoteAddress(), handshake.cause());
+                    ctx.close();
+                } else if (saslMechanism == null) {
+                    ready(ctx.channel());
+                }
+            } else if (evt instanceof IdleStateEvent) {
+                log.debug("Close the connection {} idle for more than {} ms", connectionId, connectionMaxIdleMS);
+                ctx.close();
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            receives.offer(new Receive(connectionId, (ByteBuf) msg));
+            wakeup();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("Error on the connection {} to {}, closing it", connectionId, ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+
+        private void ready(Channel channel) {
+            channel.attr(STATE).set(READY);
+            // a request may be waiting for this connection
+            wakeup();
+        }
+    }
+
+}
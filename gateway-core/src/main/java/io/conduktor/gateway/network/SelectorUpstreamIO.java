@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.config.ConnectionConfig;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.ClientUtils;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.metrics.Metrics;
+import org.apache.kafka.common.network.ByteBufferSend;
+import org.apache.kafka.common.network.ChannelBuilder;
+import org.apache.kafka.common.network.NetworkSend;
+import org.apache.kafka.common.network.Selector;
+import org.apache.kafka.common.utils.LogContext;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.common.utils.Utils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * a wrapper class, use {@link Selector} under the hood for IO operation with kafka cluster.
+ */
+@Slf4j
+public class SelectorUpstreamIO extends UpstreamIO {
+
+    private final Selector selector;
+    private final int maxSendSize;
+    private final int maxReceiveSize;
+    private final AbstractConfig selectorConfig;
+
+
+    public SelectorUpstreamIO(Properties selectorProps,
+                              ConnectionConfig connectionConfig) {
+        super(connectionConfig);
+        //Just to satisfied producer config, it means nothing.
+        selectorProps.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        selectorProps.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        selectorConfig = new ProducerConfig(Utils.propsToMap(selectorProps));
+        maxSendSize = selectorConfig.getInt(ProducerConfig.SEND_BUFFER_CONFIG);
+        maxReceiveSize = selectorConfig.getInt(ProducerConfig.RECEIVE_BUFFER_CONFIG);
+        this.selector = newKafkaSelector();
+    }
+
+
+    @Override
+    public void poll(long timeout) throws IOException {
+        selector.poll(timeout);
+    }
+
+    @Override
+    public Collection<Receive> completedReceives() {
+        var receives = new ArrayList<Receive>(selector.completedReceives().size());
+        for (var receive : selector.completedReceives()) {
+            receives.add(new Receive(receive.source(), Unpooled.wrappedBuffer(receive.payload())));
+        }
+        return receives;
+    }
+
+    @Override
+    public void wakeup() {
+        selector.wakeup();
+    }
+
+    @Override
+    public Collection<String> disconnected() {
+        var disconnected = this.selector.disconnected();
+        if (disconnected.size() > 0) {
+            log.debug("disconnected");
+        }
+        return this.selector.disconnected().keySet();
+    }
+
+    @Override
+    protected boolean isReady(String connectionId) {
+        return selector.isChannelReady(connectionId);
+    }
+
+    @Override
+    protected boolean isAbleToSend(String connectionId) {
+        return selector.isChannelReady(connectionId) && selector.channel(connectionId) != null && !selector.channel(connectionId).hasSend();
+    }
+
+    @Override
+    protected boolean send(String connectionId, ByteBuffer payload) {
+        // only closed by the gateway thread itself, so still open after isAbleToSend
+        selector.send(new NetworkSend(connectionId, new ByteBufferSend(payload)));
+        return true;
+    }
+
+    @Override
+    protected void close(String connectionId) {
+        selector.close(connectionId);
+    }
+
+    @Override
+    protected String state(String connectionId) {
+        var channel = selector.channel(connectionId);
+        return channel == null ? DISCONNECTED : channel.state().state().name();
+    }
+
+    @Override
+    protected int connectedCount() {
+        return selector.connected().size();
+    }
+
+    Selector newKafkaSelector() {
+        var time = Time.SYSTEM;
+        LogContext logContext = new LogContext();
+        ChannelBuilder channelBuilder = ClientUtils.createChannelBuilder(selectorConfig, time, logContext);
+        return new Selector(connectionMaxIdleMS,
+                new Metrics(), time, "producer", channelBuilder, logContext);
+    }
+
+    @Override
+    protected void connect(UpStreamConnection upStreamConnection) throws IOException {
+        var node = upStreamConnection.getNode();
+        var host = node.host();
+        var port = node.port();
+        var connectionId = upStreamConnection.getConnectionId();
+        try {
+            log.debug("Initiating connection to host {} and port {} with id {}", host, port, connectionId);
+            selector.connect(connectionId,
+                    new InetSocketAddress(host, port),
+                    maxSendSize,
+                    maxReceiveSize);
+        } catch (IllegalStateException illegalStateException) {
+            log.warn("connection id {} already connect", connectionId, illegalStateException);
+        }
+    }
+
+}
@@ -15,13 +15,19 @@
 
 package io.conduktor.gateway.network;
 
+import io.conduktor.gateway.config.ConnectionLane;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.Node;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Getter
@@ -30,11 +36,28 @@ public class UpStreamConnection {
 
     private final String connectionId;
     private final Node node;
+    private final ConnectionLane lane;
     private final ConcurrentHashMap<GatewayChannel, Integer> associatedChannels = new ConcurrentHashMap<>();
+    /**
+     * gateway correlation ids of the requests sent on this connection and not answered yet,
+     * only tracked with failover enabled and only touched by the owning thread
+     */
+    @ToString.Exclude
+    private final Set<Integer> inFlight = new LinkedHashSet<>();
+    private long reconnectBackoffMs;
+    private long reconnectAtNanos = -1;
+    private boolean probing;
+    private int probeCorrelationId;
+    private long probeSentNanos;
+    /**
+     * exponentially weighted like TCP's smoothed round trip time, 0 until the first probe came back
+     */
+    private long smoothedRttNanos;
 
-    public UpStreamConnection(String connectionId, Node node) {
+    public UpStreamConnection(String connectionId, Node node, ConnectionLane lane) {
         this.connectionId = connectionId;
         this.node = node;
+        this.lane = lane;
     }
 
     public void trackDownStreamConnection(GatewayChannel gatewayChannel) {
@@ -42,6 +65,80 @@ public class UpStreamConnection {
         gatewayChannel.closeFuture().thenAccept(rs -> associatedChannels.remove(gatewayChannel));
     }
 
+    public void untrackDownStreamConnection(GatewayChannel gatewayChannel) {
+        associatedChannels.remove(gatewayChannel);
+    }
+
+    public void trackInFlight(int gatewayCorrelationId) {
+        inFlight.add(gatewayCorrelationId);
+    }
+
+    public void completeInFlight(int gatewayCorrelationId) {
+        inFlight.remove(gatewayCorrelationId);
+    }
+
+    /**
+     * @return the requests which will never get their response on this connection
+     */
+    public List<Integer> drainInFlight() {
+        var drained = new ArrayList<>(inFlight);
+        inFlight.clear();
+        return drained;
+    }
+
+    /**
+     * the backoff doubles on each disconnect until {@link #reconnected()}
+     */
+    public void scheduleReconnect(long nowNanos, long baseBackoffMs, long maxBackoffMs) {
+        reconnectBackoffMs = reconnectBackoffMs == 0 ? baseBackoffMs : Math.min(reconnectBackoffMs * 2, maxBackoffMs);
+        reconnectAtNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(reconnectBackoffMs);
+    }
+
+    /**
+     * @return whether a reconnect was scheduled and is due, it is then no longer scheduled
+     */
+    public boolean takeDueReconnect(long nowNanos) {
+        if (reconnectAtNanos < 0 || nowNanos - reconnectAtNanos < 0) {
+            return false;
+        }
+        reconnectAtNanos = -1;
+        return true;
+    }
+
+    public boolean isReconnectScheduled() {
+        return reconnectAtNanos >= 0;
+    }
+
+    public void probeSent(int correlationId, long nowNanos) {
+        probing = true;
+        probeCorrelationId = correlationId;
+        probeSentNanos = nowNanos;
+    }
+
+    /**
+     * @return whether a probe is waiting for its response and was sent less than {@code timeoutNanos} ago
+     */
+    public boolean isProbing(long nowNanos, long timeoutNanos) {
+        return probing && nowNanos - probeSentNanos < timeoutNanos;
+    }
+
+    /**
+     * @return the round trip time of the probe, or -1 when the response is not the one of the probe
+     */
+    public long probeCompleted(int correlationId, long nowNanos) {
+        if (!probing || probeCorrelationId != correlationId) {
+            return -1;
+        }
+        probing = false;
+        var rtt = nowNanos - probeSentNanos;
+        smoothedRttNanos = smoothedRttNanos == 0 ? rtt : smoothedRttNanos + (rtt - smoothedRttNanos) / 8;
+        return rtt;
+    }
+
+    public void reconnected() {
+        reconnectBackoffMs = 0;
+    }
+
     public void disconnect() {
         associatedChannels.forEach((c, v) -> {
             try {
@@ -16,143 +16,345 @@
 package io.conduktor.gateway.network;
 
 import io.conduktor.gateway.config.ConnectionConfig;
+import io.conduktor.gateway.config.ConnectionLane;
+import io.conduktor.gateway.config.ConnectionLanesConfig;
+import io.conduktor.gateway.config.UpstreamFailoverConfig;
+import io.conduktor.gateway.config.UpstreamWarmPoolConfig;
+import io.conduktor.gateway.jfr.UpstreamSendEvent;
 import io.conduktor.gateway.metrics.MetricsRegistryKeys;
 import io.conduktor.gateway.service.ClientRequest;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoop;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.clients.ClientUtils;
-import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.Node;
-import org.apache.kafka.common.config.AbstractConfig;
-import org.apache.kafka.common.metrics.Metrics;
-import org.apache.kafka.common.network.ChannelBuilder;
-import org.apache.kafka.common.network.NetworkReceive;
-import org.apache.kafka.common.network.NetworkSend;
-import org.apache.kafka.common.network.Selector;
-import org.apache.kafka.common.utils.LogContext;
-import org.apache.kafka.common.utils.Time;
-import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.ApiVersionsRequest;
+import org.apache.kafka.common.requests.RequestHeader;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 import static io.conduktor.gateway.common.NodeUtils.keyOf;
 
 /**
- * a wrapper class, use {@link Selector} under the hood for IO operation with kafka cluster.
+ * pool of connections to the kafka cluster owned by one {@link io.conduktor.gateway.thread.GatewayThread},
+ * the IO itself is left to the {@link io.conduktor.gateway.config.UpstreamTransport} implementations.
  */
 @Slf4j
-public class UpstreamIO implements Closeable {
+public abstract class UpstreamIO implements Closeable {
+
+    private static final ConnectionLane[] LANES = ConnectionLane.values();
+    protected static final String DISCONNECTED = "DISCONNECTED";
+    private static final String PROBE_CLIENT_ID = "gateway-probe";
 
     private final int numOfConnection;
-    private final long connectionMaxIdleMS;
+    private final ConnectionLanesConfig lanesConfig;
+    private final UpstreamFailoverConfig failoverConfig;
+    private final UpstreamWarmPoolConfig warmPoolConfig;
+    /**
+     * set when a node is registered, so its connections are opened right away
+     */
+    private volatile boolean probeNow;
+    private long nextProbeNanos;
+    private volatile MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Timer> rttTimers = new ConcurrentHashMap<>();
+    protected final long connectionMaxIdleMS;
 
     private final AtomicInteger lastConnectionId = new AtomicInteger(0);
-    private final Selector selector;
     /**
-     * use for round-robin
+     * use for round-robin, per lane
+     */
+    private final ConcurrentHashMap<String, AtomicInteger[]> nodeWithConnectionAssignCounter = new ConcurrentHashMap<>();
+    /**
+     * connections of each node indexed by lane ordinal, null for the lanes not in use
      */
-    private final ConcurrentHashMap<String, AtomicInteger> nodeWithConnectionAssignCounter = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, UpStreamConnection[]> nodeWithConnections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UpStreamConnection[][]> nodeWithConnections = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, UpStreamConnection> upstreamConnectionMap = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<GatewayChannel, UpStreamConnection> downstreamChannel = new ConcurrentHashMap<>();
-    private final int maxSendSize;
-    private final int maxReceiveSize;
-    private final AbstractConfig selectorConfig;
-
-
-    public UpstreamIO(Properties selectorProps,
-                      ConnectionConfig connectionConfig) {
-        //Just to satisfied producer config, it means nothing.
-        selectorProps.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        selectorProps.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        selectorConfig = new ProducerConfig(Utils.propsToMap(selectorProps));
-        maxSendSize = selectorConfig.getInt(ProducerConfig.SEND_BUFFER_CONFIG);
-        maxReceiveSize = selectorConfig.getInt(ProducerConfig.RECEIVE_BUFFER_CONFIG);
+    /**
+     * connection of each client per lane ordinal, assigned on the first request of the lane
+     */
+    private final ConcurrentHashMap<GatewayChannel, UpStreamConnection[]> downstreamChannel = new ConcurrentHashMap<>();
+
+    protected UpstreamIO(ConnectionConfig connectionConfig) {
         this.numOfConnection = connectionConfig.getNumOfConnection();
+        this.lanesConfig = connectionConfig.getLanes();
+        this.failoverConfig = connectionConfig.getFailover();
+        this.warmPoolConfig = connectionConfig.getWarmPool();
         this.connectionMaxIdleMS = connectionConfig.getMaxIdleTimeMs();
-        this.selector = newKafkaSelector();
     }
 
-
-    public void poll(long timeout) throws IOException {
-        selector.poll(timeout);
+    /**
+     * @param upstreamEventLoop where the Netty transport runs its channels, only asked for on the first connection
+     */
+    public static UpstreamIO create(Properties selectorProps,
+                                    ConnectionConfig connectionConfig,
+                                    Supplier<EventLoop> upstreamEventLoop) {
+        return switch (connectionConfig.getTransport()) {
+            case SELECTOR -> new SelectorUpstreamIO(selectorProps, connectionConfig);
+            case NETTY -> new NettyUpstreamIO(selectorProps, connectionConfig, upstreamEventLoop);
+        };
     }
 
-    public Collection<NetworkReceive> completedReceives() {
-        return selector.completedReceives();
-    }
+    /**
+     * waits for responses or disconnections, up to the timeout or until {@link #wakeup()}
+     */
+    public abstract void poll(long timeout) throws IOException;
 
-    public void wakeup() {
-        selector.wakeup();
-    }
+    /**
+     * @return responses received by the last {@link #poll(long)}, each payload is released by the caller
+     */
+    public abstract Collection<Receive> completedReceives();
 
-    public Collection<String> disconnected() {
-        var disconnected = this.selector.disconnected();
-        if (disconnected.size() > 0) {
-            log.debug("disconnected");
-        }
-        return this.selector.disconnected().keySet();
-    }
+    public abstract void wakeup();
 
-    public void send(NetworkSend networkSend) {
-        selector.send(networkSend);
-    }
+    /**
+     * @return ids of the connections closed by the last {@link #poll(long)}
+     */
+    public abstract Collection<String> disconnected();
+
+    protected abstract boolean isReady(String connectionId);
+
+    protected abstract boolean isAbleToSend(String connectionId);
+
+    protected abstract void connect(UpStreamConnection upStreamConnection) throws IOException;
+
+    /**
+     * @param payload size prefixed request
+     * @return false when the connection closed since {@link #isAbleToSend(String)}, nothing is sent then
+     */
+    protected abstract boolean send(String connectionId, ByteBuffer payload);
+
+    protected abstract void close(String connectionId);
+
+    protected abstract String state(String connectionId);
+
+    protected abstract int connectedCount();
 
     /**
      * just use round-robin for now if need to assign
      *
      * @param gatewayChannel == client <-> gateway connection
+     * @param apiKey         picks the lane of the connection
      * @return a connection to kafka server
      */
-    public UpStreamConnection getAssociatedConnection(GatewayChannel gatewayChannel) {
-        return downstreamChannel.computeIfAbsent(gatewayChannel, c -> {
+    public UpStreamConnection getAssociatedConnection(GatewayChannel gatewayChannel, ApiKeys apiKey) {
+        var lane = laneOf(apiKey);
+        var lanes = downstreamChannel.computeIfAbsent(gatewayChannel, c -> {
+            gatewayChannel.closeFuture().thenAccept(rs -> downstreamChannel.remove(gatewayChannel));
+            return new UpStreamConnection[LANES.length];
+        });
+        var connection = lanes[lane.ordinal()];
+        if (connection == null) {
             var node = gatewayChannel.getNode();
-            var counter = nodeWithConnectionAssignCounter.get(keyOf(node));
-            var pool = nodeWithConnections.get(keyOf(node));
-            var connection = pool[counter.getAndIncrement() & pool.length - 1];
+            var counter = nodeWithConnectionAssignCounter.get(keyOf(node))[lane.ordinal()];
+            var pool = nodeWithConnections.get(keyOf(node))[lane.ordinal()];
+            var slot = counter.getAndIncrement();
+            connection = pool[Math.floorMod(slot, pool.length)];
+            if (warmPoolConfig.isEnabled() && warmPoolConfig.isRttAwareSelection() && pool.length > 1) {
+                connection = lessLoaded(connection, pool[Math.floorMod(slot + 1, pool.length)]);
+            }
             connection.trackDownStreamConnection(gatewayChannel);
-            gatewayChannel.closeFuture().thenAccept(rs -> downstreamChannel.remove(gatewayChannel));
+            lanes[lane.ordinal()] = connection;
             connectIfNeeded(connection);
-            return connection;
-        });
+        }
+        return connection;
+    }
+
+    /**
+     * ready connections first, then the lowest round trip time times clients, only clients while a RTT is unknown
+     */
+    private UpStreamConnection lessLoaded(UpStreamConnection first, UpStreamConnection second) {
+        var firstReady = isReady(first.getConnectionId());
+        if (firstReady != isReady(second.getConnectionId())) {
+            return firstReady ? first : second;
+        }
+        var firstClients = first.getAssociatedChannels().size() + 1L;
+        var secondClients = second.getAssociatedChannels().size() + 1L;
+        if (first.getSmoothedRttNanos() == 0 || second.getSmoothedRttNanos() == 0) {
+            return secondClients < firstClients ? second : first;
+        }
+        return second.getSmoothedRttNanos() * secondClients < first.getSmoothedRttNanos() * firstClients ? second : first;
+    }
+
+    private ConnectionLane laneOf(ApiKeys apiKey) {
+        return lanesConfig.isEnabled() ? ConnectionLane.of(apiKey) : ConnectionLane.SHARED;
     }
 
     public void registerMetrics(MeterRegistry meterRegistry, Tags threadTags) {
-        meterRegistry.gauge(MetricsRegistryKeys.UPSTREAMIO_CONNECTIONS_UPSTREAM_CONNECTED, threadTags, selector.connected().size());
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge(MetricsRegistryKeys.UPSTREAMIO_CONNECTIONS_UPSTREAM_CONNECTED, threadTags, connectedCount());
         meterRegistry.gaugeMapSize(MetricsRegistryKeys.UPSTREAMIO_CONNECTIONS_DOWNSTREAM, threadTags, downstreamChannel);
         meterRegistry.gaugeMapSize(MetricsRegistryKeys.UPSTREAMIO_NODES, threadTags, nodeWithConnections);
     }
 
 
+    /**
+     * must be called from the thread polling this IO, like any other use of the transport
+     */
+    public List<ConnectionState> connectionStates() {
+        var states = new ArrayList<ConnectionState>();
+        nodeWithConnections.forEach((node, lanes) -> forEachConnection(lanes, connection ->
+                states.add(new ConnectionState(connection.getConnectionId(), node, connection.getLane().name(),
+                        state(connection.getConnectionId()),
+                        connection.getAssociatedChannels().size()))));
+        return states;
+    }
+
+    public void release(GatewayChannel gatewayChannel) {
+        var lanes = downstreamChannel.remove(gatewayChannel);
+        if (lanes != null) {
+            for (var connection : lanes) {
+                if (connection != null) {
+                    connection.untrackDownStreamConnection(gatewayChannel);
+                }
+            }
+        }
+    }
+
+    public int inFlightRequests() {
+        var inFlight = 0;
+        for (var gatewayChannel : downstreamChannel.keySet()) {
+            inFlight += gatewayChannel.inFlightRequests();
+        }
+        return inFlight;
+    }
+
     public void registerNode(Node node) {
         nodeWithConnections.computeIfAbsent(keyOf(node), (k) -> {
-            var connectionQueue = new UpStreamConnection[numOfConnection];
-            for (int i = 0; i < numOfConnection; i++) {
-                var connectionId = String.valueOf(lastConnectionId.getAndIncrement());
-                var connection = new UpStreamConnection(connectionId, node);
-                connectionQueue[i] = connection;
-                upstreamConnectionMap.put(connectionId, connection);
+            var lanes = new UpStreamConnection[LANES.length][];
+            var counters = new AtomicInteger[LANES.length];
+            for (var lane : LANES) {
+                if (lanesConfig.isEnabled() == (lane == ConnectionLane.SHARED)) {
+                    continue;
+                }
+                var size = lane == ConnectionLane.SHARED ? numOfConnection : lanesConfig.size(lane);
+                var connectionQueue = new UpStreamConnection[size];
+                for (int i = 0; i < size; i++) {
+                    var connectionId = String.valueOf(lastConnectionId.getAndIncrement());
+                    var connection = new UpStreamConnection(connectionId, node, lane);
+                    connectionQueue[i] = connection;
+                    upstreamConnectionMap.put(connectionId, connection);
+                }
+                lanes[lane.ordinal()] = connectionQueue;
+                counters[lane.ordinal()] = new AtomicInteger(0);
             }
-            nodeWithConnectionAssignCounter.put(keyOf(node), new AtomicInteger(0));
-            return connectionQueue;
+            nodeWithConnectionAssignCounter.put(keyOf(node), counters);
+            return lanes;
         });
+        if (warmPoolConfig.isEnabled()) {
+            probeNow = true;
+            wakeup();
+        }
+    }
+
+    /**
+     * @return how long the owning thread may wait for IO before the next probe round
+     */
+    public long nextProbeDelayMs() {
+        if (!warmPoolConfig.isEnabled()) {
+            return Long.MAX_VALUE;
+        }
+        if (probeNow) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(nextProbeNanos - System.nanoTime()));
+    }
+
+    /**
+     * Opens the pool connections which are not, and sends an ApiVersions request on the idle ready ones.
+     * Must be called from the thread polling this IO.
+     *
+     * @param correlationIds gateway correlation ids, so probes never collide with client requests
+     */
+    public void probeIfDue(IntSupplier correlationIds) {
+        if (!warmPoolConfig.isEnabled()) {
+            return;
+        }
+        var now = System.nanoTime();
+        if (!probeNow && now - nextProbeNanos < 0) {
+            return;
+        }
+        probeNow = false;
+        var interval = TimeUnit.MILLISECONDS.toNanos(warmPoolConfig.getProbeIntervalMs());
+        nextProbeNanos = now + interval;
+        nodeWithConnections.forEach((node, lanes) -> forEachConnection(lanes, connection -> probe(connection, now, interval, correlationIds)));
+    }
+
+    private void probe(UpStreamConnection connection, long now, long interval, IntSupplier correlationIds) {
+        var connectionId = connection.getConnectionId();
+        if (DISCONNECTED.equals(state(connectionId))) {
+            // failed over connections keep their backoff
+            if (!connection.isReconnectScheduled() || connection.takeDueReconnect(now)) {
+                connectIfNeeded(connection);
+            }
+            return;
+        }
+        // an unanswered probe older than the interval is given up
+        if (connection.isProbing(now, interval) || !isAbleToSend(connectionId)) {
+            return;
+        }
+        var correlationId = correlationIds.getAsInt();
+        if (send(connectionId, apiVersionsProbe(correlationId))) {
+            connection.probeSent(correlationId, now);
+        }
+    }
+
+    private static ByteBuffer apiVersionsProbe(int correlationId) {
+        var version = ApiKeys.API_VERSIONS.oldestVersion();
+        var header = new RequestHeader(ApiKeys.API_VERSIONS, version, PROBE_CLIENT_ID, correlationId);
+        var payload = new ApiVersionsRequest.Builder().build(version).serializeWithHeader(header);
+        var sizePrefixed = ByteBuffer.allocate(Integer.BYTES + payload.remaining());
+        sizePrefixed.putInt(payload.remaining()).put(payload).flip();
+        return sizePrefixed;
+    }
+
+    /**
+     * @return whether the response is the one of a probe, its round trip time is then recorded
+     */
+    public boolean completeProbe(String connectionId, int correlationId) {
+        if (!warmPoolConfig.isEnabled()) {
+            return false;
+        }
+        var connection = upstreamConnectionMap.get(connectionId);
+        if (connection == null) {
+            return false;
+        }
+        var rtt = connection.probeCompleted(correlationId, System.nanoTime());
+        if (rtt < 0) {
+            return false;
+        }
+        var registry = meterRegistry;
+        if (registry != null) {
+            rttTimers.computeIfAbsent(keyOf(connection.getNode()), broker -> Timer.builder(MetricsRegistryKeys.UPSTREAMIO_RTT)
+                            .tags("broker", broker)
+                            .publishPercentileHistogram()
+                            .register(registry))
+                    .record(rtt, TimeUnit.NANOSECONDS);
+        }
+        return true;
     }
 
     public void deregisterKafkaNode(Node node) {
-        var connections = nodeWithConnections.remove(keyOf(node));
+        var lanes = nodeWithConnections.remove(keyOf(node));
         nodeWithConnectionAssignCounter.remove(keyOf(node));
-        for (var connection : connections) {
+        forEachConnection(lanes, connection -> {
             connection.disconnect();
             upstreamConnectionMap.remove(connection.getConnectionId());
-        }
+        });
     }
 
     public void disconnect(String connectionId) {
@@ -161,70 +363,122 @@ public class UpstreamIO implements Closeable {
         }
     }
 
+    public boolean isFailoverEnabled() {
+        return failoverConfig.isEnabled();
+    }
+
+    /**
+     * Keeps the clients of a dropped connection, it is re-established after a backoff by the next request to send on it.
+     *
+     * @return gateway correlation ids of the requests which were in flight on the connection
+     */
+    public List<Integer> failOver(String connectionId) {
+        var connection = upstreamConnectionMap.get(connectionId);
+        if (connection == null) {
+            return List.of();
+        }
+        connection.scheduleReconnect(System.nanoTime(), failoverConfig.getReconnectBackoffMs(), failoverConfig.getReconnectBackoffMaxMs());
+        return connection.drainInFlight();
+    }
+
+    /**
+     * a response arrived, the request no longer needs to be failed over
+     */
+    public void completed(String connectionId, int gatewayCorrelationId) {
+        if (!failoverConfig.isEnabled()) {
+            return;
+        }
+        var connection = upstreamConnectionMap.get(connectionId);
+        if (connection != null) {
+            connection.completeInFlight(gatewayCorrelationId);
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        nodeWithConnections.forEach((keyOfNode, connections) -> {
-            for (var connection : connections) {
-                selector.close(connection.getConnectionId());
-                connection.disconnect();
+        nodeWithConnections.forEach((keyOfNode, lanes) -> forEachConnection(lanes, connection -> {
+            close(connection.getConnectionId());
+            connection.disconnect();
+        }));
+    }
+
+    private static void forEachConnection(UpStreamConnection[][] lanes, Consumer<UpStreamConnection> action) {
+        for (var connections : lanes) {
+            if (connections != null) {
+                for (var connection : connections) {
+                    action.accept(connection);
+                }
             }
-        });
+        }
     }
 
 
+    /**
+     * @return whether the connection failed over and waits for its reconnect backoff, nothing can be sent on it until then
+     */
+    public boolean isBackingOff(String connectionId) {
+        var connection = upstreamConnectionMap.get(connectionId);
+        return failoverConfig.isEnabled() && connection != null && connection.isReconnectScheduled();
+    }
+
     public boolean trySend(ClientRequest request) {
-        var ableToSend = new AtomicBoolean();
-        downstreamChannel.computeIfPresent(request.getGatewayChannel(), (unused, upStreamConnection) -> {
-            if (isNodeAbleToSend(upStreamConnection.getConnectionId())) {
-                selector.send(request.getToSendKafka());
-                ableToSend.set(true);
-                return upStreamConnection;
+        if (!downstreamChannel.containsKey(request.getGatewayChannel())) {
+            return false;
+        }
+        var connectionId = request.getConnectionId();
+        var connection = upstreamConnectionMap.get(connectionId);
+        if (connection != null && connection.takeDueReconnect(System.nanoTime())) {
+            connectIfNeeded(connection);
+        }
+        if (!isAbleToSend(connectionId)) {
+            return false;
+        }
+        var event = new UpstreamSendEvent();
+        event.begin();
+        var size = request.getToSendKafka().remaining();
+        if (!send(connectionId, request.getToSendKafka())) {
+            return false;
+        }
+        request.markSentToKafka();
+        if (failoverConfig.isEnabled() && connection != null) {
+            connection.reconnected();
+            if (request.isExpectingResponse()) {
+                connection.trackInFlight(request.getGatewayCorrelationId());
             }
-            ableToSend.set(false);
-            return upStreamConnection;
-        });
-        return ableToSend.get();
+        }
+        if (event.shouldCommit()) {
+            event.request(request);
+            event.connectionId(connectionId);
+            event.size(size);
+            event.commit();
+        }
+        return true;
     }
 
-
-    Selector newKafkaSelector() {
-        var time = Time.SYSTEM;
-        LogContext logContext = new LogContext();
-        ChannelBuilder channelBuilder = ClientUtils.createChannelBuilder(selectorConfig, time, logContext);
-        return new Selector(connectionMaxIdleMS,
-                new Metrics(), time, "producer", channelBuilder, logContext);
+    public record ConnectionState(String connectionId, String node, String lane, String state, int downstreamChannels) {
     }
 
-    private boolean isNodeAbleToSend(String connectionId) {
-        return selector.isChannelReady(connectionId) && selector.channel(connectionId) != null && !selector.channel(connectionId).hasSend();
+    /**
+     * a response read from a broker, without its size prefix
+     */
+    public record Receive(String source, ByteBuf payload) {
     }
 
     private void connectIfNeeded(UpStreamConnection upStreamConnection) {
-        if (selector.isChannelReady(upStreamConnection.getConnectionId())) {
+        if (isReady(upStreamConnection.getConnectionId())) {
             return;
         }
         try {
             connect(upStreamConnection);
         } catch (IOException e) {
             log.warn("error happen when try to connect to kafka server: ", e);
+            if (failoverConfig.isEnabled()) {
+                upStreamConnection.scheduleReconnect(System.nanoTime(), failoverConfig.getReconnectBackoffMs(),
+                        failoverConfig.getReconnectBackoffMaxMs());
+                return;
+            }
             upStreamConnection.disconnect();
         }
     }
 
-    private void connect(UpStreamConnection upStreamConnection) throws IOException {
-        var node = upStreamConnection.getNode();
-        var host = node.host();
-        var port = node.port();
-        var connectionId = upStreamConnection.getConnectionId();
-        try {
-            log.debug("Initiating connection to host {} and port {} with id {}", host, port, connectionId);
-            selector.connect(connectionId,
-                    new InetSocketAddress(host, port),
-                    maxSendSize,
-                    maxReceiveSize);
-        } catch (IllegalStateException illegalStateException) {
-            log.warn("connection id {} already connect", connectionId, illegalStateException);
-        }
-    }
-
 }
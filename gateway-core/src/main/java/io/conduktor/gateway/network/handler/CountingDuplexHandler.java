@@ -15,28 +15,70 @@
 
 package io.conduktor.gateway.network.handler;
 
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
 import io.conduktor.gateway.metrics.MetricsRegistryProvider;
-import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
 public class CountingDuplexHandler extends ChannelDuplexHandler {
 
-    private final Counter upstreamCounter;
-    private final Counter downstreamCounter;
+    private final MeterRegistry registry;
+    private final LongAdder upstreamBytes;
+    private final LongAdder downstreamBytes;
+    private final boolean channelMetricsEnabled;
+    private List<Meter> channelMeters = List.of();
+    // only written by the channel's event loop, read on scrape
+    private volatile long bytesRead;
+    private volatile long messagesRead;
+    private volatile long bytesWritten;
+    private volatile long messagesWritten;
 
     public CountingDuplexHandler(MetricsRegistryProvider metricsRegistryProvider) {
-        this.upstreamCounter = metricsRegistryProvider.getUpstreamCounter();
-        this.downstreamCounter = metricsRegistryProvider.getDownstreamCounter();
+        this.registry = metricsRegistryProvider.registry();
+        this.upstreamBytes = metricsRegistryProvider.getUpstreamBytes();
+        this.downstreamBytes = metricsRegistryProvider.getDownstreamBytes();
+        this.channelMetricsEnabled = metricsRegistryProvider.isChannelMetricsEnabled();
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (channelMetricsEnabled) {
+            var channel = String.valueOf(ctx.channel().remoteAddress());
+            channelMeters = List.of(
+                    channelCounter(MetricsRegistryKeys.CHANNEL_BYTES, channel, "upstream", handler -> handler.bytesRead),
+                    channelCounter(MetricsRegistryKeys.CHANNEL_BYTES, channel, "downstream", handler -> handler.bytesWritten),
+                    channelCounter(MetricsRegistryKeys.CHANNEL_MESSAGES, channel, "upstream", handler -> handler.messagesRead),
+                    channelCounter(MetricsRegistryKeys.CHANNEL_MESSAGES, channel, "downstream", handler -> handler.messagesWritten));
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        channelMeters.forEach(registry::remove);
+        channelMeters = List.of();
+        super.channelInactive(ctx);
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof ByteBuf) {
             var len = ((ByteBuf) msg).readableBytes();
-            upstreamCounter.increment(len);
+            upstreamBytes.add(len);
+            if (channelMetricsEnabled) {
+                bytesRead += len;
+                messagesRead++;
+            }
         }
         super.channelRead(ctx, msg);
     }
@@ -45,9 +87,19 @@ public class CountingDuplexHandler extends ChannelDuplexHandler {
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (msg instanceof ByteBuf) {
             var len = ((ByteBuf) msg).readableBytes();
-            downstreamCounter.increment(len);
+            downstreamBytes.add(len);
+            if (channelMetricsEnabled) {
+                bytesWritten += len;
+                messagesWritten++;
+            }
         }
         super.write(ctx, msg, promise);
     }
 
+    private Meter channelCounter(String name, String channel, String direction, ToDoubleFunction<CountingDuplexHandler> count) {
+        return FunctionCounter.builder(name, this, count)
+                .tags(Tags.of("channel", channel, "direction", direction))
+                .register(registry);
+    }
+
 }
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SaslAuthenticationException;
+import org.apache.kafka.common.message.SaslAuthenticateRequestData;
+import org.apache.kafka.common.message.SaslHandshakeRequestData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.AbstractRequest;
+import org.apache.kafka.common.requests.AbstractResponse;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.apache.kafka.common.requests.SaslAuthenticateRequest;
+import org.apache.kafka.common.requests.SaslAuthenticateResponse;
+import org.apache.kafka.common.requests.SaslHandshakeRequest;
+import org.apache.kafka.common.requests.SaslHandshakeResponse;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.sasl.Sasl;
+import javax.security.sasl.SaslClient;
+import javax.security.sasl.SaslException;
+import java.nio.ByteBuffer;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticates a connection to a broker with SaslHandshake then SaslAuthenticate round trips, as the Kafka client does.
+ * Fires {@link State#COMPLETE} once the broker accepted the credentials, frames only reach the next handlers from then on.
+ * The connection is closed when the broker does not answer within the authentication timeout.
+ * <p>
+ * When the broker limits the session (connections.max.reauth.ms), the handler stays in the pipeline and authenticates
+ * again at 85 to 95% of the session lifetime, as the Kafka client does: it fires {@link State#REAUTHENTICATE}, holds
+ * back the frames written meanwhile and lets the responses to earlier requests through, then fires
+ * {@link State#COMPLETE} again. Otherwise it leaves the pipeline.
+ */
+@Slf4j
+public class UpstreamSaslClientHandler extends ChannelDuplexHandler {
+
+    private static final short HANDSHAKE_VERSION = 1;
+    private static final short AUTHENTICATE_VERSION = 1;
+
+    public enum State {
+        NOT_STARTED, HANDSHAKE, AUTHENTICATE, COMPLETE, REAUTHENTICATE
+    }
+
+    private final String mechanism;
+    private final Subject subject;
+    private final CallbackHandler callbackHandler;
+    private final String serviceName;
+    private final String host;
+    private final String clientId;
+    private final boolean waitForTls;
+    private final long authenticationTimeoutMs;
+    /**
+     * frames written while authenticating again, sent once the broker accepted the credentials
+     */
+    private final Queue<PendingWrite> pendingWrites = new ArrayDeque<>();
+    private State state = State.NOT_STARTED;
+    private SaslClient saslClient;
+    private RequestHeader pendingHeader;
+    /**
+     * negative, the gateway numbers its own requests from 1 up, so responses to both never get mixed up
+     */
+    private int correlationId = -1;
+    private ScheduledFuture<?> timeout;
+    private ScheduledFuture<?> reauthentication;
+
+    public UpstreamSaslClientHandler(String mechanism,
+                                     Subject subject,
+                                     CallbackHandler callbackHandler,
+                                     String serviceName,
+                                     String host,
+                                     String clientId,
+                                     boolean waitForTls,
+                                     long authenticationTimeoutMs) {
+        this.mechanism = mechanism;
+        this.subject = subject;
+        this.callbackHandler = callbackHandler;
+        this.serviceName = serviceName;
+        this.host = host;
+        this.clientId = clientId;
+        this.waitForTls = waitForTls;
+        this.authenticationTimeoutMs = authenticationTimeoutMs;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (!waitForTls) {
+            start(ctx);
+        }
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (waitForTls && evt instanceof SslHandshakeCompletionEvent handshake && handshake.isSuccess()) {
+            start(ctx);
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        var frame = (ByteBuf) msg;
+        if (state == State.COMPLETE || !isPendingResponse(frame)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        try {
+            onResponse(ctx, frame.nioBuffer());
+        } catch (Exception e) {
+            log.warn("SASL {} authentication with {} failed", mechanism, ctx.channel().remoteAddress(), e);
+            ctx.close();
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (state == State.COMPLETE) {
+            ctx.write(msg, promise);
+            return;
+        }
+        pendingWrites.add(new PendingWrite(msg, promise));
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (state == State.COMPLETE) {
+            ctx.flush();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        dispose();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        cancel(timeout);
+        cancel(reauthentication);
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.poll()) != null) {
+            ReferenceCountUtil.release(pendingWrite.msg());
+            pendingWrite.promise().tryFailure(new SaslAuthenticationException("Connection closed while authenticating"));
+        }
+    }
+
+    private void start(ChannelHandlerContext ctx) {
+        timeout = ctx.executor().schedule(() -> {
+            if (state != State.COMPLETE) {
+                log.warn("SASL {} authentication with {} timed out after {} ms", mechanism, ctx.channel().remoteAddress(), authenticationTimeoutMs);
+                ctx.close();
+            }
+        }, authenticationTimeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            saslClient = doAs(() -> Sasl.createSaslClient(new String[]{mechanism}, null, serviceName, host, Map.of(), callbackHandler));
+            if (saslClient == null) {
+                throw new SaslAuthenticationException("No SASL client available for mechanism " + mechanism);
+            }
+            state = State.HANDSHAKE;
+            send(ctx, new SaslHandshakeRequest.Builder(new SaslHandshakeRequestData().setMechanism(mechanism)).build(HANDSHAKE_VERSION));
+        } catch (Exception e) {
+            log.warn("Cannot start SASL {} authentication with {}", mechanism, ctx.channel().remoteAddress(), e);
+            ctx.close();
+        }
+    }
+
+    private void onResponse(ChannelHandlerContext ctx, ByteBuffer frame) throws Exception {
+        var response = AbstractResponse.parseResponse(frame, pendingHeader);
+        switch (state) {
+            case HANDSHAKE -> {
+                var error = Errors.forCode(((SaslHandshakeResponse) response).data().errorCode());
+                if (error != Errors.NONE) {
+                    throw error.exception("SASL handshake for mechanism " + mechanism + " rejected");
+                }
+                state = State.AUTHENTICATE;
+                sendToken(ctx, saslClient.hasInitialResponse() ? evaluate(new byte[0]) : new byte[0]);
+            }
+            case AUTHENTICATE -> {
+                var data = ((SaslAuthenticateResponse) response).data();
+                if (data.errorCode() != Errors.NONE.code()) {
+                    throw new SaslAuthenticationException(data.errorMessage());
+                }
+                if (saslClient.isComplete()) {
+                    complete(ctx, data.sessionLifetimeMs());
+                    return;
+                }
+                var token = evaluate(data.authBytes());
+                if (saslClient.isComplete() && (token == null || token.length == 0)) {
+                    complete(ctx, data.sessionLifetimeMs());
+                    return;
+                }
+                sendToken(ctx, token);
+            }
+            default -> throw new IllegalStateException("Unexpected response while " + state);
+        }
+    }
+
+    private void complete(ChannelHandlerContext ctx, long sessionLifetimeMs) {
+        log.debug("SASL {} authentication with {} complete", mechanism, ctx.channel().remoteAddress());
+        state = State.COMPLETE;
+        cancel(timeout);
+        dispose();
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.poll()) != null) {
+            ctx.write(pendingWrite.msg(), pendingWrite.promise());
+        }
+        ctx.flush();
+        ctx.fireUserEventTriggered(State.COMPLETE);
+        if (sessionLifetimeMs <= 0) {
+            ctx.pipeline().remove(this);
+            return;
+        }
+        var reauthenticateInMs = (long) (sessionLifetimeMs * ThreadLocalRandom.current().nextDouble(0.85, 0.95));
+        reauthentication = ctx.executor().schedule(() -> reauthenticate(ctx), reauthenticateInMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void reauthenticate(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        log.debug("SASL {} session with {} is about to expire, authenticating again", mechanism, ctx.channel().remoteAddress());
+        // set first so the frames written from now on are held back
+        state = State.NOT_STARTED;
+        ctx.fireUserEventTriggered(State.REAUTHENTICATE);
+        start(ctx);
+    }
+
+    /**
+     * the frame starts with the correlation id of its response header
+     */
+    private boolean isPendingResponse(ByteBuf frame) {
+        return pendingHeader != null
+                && frame.readableBytes() >= Integer.BYTES
+                && frame.getInt(frame.readerIndex()) == pendingHeader.correlationId();
+    }
+
+    private static void cancel(ScheduledFuture<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private void sendToken(ChannelHandlerContext ctx, byte[] token) {
+        var data = new SaslAuthenticateRequestData().setAuthBytes(token == null ? new byte[0] : token);
+        send(ctx, new SaslAuthenticateRequest.Builder(data).build(AUTHENTICATE_VERSION));
+    }
+
+    private void send(ChannelHandlerContext ctx, AbstractRequest request) {
+        pendingHeader = new RequestHeader(request.apiKey(), request.version(), clientId, correlationId--);
+        var payload = request.serializeWithHeader(pendingHeader);
+        var frame = ctx.alloc().buffer(Integer.BYTES + payload.remaining())
+                .writeInt(payload.remaining())
+                .writeBytes(payload);
+        ctx.writeAndFlush(frame);
+    }
+
+    private byte[] evaluate(byte[] challenge) throws SaslException {
+        return doAs(() -> saslClient.evaluateChallenge(challenge));
+    }
+
+    @SuppressWarnings("removal")
+    private <T> T doAs(PrivilegedExceptionAction<T> action) throws SaslException {
+        try {
+            // GSSAPI reads the kerberos ticket from the subject, the other mechanisms ignore it
+            return Subject.doAs(subject, action);
+        } catch (PrivilegedActionException e) {
+            throw new SaslException("SASL " + mechanism + " client failed", e.getCause());
+        }
+    }
+
+    private void dispose() {
+        if (saslClient == null) {
+            return;
+        }
+        try {
+            saslClient.dispose();
+        } catch (SaslException e) {
+            log.debug("Error when disposing the SASL client", e);
+        }
+        saslClient = null;
+    }
+
+    private record PendingWrite(Object msg, ChannelPromise promise) {
+    }
+}
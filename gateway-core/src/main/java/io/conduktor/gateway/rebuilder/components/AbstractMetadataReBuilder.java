@@ -24,8 +24,6 @@ import org.apache.kafka.common.requests.MetadataResponse;
 
 import java.util.concurrent.CompletionStage;
 
-import static io.conduktor.gateway.common.NodeUtils.keyOf;
-
 @Slf4j
 public abstract class AbstractMetadataReBuilder extends AbstractReBuilder<MetadataRequest, MetadataResponse> {
 
@@ -41,13 +39,14 @@ public abstract class AbstractMetadataReBuilder extends AbstractReBuilder<Metada
 
 
     protected void rebuildHost(MetadataResponse response) {
-        var mappings = rebuilderTools.brokerManager().getRealToGatewayMap(response.data().brokers());
+        var brokerManager = rebuilderTools.brokerManager();
         var brokerIter = response.data().brokers().iterator();
         while (brokerIter.hasNext()) {
             var b = brokerIter.next();
-            var mapping = mappings.get(keyOf(b.host(), b.port()));
+            var mapping = brokerManager.getGatewayByReal(b.host(), b.port());
             if (mapping == null) {
                 log.error("Unknown broker node seen in {}: {}:{}", ApiKeys.METADATA, b.host(), b.port());
+                brokerManager.unknownBrokerSeen();
                 // we remove this response from the list sent back
                 brokerIter.remove();
             } else {
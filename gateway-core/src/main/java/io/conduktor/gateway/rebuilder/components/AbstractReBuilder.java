@@ -43,7 +43,7 @@ public abstract class AbstractReBuilder<REQUEST extends AbstractRequest, RESPONS
 
     protected final ApiKeys apiKeys;
     protected final RebuilderTools rebuilderTools;
-    private final InterceptorOrchestration interceptorOrchestration;
+    protected final InterceptorOrchestration interceptorOrchestration;
 
     public AbstractReBuilder(ApiKeys apiKeys, RebuilderTools rebuilderTools) {
         this.apiKeys = apiKeys;
@@ -62,6 +62,7 @@ public abstract class AbstractReBuilder<REQUEST extends AbstractRequest, RESPONS
         var clientRequestHeader = clientRequest.getClientRequestHeader();
         var gatewayRequestHeader = clientRequest.getGatewayRequestHeader();
         var request = SerdeService.fromBuffer(clientRequestHeader.apiKey(), clientRequestHeader.apiVersion(), kafkaPayload);
+        clientRequest.setParsedRequest(request);
         log.debug("Received {} request from client id: {} with correlation id {}: {}",
                 clientRequestHeader.apiKey().name,
                 clientRequestHeader.clientId(),
@@ -118,6 +119,10 @@ public abstract class AbstractReBuilder<REQUEST extends AbstractRequest, RESPONS
                     var responseHeaderVersion = clientRequestHeader.apiKey().responseHeaderVersion(clientRequestHeader.apiVersion());
                     var responseHeader = ResponseHeader.parse(buf.nioBuffer(), responseHeaderVersion);
                     responseHeader.data().setCorrelationId(clientRequest.getClientCorrelationId());
+                    var throttleTimeMs = clientRequest.getThrottleTimeMs();
+                    if (throttleTimeMs > 0 && interceptedResponse instanceof AbstractResponse quotaResponse) {
+                        quotaResponse.maybeSetThrottleTimeMs(Math.max(quotaResponse.throttleTimeMs(), throttleTimeMs));
+                    }
                     return wrappedBuffer(serialize(
                             responseHeader.data(),
                             responseHeader.headerVersion(),
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.rebuilder.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.conduktor.gateway.config.CachedApiKeyConfig;
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
+import io.conduktor.gateway.model.User;
+import io.conduktor.gateway.rebuilder.ReBuilder;
+import io.conduktor.gateway.service.ClientRequest;
+import io.conduktor.gateway.service.QuotaManager;
+import io.conduktor.gateway.service.SerdeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.ListOffsetsRequest;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static io.conduktor.gateway.common.Constants.SIZE_BYTES;
+
+/**
+ * Caches the responses of a read-only api key in front of its rebuilder.
+ * Requests are keyed by broker, api version, user and body, so the correlation id and client id do not matter,
+ * while brokers answering only for themselves, like for LIST_GROUPS, keep their own entries.
+ * Identical requests arriving while one is upstream wait for its response instead of sending their own.
+ */
+@Slf4j
+public class CachingReBuilder implements ReBuilder {
+
+    private final ApiKeys apiKey;
+    private final ReBuilder delegate;
+    private final long singleFlightTimeoutMs;
+    private final QuotaManager quotaManager;
+    private final Cache<CacheKey, byte[]> responses;
+    private final ConcurrentMap<CacheKey, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter shared;
+
+    public CachingReBuilder(ReBuilder delegate,
+                            CachedApiKeyConfig cachedApiKeyConfig,
+                            long singleFlightTimeoutMs,
+                            QuotaManager quotaManager,
+                            MeterRegistry meterRegistry) {
+        this.apiKey = cachedApiKeyConfig.getApiKey();
+        this.delegate = delegate;
+        this.singleFlightTimeoutMs = singleFlightTimeoutMs;
+        this.quotaManager = quotaManager;
+        this.responses = Caffeine.newBuilder()
+                .expireAfterWrite(cachedApiKeyConfig.getTtlMs(), TimeUnit.MILLISECONDS)
+                .maximumSize(cachedApiKeyConfig.getMaxEntries())
+                .build();
+        this.hits = meterRegistry.counter(MetricsRegistryKeys.RESPONSE_CACHE, Tags.of("api_key", apiKey.name, "result", "hit"));
+        this.misses = meterRegistry.counter(MetricsRegistryKeys.RESPONSE_CACHE, Tags.of("api_key", apiKey.name, "result", "miss"));
+        this.shared = meterRegistry.counter(MetricsRegistryKeys.RESPONSE_CACHE, Tags.of("api_key", apiKey.name, "result", "shared"));
+    }
+
+    @Override
+    public ApiKeys apiKeys() {
+        return apiKey;
+    }
+
+    @Override
+    public CompletionStage<ByteBuffer> rebuildRequest(ByteBuffer kafkaPayload, ClientRequest clientRequest) {
+        if (!isCacheable(clientRequest, kafkaPayload)) {
+            return delegate.rebuildRequest(kafkaPayload, clientRequest);
+        }
+        var key = cacheKey(clientRequest, kafkaPayload);
+        var cached = responses.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(respond(cached, clientRequest, kafkaPayload.remaining()));
+        }
+        var flight = new CompletableFuture<byte[]>();
+        var inFlightResponse = inFlight.putIfAbsent(key, flight);
+        if (inFlightResponse == null) {
+            misses.increment();
+            clientRequest.setInflightCacheInfo(new Flight(key, flight));
+            flight.orTimeout(singleFlightTimeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((response, ex) -> inFlight.remove(key, flight));
+            // answered without a response to share: error, local answer, upstream disconnection
+            clientRequest.whenDone(() -> flight.completeExceptionally(
+                    new IllegalStateException(apiKey.name + " request id " + clientRequest.getClientCorrelationId() + " got no response to share")));
+            try {
+                return delegate.rebuildRequest(kafkaPayload, clientRequest)
+                        .whenComplete((rebuilt, ex) -> {
+                            if (ex != null) {
+                                flight.completeExceptionally(ex);
+                            }
+                        });
+            } catch (RuntimeException e) {
+                flight.completeExceptionally(e);
+                throw e;
+            }
+        }
+        shared.increment();
+        log.debug("Waiting on the {} request in flight for request id {}", apiKey.name, clientRequest.getClientCorrelationId());
+        var requestBytes = kafkaPayload.remaining();
+        // the payload is released once this returns, the key keeps a copy of the body to fall back on
+        return inFlightResponse
+                .thenApply(response -> respond(response, clientRequest, requestBytes))
+                .exceptionallyCompose(ex -> delegate.rebuildRequest(key.body().duplicate(), clientRequest));
+    }
+
+    @Override
+    public CompletionStage<ByteBuf> rebuildResponse(ByteBuf payload, ClientRequest clientRequest) {
+        if (!(clientRequest.getInflightCacheInfo() instanceof Flight flight)) {
+            return delegate.rebuildResponse(payload, clientRequest);
+        }
+        return delegate.rebuildResponse(payload, clientRequest)
+                .whenComplete((rebuilt, ex) -> {
+                    if (ex != null) {
+                        flight.response().completeExceptionally(ex);
+                        return;
+                    }
+                    // everything after the correlation id, which differs per client
+                    var response = new byte[rebuilt.readableBytes() - SIZE_BYTES];
+                    rebuilt.getBytes(rebuilt.readerIndex() + SIZE_BYTES, response);
+                    if (isSuccess(rebuilt, clientRequest)) {
+                        responses.put(flight.key(), response);
+                    }
+                    flight.response().complete(response);
+                });
+    }
+
+    private boolean isCacheable(ClientRequest clientRequest, ByteBuffer kafkaPayload) {
+        if (apiKey != ApiKeys.LIST_OFFSETS) {
+            return true;
+        }
+        // only the latest offsets are polled, lookups by time are one off
+        try {
+            var request = (ListOffsetsRequest) SerdeService.fromBuffer(apiKey, clientRequest.getClientRequestHeader().apiVersion(), kafkaPayload.duplicate());
+            return request.data().topics().stream()
+                    .flatMap(topic -> topic.partitions().stream())
+                    .allMatch(partition -> partition.timestamp() == ListOffsetsRequest.LATEST_TIMESTAMP);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean isSuccess(ByteBuf rebuilt, ClientRequest clientRequest) {
+        try {
+            var response = SerdeService.fromBuffer(rebuilt.nioBuffer(), clientRequest.getClientRequestHeader());
+            return response.errorCounts().keySet().stream().allMatch(error -> error == Errors.NONE);
+        } catch (RuntimeException e) {
+            log.debug("Not caching {} response id {}", apiKey.name, clientRequest.getClientCorrelationId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * answers from the cache, still accounted for quotas as if the request had gone upstream
+     */
+    private ByteBuffer respond(byte[] response, ClientRequest clientRequest, int requestBytes) {
+        quotaManager.recordRequest(clientRequest, requestBytes);
+        quotaManager.recordResponse(clientRequest, SIZE_BYTES + response.length);
+        clientRequest.readyToSendBackClient();
+        var buffer = ByteBuffer.allocate(SIZE_BYTES + response.length);
+        buffer.putInt(clientRequest.getClientCorrelationId());
+        buffer.put(response);
+        buffer.rewind();
+        return buffer;
+    }
+
+    private static CacheKey cacheKey(ClientRequest clientRequest, ByteBuffer kafkaPayload) {
+        var body = ByteBuffer.allocate(kafkaPayload.remaining());
+        body.put(kafkaPayload.duplicate());
+        body.rewind();
+        var gatewayChannel = clientRequest.getGatewayChannel();
+        var user = gatewayChannel == null
+                ? null
+                : gatewayChannel.getAuthenticator().getUser().map(User::getUsername).orElse(null);
+        return new CacheKey(clientRequest.getNodeId(), clientRequest.getClientRequestHeader().apiVersion(), user, body);
+    }
+
+    /**
+     * a {@link ByteBuffer} hashes and compares by its remaining bytes
+     */
+    private record CacheKey(Integer nodeId, short apiVersion, String user, ByteBuffer body) {
+    }
+
+    private record Flight(CacheKey key, CompletableFuture<byte[]> response) {
+    }
+
+}
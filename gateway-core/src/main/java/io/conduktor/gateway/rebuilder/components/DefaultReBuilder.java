@@ -15,8 +15,31 @@
 
 package io.conduktor.gateway.rebuilder.components;
 
+import io.conduktor.gateway.common.KafkaFrameScanner;
+import io.conduktor.gateway.interceptor.DirectionType;
+import io.conduktor.gateway.service.ClientRequest;
 import io.conduktor.gateway.service.RebuilderTools;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.MessageUtil;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static io.conduktor.gateway.common.Constants.SIZE_BYTES;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+
+/**
+ * Rebuilds api keys without a dedicated rebuilder.
+ * Messages no interceptor would run for are forwarded as raw bytes, only the correlation id gets swapped.
+ * Produce requests and fetch responses are accounted against the client byte quotas here.
+ */
+@Slf4j
 @SuppressWarnings("rawtypes")
 public class DefaultReBuilder extends AbstractReBuilder {
 
@@ -24,4 +47,65 @@ public class DefaultReBuilder extends AbstractReBuilder {
         super(null, rebuilderTools);
     }
 
+    @Override
+    public CompletionStage<ByteBuffer> rebuildRequest(ByteBuffer kafkaPayload, ClientRequest clientRequest) {
+        var clientRequestHeader = clientRequest.getClientRequestHeader();
+        var apiKey = clientRequestHeader.apiKey();
+        var requestFrame = KafkaFrameScanner.scanRequest(apiKey, clientRequestHeader.apiVersion(), kafkaPayload);
+        clientRequest.setRequestFrame(requestFrame);
+        rebuilderTools.quotaManager().recordRequest(clientRequest, kafkaPayload.remaining());
+        if (interceptorOrchestration.hasInterceptors(apiKey, DirectionType.REQUEST, topicsOf(apiKey, requestFrame))) {
+            return super.rebuildRequest(kafkaPayload, clientRequest);
+        }
+        log.debug("Forwarding {} request id {} without decoding", apiKey.name, clientRequest.getClientCorrelationId());
+        var gatewayRequestHeader = clientRequest.getGatewayRequestHeader();
+        var header = MessageUtil.toByteBuffer(gatewayRequestHeader.data(), gatewayRequestHeader.headerVersion());
+        var size = header.remaining() + kafkaPayload.remaining();
+        var requestBuffer = ByteBuffer.allocate(SIZE_BYTES + size);
+        requestBuffer.putInt(size);
+        requestBuffer.put(header);
+        requestBuffer.put(kafkaPayload.duplicate());
+        requestBuffer.rewind();
+        return CompletableFuture.completedFuture(requestBuffer);
+    }
+
+    @Override
+    public CompletionStage<ByteBuf> rebuildResponse(ByteBuf buf, ClientRequest clientRequest) {
+        buf.resetReaderIndex();
+        var clientRequestHeader = clientRequest.getClientRequestHeader();
+        var apiKey = clientRequestHeader.apiKey();
+        rebuilderTools.quotaManager().recordResponse(clientRequest, buf.readableBytes());
+        // a throttled response is decoded to carry throttle_time_ms
+        if (clientRequest.getThrottleTimeMs() > 0
+                || interceptorOrchestration.hasInterceptors(apiKey, DirectionType.RESPONSE, responseTopicsOf(buf, clientRequest))) {
+            return super.rebuildResponse(buf, clientRequest);
+        }
+        log.debug("Forwarding {} response id {} without decoding", apiKey.name, clientRequest.getClientCorrelationId());
+        // the correlation id always leads the response header, the rest goes back to the client as received
+        var correlationId = Unpooled.buffer(SIZE_BYTES).writeInt(clientRequest.getClientCorrelationId());
+        return CompletableFuture.completedFuture(wrappedBuffer(correlationId, buf.retainedSlice(SIZE_BYTES, buf.writerIndex() - SIZE_BYTES)));
+    }
+
+    private Collection<String> responseTopicsOf(ByteBuf buf, ClientRequest clientRequest) {
+        var clientRequestHeader = clientRequest.getClientRequestHeader();
+        var apiKey = clientRequestHeader.apiKey();
+        if (apiKey != ApiKeys.FETCH) {
+            // a produce response only carries the topics of its request
+            return topicsOf(apiKey, clientRequest.getRequestFrame());
+        }
+        var body = buf.nioBuffer();
+        KafkaFrameScanner.skipResponseHeader(body, apiKey.responseHeaderVersion(clientRequestHeader.apiVersion()));
+        return topicsOf(apiKey, KafkaFrameScanner.scanResponse(apiKey, clientRequestHeader.apiVersion(), body));
+    }
+
+    /**
+     * @return the scanned topics, null when a Produce or Fetch frame could not be scanned
+     */
+    private static Collection<String> topicsOf(ApiKeys apiKey, KafkaFrameScanner.ScannedFrame frame) {
+        if (frame != null) {
+            return frame.partitionsByTopic().keySet();
+        }
+        return apiKey == ApiKeys.PRODUCE || apiKey == ApiKeys.FETCH ? null : List.of();
+    }
+
 }
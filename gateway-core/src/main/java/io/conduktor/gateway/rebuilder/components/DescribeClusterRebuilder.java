@@ -25,8 +25,6 @@ import org.apache.kafka.common.requests.DescribeClusterResponse;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
-import static io.conduktor.gateway.common.NodeUtils.keyOf;
-
 @Slf4j
 public class DescribeClusterRebuilder extends AbstractReBuilder<DescribeClusterRequest, DescribeClusterResponse>{
 
@@ -37,13 +35,14 @@ public class DescribeClusterRebuilder extends AbstractReBuilder<DescribeClusterR
 
     @Override
     public CompletionStage<DescribeClusterResponse> rebuildResponse(DescribeClusterResponse response, ClientRequest clientRequest) {
-        var mappings = rebuilderTools.brokerManager().getRealToGatewayMap(response.data().brokers());
+        var brokerManager = rebuilderTools.brokerManager();
         var brokerIter = response.data().brokers().iterator();
         while (brokerIter.hasNext()) {
             var b = brokerIter.next();
-            var mapping = mappings.get(keyOf(b.host(), b.port()));
+            var mapping = brokerManager.getGatewayByReal(b.host(), b.port());
             if (mapping == null) {
                 log.error("Unknown broker node seen in {}: {}:{}", ApiKeys.DESCRIBE_CLUSTER, b.host(), b.port());
+                brokerManager.unknownBrokerSeen();
                 // we remove this response from the list sent back
                 brokerIter.remove();
             } else {
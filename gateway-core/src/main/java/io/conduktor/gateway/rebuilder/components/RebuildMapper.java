@@ -16,6 +16,8 @@
 package io.conduktor.gateway.rebuilder.components;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.ResponseCacheConfig;
 import io.conduktor.gateway.rebuilder.ReBuilder;
 import io.conduktor.gateway.service.RebuilderTools;
 import lombok.Getter;
@@ -35,13 +37,23 @@ public class RebuildMapper {
     private final ReBuilder defaultRebuilder;
 
     @Inject
-    public RebuildMapper(RebuilderTools rebuilderTools) {
+    public RebuildMapper(RebuilderTools rebuilderTools,
+                         @Named("responseCacheConfig") ResponseCacheConfig responseCacheConfig) {
         this.rebuildMapper = new HashMap<>();
         addMapper(new DefaultMetadataReBuilder(rebuilderTools));
         addMapper(new DefaultFindCoordinatorReBuilder(rebuilderTools));
         addMapper(new DescribeClusterRebuilder(rebuilderTools));
         addMapper(new ApiVersionReBuilder(rebuilderTools));
         this.defaultRebuilder = new DefaultReBuilder(rebuilderTools);
+        if (responseCacheConfig.isEnabled()) {
+            for (var cachedApiKey : responseCacheConfig.getApiKeys()) {
+                rebuildMapper.put(cachedApiKey.getApiKey(), new CachingReBuilder(getReBuilder(cachedApiKey.getApiKey()),
+                        cachedApiKey,
+                        responseCacheConfig.getSingleFlightTimeoutMs(),
+                        rebuilderTools.quotaManager(),
+                        rebuilderTools.metricsRegistryProvider().registry()));
+            }
+        }
     }
 
     public ReBuilder getReBuilder(ApiKeys key) {
@@ -16,17 +16,26 @@
 package io.conduktor.gateway.service;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.conduktor.gateway.common.KafkaFrameScanner;
 import io.conduktor.gateway.common.KafkaRequestUtils;
+import io.conduktor.gateway.interceptor.ContextSlots;
+import io.conduktor.gateway.interceptor.DirectionType;
+import io.conduktor.gateway.jfr.RequestEvent;
 import io.conduktor.gateway.network.GatewayChannel;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.socket.SocketChannel;
+import jdk.jfr.EventType;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.kafka.common.network.NetworkSend;
+import org.apache.kafka.common.requests.AbstractRequest;
 import org.apache.kafka.common.requests.RequestHeader;
 import org.apache.kafka.common.utils.Time;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 /**
@@ -44,31 +53,78 @@ public class ClientRequest {
     private final long initiatedNanos;
     private final GatewayChannel gatewayChannel;
     private final Integer nodeId;
+    private static final EventType REQUEST_EVENT_TYPE = EventType.getEventType(RequestEvent.class);
+    /**
+     * flight recorder event spanning the whole request, committed when its response is flushed,
+     * null when the event was not enabled as the request came in
+     */
+    private RequestEvent requestEvent;
     /**
      * gateway request header, for now, it just has different correlation id, compare to {@link #clientRequestHeader}
      */
     private RequestHeader gatewayRequestHeader;
     private ByteBuf response;
-    private NetworkSend toSendKafka;
+    /**
+     * taken by whoever writes the response to the client or releases it, so the buffer has a single owner
+     */
+    private final AtomicBoolean responseClaimed = new AtomicBoolean();
+    private ByteBuffer toSendKafka;
 
     private Consumer<ClientRequest> schedulerToSendToKafka;
     private Consumer<ClientRequest> schedulerToSendResponse;
+    private Runnable doneCallback;
     private volatile boolean isDone;
     private volatile boolean isReadyToSend;
     private volatile boolean isReadyToReceiver;
 
     private volatile boolean recordingMetrics = true;
+    /**
+     * false for produce requests with acks=0, Kafka never answers them
+     */
+    private boolean expectingResponse = true;
 
     private long sendToKafkaStartTime;
+    /**
+     * stage timestamps (System.nanoTime), 0 for a stage not reached, kept for the slow request log
+     */
+    private long requestRebuiltNanos;
+    private long sentToKafkaNanos;
+    private long responseReceivedNanos;
+    private List<InterceptorTiming> interceptorTimings = List.of();
+    /**
+     * interceptor timings are only recorded for the slow request log
+     */
+    @Setter
+    private boolean recordingInterceptors;
 
+    /**
+     * state interceptors pass from the request to its response
+     */
     @Setter
-    @Getter
-    private Object inflightInfo;
+    private ContextSlots contextSlots;
 
     @Setter
     @Getter
     private Object inflightCacheInfo;
 
+    /**
+     * topic and partition skeleton of a Produce or Fetch request, read without decoding it
+     */
+    @Setter
+    private KafkaFrameScanner.ScannedFrame requestFrame;
+
+    /**
+     * the request as decoded from the client, kept so error responses do not parse it again
+     */
+    @Setter
+    private AbstractRequest parsedRequest;
+
+    /**
+     * quota throttle to report back to the client in throttle_time_ms, 0 when within quota
+     */
+    @Setter
+    private volatile int throttleTimeMs;
+
 
     @VisibleForTesting
     public ClientRequest(RequestHeader clientRequestHeader, ByteBuffer request, String connectionId) {
@@ -106,10 +162,17 @@ public class ClientRequest {
         this.request = request;
         this.initiatedNanos = Time.SYSTEM.nanoseconds();
         this.nodeId = nodeId;
+        this.requestEvent = REQUEST_EVENT_TYPE.isEnabled() ? beginRequestEvent() : null;
         this.schedulerToSendToKafka = schedulerToSendToKafka;
         this.schedulerToSendResponse = schedulerToSendResponse;
     }
 
+    private static RequestEvent beginRequestEvent() {
+        var event = new RequestEvent();
+        event.begin();
+        return event;
+    }
+
     public static ClientRequest initRequest(GatewayChannel gatewayChannel,
                                             RequestHeader clientRequestHeader,
                                             ByteBuffer request,
@@ -129,8 +192,26 @@ public class ClientRequest {
         return clientRequest;
     }
 
-    public <T> T getInflightInfo(Class<T> tClass) {
-        return ((T) inflightInfo);
+    /**
+     * Creates a request Kafka will not answer: it is not tracked as in flight and takes no response slot on its channel.
+     */
+    public static ClientRequest initFireAndForgetRequest(GatewayChannel gatewayChannel,
+                                                         RequestHeader clientRequestHeader,
+                                                         ByteBuffer request,
+                                                         String connectionId,
+                                                         InFlightRequestService inFlightRequestService,
+                                                         Consumer<ClientRequest> schedulerToSendResponse,
+                                                         Consumer<ClientRequest> schedulerToSendToKafka) {
+        var clientRequest = new ClientRequest(gatewayChannel,
+                clientRequestHeader,
+                connectionId,
+                request.duplicate(),
+                gatewayChannel.getNode().id(),
+                schedulerToSendResponse,
+                schedulerToSendToKafka);
+        clientRequest.expectingResponse = false;
+        clientRequest.initGatewayRequestHeader(inFlightRequestService.nextCorrelationId());
+        return clientRequest;
     }
 
     public void initGatewayRequestHeader(int gatewayCorrelationId) {
@@ -139,17 +220,43 @@ public class ClientRequest {
         this.gatewayRequestHeader = newRequestHeader;
     }
 
-    public NetworkSend getToSendKafka() {
+    /**
+     * @return the rebuilt request, prefixed by its size
+     */
+    public ByteBuffer getToSendKafka() {
         return toSendKafka;
     }
 
-    public void readyToSendToKafka(NetworkSend toSendKafka) {
+    public void readyToSendToKafka(ByteBuffer toSendKafka) {
         this.toSendKafka = toSendKafka;
         this.isReadyToSend = true;
+        this.requestRebuiltNanos = Time.SYSTEM.nanoseconds();
         schedulerToSendToKafka.accept(this);
         this.sendToKafkaStartTime = Time.SYSTEM.milliseconds();
     }
 
+    public void markSentToKafka() {
+        this.sentToKafkaNanos = Time.SYSTEM.nanoseconds();
+    }
+
+    public void markResponseReceived() {
+        this.responseReceivedNanos = Time.SYSTEM.nanoseconds();
+    }
+
+    /**
+     * interceptors of a request run one after the other, never concurrently
+     */
+    public void recordInterceptor(String interceptor, DirectionType direction, long startNanos) {
+        if (!recordingInterceptors) {
+            return;
+        }
+        if (interceptorTimings.isEmpty()) {
+            interceptorTimings = new ArrayList<>(4);
+        }
+        interceptorTimings.add(new InterceptorTiming(interceptor, direction.name(),
+                TimeUnit.NANOSECONDS.toMicros(Time.SYSTEM.nanoseconds() - startNanos)));
+    }
+
     public void readyToSendBackClient() {
         this.isReadyToReceiver = true;
     }
@@ -157,9 +264,44 @@ public class ClientRequest {
     public void marKDoneWithResponse(ByteBuf response) {
         this.response = response;
         this.isDone = true;
+        if (doneCallback != null) {
+            doneCallback.run();
+        }
+        // checked once done, a channel closing meanwhile releases it from its pending queue otherwise
+        if (gatewayChannel != null && gatewayChannel.isClosed()) {
+            releaseResponse();
+            return;
+        }
         schedulerToSendResponse.accept(this);
     }
 
+    /**
+     * @return true for the only caller allowed to write the response, or to release it
+     */
+    public boolean claimResponse() {
+        return responseClaimed.compareAndSet(false, true);
+    }
+
+    /**
+     * Releases the response of a request that will never reach its client, unless it was already claimed.
+     */
+    public void releaseResponse() {
+        if (response != null && claimResponse()) {
+            response.release();
+        }
+    }
+
+    /**
+     * runs once the request has its response, whichever path produced it, before the response is scheduled
+     */
+    public void whenDone(Runnable callback) {
+        var previous = doneCallback;
+        doneCallback = previous == null ? callback : () -> {
+            previous.run();
+            callback.run();
+        };
+    }
+
     @Override
     public String toString() {
         return "ClientRequest{" +
@@ -185,4 +327,7 @@ public class ClientRequest {
     public boolean isRecordingMetrics() {
         return this.recordingMetrics;
     }
+
+    public record InterceptorTiming(String interceptor, String direction, long micros) {
+    }
 }
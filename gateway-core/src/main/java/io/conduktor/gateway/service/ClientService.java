@@ -20,14 +20,19 @@ import com.google.inject.name.Named;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.common.KafkaFuture;
 import org.apache.kafka.common.Node;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
-public class ClientService {
+public class ClientService implements AutoCloseable {
     private final Properties kafkaConnectionProperties;
+    /**
+     * long-lived admin client on the backend cluster, created on first use
+     */
+    private Admin sharedAdminClient;
 
     @Inject
     public ClientService(@Named("kafkaServerProperties") Properties kafkaConnectionProperties) {
@@ -42,6 +47,20 @@ public class ClientService {
         return Admin.create(properties);
     }
 
+    private synchronized Admin sharedAdminClient() {
+        if (sharedAdminClient == null) {
+            sharedAdminClient = Admin.create(kafkaConnectionProperties);
+        }
+        return sharedAdminClient;
+    }
+
+    /**
+     * Describes the backend cluster through the shared admin client, without blocking.
+     */
+    public KafkaFuture<Collection<Node>> describeClusterNodes() {
+        return sharedAdminClient().describeCluster().nodes();
+    }
+
     public Node getAvailableKafkaNode(Properties kafkaProperties) {
         return getKafkaNodes(kafkaProperties)
                 .stream()
@@ -50,11 +69,17 @@ public class ClientService {
     }
 
     public List<Node> getKafkaNodes(){
-        return getKafkaNodes(kafkaConnectionProperties);
+        return getKafkaNodes(sharedAdminClient(), kafkaConnectionProperties);
     }
 
     private List<Node> getKafkaNodes(Properties kafkaProperties) {
         try (var adminClient = Admin.create(kafkaProperties)) {
+            return getKafkaNodes(adminClient, kafkaProperties);
+        }
+    }
+
+    private List<Node> getKafkaNodes(Admin adminClient, Properties kafkaProperties) {
+        try {
             var nodes = adminClient.describeCluster()
                     .nodes()
                     .get(5, TimeUnit.SECONDS);
@@ -68,4 +93,12 @@ public class ClientService {
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public synchronized void close() {
+        if (sharedAdminClient != null) {
+            sharedAdminClient.close();
+            sharedAdminClient = null;
+        }
+    }
+
+}
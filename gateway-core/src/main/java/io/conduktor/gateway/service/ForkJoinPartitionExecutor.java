@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.service;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.PartitionParallelismConfig;
+import io.conduktor.gateway.interceptor.PartitionExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link PartitionExecutor} backed by a shared work-stealing pool.
+ * Only requests whose partitions add up to more than {@link PartitionParallelismConfig#getThresholdBytes()}
+ * are fanned out, smaller ones stay on the calling {@link io.conduktor.gateway.thread.GatewayThread}.
+ * The caller is blocked until every partition is done, so the request is complete before it gets serialized.
+ */
+@Slf4j
+public class ForkJoinPartitionExecutor implements PartitionExecutor, AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final long thresholdBytes;
+
+    @Inject
+    public ForkJoinPartitionExecutor(@Named("partitionParallelismConfig") PartitionParallelismConfig config) {
+        this.pool = new ForkJoinPool(config.getParallelism());
+        this.thresholdBytes = config.getThresholdBytes();
+    }
+
+    @Override
+    public <T> void forEach(List<T> partitions, ToLongFunction<T> sizeOf, Consumer<T> action) {
+        if (partitions.size() < 2 || totalSize(partitions, sizeOf) < thresholdBytes) {
+            partitions.forEach(action);
+            return;
+        }
+        log.trace("Processing {} partitions in parallel", partitions.size());
+        pool.invoke(new PartitionAction<>(partitions, 0, partitions.size(), action));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private <T> long totalSize(List<T> partitions, ToLongFunction<T> sizeOf) {
+        long total = 0;
+        for (var partition : partitions) {
+            total += sizeOf.applyAsLong(partition);
+            if (total >= thresholdBytes) {
+                return total;
+            }
+        }
+        return total;
+    }
+
+    private static class PartitionAction<T> extends RecursiveAction {
+
+        private final List<T> partitions;
+        private final int from;
+        private final int to;
+        private final Consumer<T> action;
+
+        private PartitionAction(List<T> partitions, int from, int to, Consumer<T> action) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(partitions.get(from));
+                return;
+            }
+            var middle = (from + to) >>> 1;
+            invokeAll(new PartitionAction<>(partitions, from, middle, action),
+                    new PartitionAction<>(partitions, middle, to, action));
+        }
+    }
+
+}
@@ -43,11 +43,18 @@ public class InFlightRequestService {
     }
 
     public int trackRequest(ClientRequest clientRequest) {
-        var newCorrelationId = correlationIdCounter.incrementAndGet();
+        var newCorrelationId = nextCorrelationId();
         requestMap.put(newCorrelationId, clientRequest);
         return newCorrelationId;
     }
 
+    /**
+     * @return a gateway correlation id for a request which gets no response, so is not tracked
+     */
+    public int nextCorrelationId() {
+        return correlationIdCounter.incrementAndGet();
+    }
+
     public ClientRequest getAndRemoveRequest(int correlationId) {
         var request = requestMap.getIfPresent(correlationId);
         requestMap.invalidate(correlationId);
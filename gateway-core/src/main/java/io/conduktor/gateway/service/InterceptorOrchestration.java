@@ -16,16 +16,21 @@
 package io.conduktor.gateway.service;
 
 import com.google.inject.Inject;
+import io.conduktor.gateway.common.KafkaRequestUtils;
+import io.conduktor.gateway.interceptor.ContextSlots;
 import io.conduktor.gateway.interceptor.DirectionType;
 import io.conduktor.gateway.interceptor.InterceptorContext;
 import io.conduktor.gateway.interceptor.InterceptorValue;
+import io.conduktor.gateway.interceptor.PartitionExecutor;
+import io.conduktor.gateway.interceptor.SyncInterceptor;
+import io.conduktor.gateway.jfr.InterceptorEvent;
 import io.conduktor.gateway.model.InterceptContext;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.requests.AbstractRequestResponse;
 
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -36,49 +41,107 @@ import static java.util.stream.Collectors.toCollection;
 @Slf4j
 public class InterceptorOrchestration {
     private final InterceptorPoolService interceptorPoolService;
+    private final PartitionExecutor partitionExecutor;
 
     @Inject
-    public InterceptorOrchestration(InterceptorPoolService interceptorPoolService) {
+    public InterceptorOrchestration(InterceptorPoolService interceptorPoolService, PartitionExecutor partitionExecutor) {
         this.interceptorPoolService = interceptorPoolService;
+        this.partitionExecutor = partitionExecutor;
     }
 
     public CompletionStage<AbstractRequestResponse> intercept(InterceptContext interceptContext, AbstractRequestResponse input) {
 
-        var interceptors = interceptorPoolService.getAllInterceptors(input.getClass()).stream()
+        var interceptorValues = interceptorPoolService.getAllInterceptors(input.getClass());
+        var topics = interceptorValues.stream().anyMatch(interceptorValue -> interceptorValue.topicPattern() != null)
+                ? KafkaRequestUtils.topicsOf(input)
+                : null;
+        var interceptors = interceptorValues.stream()
+                .filter(interceptorValue -> interceptorValue.appliesTo(topics))
                 .sorted(Comparator.comparingInt(InterceptorValue::priority))
                 .collect(toCollection(ConcurrentLinkedQueue::new));
 
-        // we should only reset inflight info on request and on the first interceptor in the chain
-        if (interceptContext.getDirectionType().equals(DirectionType.REQUEST)) {
-            interceptContext.getClientRequest().setInflightInfo(new HashMap<String, Object>());
+        if (interceptors.isEmpty()) {
+            return CompletableFuture.completedFuture(input);
+        }
+        // we should only reset context slots on request and on the first interceptor in the chain,
+        // a request forwarded without decoding never got them
+        var clientRequest = interceptContext.getClientRequest();
+        var contextSlots = clientRequest.getContextSlots();
+        if (interceptContext.getDirectionType().equals(DirectionType.REQUEST) || contextSlots == null) {
+            contextSlots = new ContextSlots();
+            clientRequest.setContextSlots(contextSlots);
         }
-        return intercept(interceptContext, interceptors, input);
+        // one context serves the whole chain
+        var interceptorContext = new InterceptorContext(
+                interceptContext.getDirectionType(),
+                clientRequest.getGatewayRequestHeader(),
+                contextSlots,
+                clientRequest.getClientChannel().remoteAddress(),
+                partitionExecutor);
+        return intercept(clientRequest, interceptorContext, interceptors, input);
     }
 
-    private CompletionStage<AbstractRequestResponse> intercept(InterceptContext interceptContext,
+    /**
+     * Tells whether a message must be decoded, i.e. whether any interceptor would run for it.
+     *
+     * @param topics topics carried by the message, null when they are unknown
+     */
+    public boolean hasInterceptors(ApiKeys apiKey, DirectionType directionType, Collection<String> topics) {
+        var type = directionType == DirectionType.REQUEST
+                ? KafkaRequestUtils.requestType(apiKey)
+                : KafkaRequestUtils.responseType(apiKey);
+        return type == null || interceptorPoolService.hasInterceptors(type, topics);
+    }
+
+    /**
+     * Runs synchronous interceptors in a loop and only composes stages from the first asynchronous one.
+     */
+    private CompletionStage<AbstractRequestResponse> intercept(ClientRequest clientRequest,
+                                                               InterceptorContext interceptorContext,
                                                                ConcurrentLinkedQueue<InterceptorValue> interceptorValues,
                                                                AbstractRequestResponse input) {
-        if (interceptorValues.isEmpty()) {
-            return CompletableFuture.completedFuture(input);
+        var intercepted = input;
+        try {
+            for (var interceptorValue = interceptorValues.poll(); interceptorValue != null; interceptorValue = interceptorValues.poll()) {
+                if (!(interceptorValue.interceptor() instanceof SyncInterceptor<AbstractRequestResponse> syncInterceptor)) {
+                    return intercept(clientRequest, interceptorContext, interceptorValue, intercepted)
+                            .thenCompose(asyncIntercepted -> intercept(clientRequest, interceptorContext, interceptorValues, asyncIntercepted));
+                }
+                var event = new InterceptorEvent();
+                event.begin();
+                var startNanos = System.nanoTime();
+                intercepted = syncInterceptor.interceptSync(intercepted, interceptorContext);
+                record(event, startNanos, clientRequest, interceptorContext, interceptorValue);
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
         }
-
-        return intercept(interceptContext, interceptorValues.poll(), input)
-                .thenCompose(intercepted -> intercept(interceptContext, interceptorValues, intercepted));
+        return CompletableFuture.completedFuture(intercepted);
     }
 
 
-    @SuppressWarnings("unchecked")
-    private CompletionStage<AbstractRequestResponse> intercept(InterceptContext interceptContext,
+    private CompletionStage<AbstractRequestResponse> intercept(ClientRequest clientRequest,
+                                                               InterceptorContext interceptorContext,
                                                                InterceptorValue interceptorValue,
                                                                AbstractRequestResponse input) {
+        var event = new InterceptorEvent();
+        event.begin();
+        var startNanos = System.nanoTime();
         return interceptorValue.interceptor()
-                .intercept(input, new InterceptorContext(
-                        interceptContext.getDirectionType(),
-                        interceptContext.getClientRequest().getGatewayRequestHeader(),
-                        (Map<String, Object>) interceptContext.getClientRequest().getInflightInfo(),
-                        interceptContext.getClientRequest().getClientChannel().remoteAddress()))
+                .intercept(input, interceptorContext)
                 .toCompletableFuture()
-                .orTimeout(interceptorValue.timeoutMs(), TimeUnit.MILLISECONDS);
+                .orTimeout(interceptorValue.timeoutMs(), TimeUnit.MILLISECONDS)
+                .whenComplete((intercepted, ex) -> record(event, startNanos, clientRequest, interceptorContext, interceptorValue));
+    }
+
+    private static void record(InterceptorEvent event, long startNanos, ClientRequest clientRequest,
+                               InterceptorContext interceptorContext, InterceptorValue interceptorValue) {
+        clientRequest.recordInterceptor(interceptorValue.interceptor().getClass().getName(), interceptorContext.direction(), startNanos);
+        if (event.shouldCommit()) {
+            event.request(clientRequest);
+            event.interceptor(interceptorValue.interceptor().getClass().getName(), interceptorContext.direction().name());
+            event.commit();
+        }
     }
 
 }
@@ -23,6 +23,7 @@ import io.conduktor.gateway.interceptor.Interceptor;
 import io.conduktor.gateway.interceptor.InterceptorConfigurationException;
 import io.conduktor.gateway.interceptor.InterceptorValue;
 import io.conduktor.gateway.interceptor.Plugin;
+import io.conduktor.gateway.interceptor.TopicScopedInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.requests.AbstractRequest;
 import org.apache.kafka.common.requests.AbstractRequestResponse;
@@ -108,12 +109,28 @@ public class InterceptorPoolService {
             loaded.plugin.getTypedInterceptors(checkedConfig).forEach((type, interceptorsForType) -> {
                 interceptors.putIfAbsent(type, new ArrayList<>());
                 interceptors.get(type).addAll(interceptorsForType.stream()
-                        .map(interceptor -> new InterceptorValue((Interceptor<AbstractRequestResponse>) interceptor, loaded.config().getPriority(), loaded.config().getTimeoutMs()))
+                        .map(interceptor -> toInterceptorValue(interceptor, loaded.config()))
                         .toList());
             });
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private InterceptorValue toInterceptorValue(Interceptor<?> interceptor, InterceptorPluginConfig config) {
+        if (interceptor instanceof TopicScopedInterceptor<?> scoped) {
+            return new InterceptorValue((Interceptor<AbstractRequestResponse>) scoped.delegate(), config.getPriority(), config.getTimeoutMs(), scoped.topicPattern());
+        }
+        return new InterceptorValue((Interceptor<AbstractRequestResponse>) interceptor, config.getPriority(), config.getTimeoutMs());
+    }
+
+    /**
+     * @param topics topics of the message, null when they are unknown
+     * @return whether any interceptor would run for a message of this type touching these topics
+     */
+    public boolean hasInterceptors(Class<?> inputType, Collection<String> topics) {
+        return getAllInterceptors(inputType).stream().anyMatch(interceptor -> interceptor.appliesTo(topics));
+    }
+
     public List<InterceptorValue> getAllInterceptors(Class<?> inputType) {
         var filteredInterceptors = new ArrayList<InterceptorValue>();
         // add specific ones
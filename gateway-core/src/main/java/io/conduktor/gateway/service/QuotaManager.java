@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.QuotaConfig;
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.protocol.ApiKeys;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket byte quotas on produce requests and fetch responses.
+ * A bucket may go into debt, the time needed to pay it back is the throttle sent to the client.
+ */
+@Slf4j
+public class QuotaManager {
+
+    private static final String ANONYMOUS = "<anonymous>";
+
+    private final QuotaConfig quotaConfig;
+    private final Cache<String, TokenBucket> produceBuckets;
+    private final Cache<String, TokenBucket> fetchBuckets;
+    private final Counter produceThrottled;
+    private final Counter fetchThrottled;
+
+    @Inject
+    public QuotaManager(@Named("quotaConfig") QuotaConfig quotaConfig,
+                        MetricsRegistryProvider metricsRegistryProvider) {
+        this.quotaConfig = quotaConfig;
+        this.produceBuckets = newBuckets(quotaConfig);
+        this.fetchBuckets = newBuckets(quotaConfig);
+        var registry = metricsRegistryProvider.registry();
+        this.produceThrottled = registry.counter(MetricsRegistryKeys.QUOTA_THROTTLED, Tags.of("type", "produce"));
+        this.fetchThrottled = registry.counter(MetricsRegistryKeys.QUOTA_THROTTLED, Tags.of("type", "fetch"));
+    }
+
+    /**
+     * Accounts the bytes of a request sent by a client, only produce requests are subject to a quota.
+     */
+    public void recordRequest(ClientRequest clientRequest, long bytes) {
+        if (clientRequest.getClientRequestHeader().apiKey() == ApiKeys.PRODUCE) {
+            record(produceBuckets, quotaConfig.getProduceBytesPerSecond(), produceThrottled, clientRequest, bytes);
+        }
+    }
+
+    /**
+     * Accounts the bytes of a response going back to a client, only fetch responses are subject to a quota.
+     */
+    public void recordResponse(ClientRequest clientRequest, long bytes) {
+        if (clientRequest.getClientRequestHeader().apiKey() == ApiKeys.FETCH) {
+            record(fetchBuckets, quotaConfig.getFetchBytesPerSecond(), fetchThrottled, clientRequest, bytes);
+        }
+    }
+
+    private void record(Cache<String, TokenBucket> buckets,
+                        long bytesPerSecond,
+                        Counter throttled,
+                        ClientRequest clientRequest,
+                        long bytes) {
+        if (!quotaConfig.isEnabled() || bytesPerSecond <= 0) {
+            return;
+        }
+        var key = quotaKey(clientRequest);
+        var bucket = buckets.get(key, k -> new TokenBucket(bytesPerSecond, quotaConfig.getBurstMs(), System.nanoTime()));
+        var throttleTimeMs = (int) Math.min(bucket.consume(bytes, System.nanoTime()), quotaConfig.getMaxThrottleTimeMs());
+        if (throttleTimeMs <= 0) {
+            return;
+        }
+        log.debug("Throttling {} for {} ms, quota of {} bytes/s exceeded", key, throttleTimeMs, bytesPerSecond);
+        throttled.increment();
+        clientRequest.setThrottleTimeMs(Math.max(clientRequest.getThrottleTimeMs(), throttleTimeMs));
+        if (clientRequest.getGatewayChannel() != null) {
+            clientRequest.getGatewayChannel().throttle(throttleTimeMs);
+        }
+    }
+
+    private String quotaKey(ClientRequest clientRequest) {
+        return switch (quotaConfig.getKeyType()) {
+            case CLIENT_ID -> Objects.requireNonNullElse(clientRequest.getClientRequestHeader().clientId(), "");
+            case USER -> clientRequest.getGatewayChannel() == null
+                    ? ANONYMOUS
+                    : clientRequest.getGatewayChannel().getAuthenticator().getUser()
+                    .map(User::getUsername)
+                    .orElse(ANONYMOUS);
+            case IP -> clientRequest.getClientChannel() == null
+                    ? ANONYMOUS
+                    : clientRequest.getClientChannel().remoteAddress().getAddress().getHostAddress();
+        };
+    }
+
+    private static Cache<String, TokenBucket> newBuckets(QuotaConfig quotaConfig) {
+        return Caffeine.newBuilder()
+                .expireAfterAccess(quotaConfig.getIdleExpiryMs(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @VisibleForTesting
+    static final class TokenBucket {
+
+        private final double bytesPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastNanos;
+
+        TokenBucket(long bytesPerSecond, long burstMs, long nowNanos) {
+            this.bytesPerNano = bytesPerSecond / 1e9;
+            this.capacity = bytesPerSecond * Math.max(1, burstMs) / 1000d;
+            this.tokens = capacity;
+            this.lastNanos = nowNanos;
+        }
+
+        /**
+         * @return milliseconds to wait until the bucket is out of debt, 0 when still within quota
+         */
+        synchronized long consume(long bytes, long nowNanos) {
+            tokens = Math.min(capacity, tokens + Math.max(0, nowNanos - lastNanos) * bytesPerNano);
+            lastNanos = Math.max(lastNanos, nowNanos);
+            tokens -= bytes;
+            if (tokens >= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(-tokens / bytesPerNano / 1_000_000);
+        }
+    }
+}
@@ -34,17 +34,21 @@ public class RebuilderTools {
 
     private final ClientService clientService;
 
+    private final QuotaManager quotaManager;
+
     @Inject
     public RebuilderTools(BrokerManager brokerManager,
                           InterceptorOrchestration interceptorOrchestration,
                           MetricsRegistryProvider metricsRegistryProvider,
-                          ClientService clientService) {
+                          ClientService clientService,
+                          QuotaManager quotaManager) {
 
         this.brokerManager = brokerManager;
         this.interceptorOrchestration = interceptorOrchestration;
         this.serdeService = new SerdeService();
         this.metricsRegistryProvider = metricsRegistryProvider;
         this.clientService = clientService;
+        this.quotaManager = quotaManager;
     }
 
 }
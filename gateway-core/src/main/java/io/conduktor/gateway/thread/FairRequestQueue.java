@@ -0,0 +1,149 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.thread;
+
+import io.conduktor.gateway.network.GatewayChannel;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Request rebuild work of a {@link GatewayThread}, queued per client connection and served by deficit round robin
+ * weighted by request bytes. Any thread may offer, only the gateway thread polls.
+ */
+final class FairRequestQueue {
+
+    private final Map<GatewayChannel, ChannelQueue> queues = new ConcurrentHashMap<>();
+    /**
+     * connections which got work while idle, moved into the round by the gateway thread
+     */
+    private final Queue<ChannelQueue> activated = PlatformDependent.newMpscQueue();
+    private final ArrayDeque<ChannelQueue> round = new ArrayDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxPending;
+    private final int quantumBytes;
+    private final ToIntFunction<GatewayChannel> weights;
+
+    FairRequestQueue(int maxPending, int quantumBytes, ToIntFunction<GatewayChannel> weights) {
+        this.maxPending = maxPending;
+        this.quantumBytes = quantumBytes;
+        this.weights = weights;
+    }
+
+    /**
+     * @return false when the queue is full
+     */
+    boolean offer(GatewayChannel gatewayChannel, int bytes, Runnable task) {
+        if (size.incrementAndGet() > maxPending) {
+            size.decrementAndGet();
+            return false;
+        }
+        var entry = new Entry(bytes, task);
+        for (; ; ) {
+            var queue = queues.computeIfAbsent(gatewayChannel, ChannelQueue::new);
+            if (queue.offer(entry)) {
+                return true;
+            }
+            // drained and retired by the gateway thread in the meantime
+            queues.remove(gatewayChannel, queue);
+        }
+    }
+
+    /**
+     * @return the next task in deficit round robin order, null when there is none
+     */
+    Runnable poll() {
+        for (var queue = activated.poll(); queue != null; queue = activated.poll()) {
+            round.add(queue);
+        }
+        while (!round.isEmpty()) {
+            var queue = round.peek();
+            if (!queue.inRound) {
+                queue.inRound = true;
+                queue.deficit += (long) quantumBytes * weights.applyAsInt(queue.gatewayChannel);
+            }
+            var entry = queue.pollWithin(queue.deficit);
+            if (entry == null) {
+                round.poll();
+                if (queue.retired) {
+                    queues.remove(queue.gatewayChannel, queue);
+                } else {
+                    // out of credit for this round, the deficit carries over
+                    queue.inRound = false;
+                    round.add(queue);
+                }
+                continue;
+            }
+            queue.deficit -= entry.bytes;
+            size.decrementAndGet();
+            return entry.task;
+        }
+        return null;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    private record Entry(int bytes, Runnable task) {
+    }
+
+    private final class ChannelQueue {
+        private final GatewayChannel gatewayChannel;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean retired;
+        // only touched by the gateway thread
+        private boolean inRound;
+        private long deficit;
+
+        private ChannelQueue(GatewayChannel gatewayChannel) {
+            this.gatewayChannel = gatewayChannel;
+        }
+
+        private synchronized boolean offer(Entry entry) {
+            if (retired) {
+                return false;
+            }
+            entries.add(entry);
+            if (!scheduled) {
+                scheduled = true;
+                activated.add(this);
+            }
+            return true;
+        }
+
+        /**
+         * @return the head if it fits in the credit, null otherwise, the queue retires once found empty
+         */
+        private synchronized Entry pollWithin(long credit) {
+            var head = entries.peek();
+            if (head == null) {
+                retired = true;
+                return null;
+            }
+            return head.bytes <= credit ? entries.poll() : null;
+        }
+    }
+}
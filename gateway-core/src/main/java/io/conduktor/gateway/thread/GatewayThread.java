@@ -15,10 +15,17 @@
 
 package io.conduktor.gateway.thread;
 
+import io.conduktor.gateway.common.KafkaFrameScanner;
 import io.conduktor.gateway.config.ConnectionConfig;
+import io.conduktor.gateway.config.FairnessConfig;
 import io.conduktor.gateway.error.handler.ErrorHandler;
+import io.conduktor.gateway.jfr.RebuildRequestEvent;
+import io.conduktor.gateway.jfr.ReceiveResponseEvent;
+import io.conduktor.gateway.metrics.HeavyHitters;
 import io.conduktor.gateway.metrics.MetricsRegistryKeys;
 import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.metrics.SlowRequestLog;
+import io.conduktor.gateway.model.User;
 import io.conduktor.gateway.network.GatewayChannel;
 import io.conduktor.gateway.network.UpstreamIO;
 import io.conduktor.gateway.rebuilder.components.RebuildMapper;
@@ -27,32 +34,41 @@ import io.conduktor.gateway.service.ClientRequest;
 import io.conduktor.gateway.service.InFlightRequestService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoop;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.RejectedExecutionHandler;
 import io.netty.util.internal.PlatformDependent;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.Node;
-import org.apache.kafka.common.network.ByteBufferSend;
-import org.apache.kafka.common.network.NetworkReceive;
-import org.apache.kafka.common.network.NetworkSend;
+import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.requests.RequestHeader;
 import org.apache.kafka.common.utils.Time;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 import static io.netty.buffer.Unpooled.buffer;
 import static io.netty.buffer.Unpooled.wrappedBuffer;
 
 /**
- * Gateway thread which use {@link org.apache.kafka.common.network.Selector} to do the IO with kafka cluster behind
+ * Gateway thread which use an {@link UpstreamIO} to do the IO with kafka cluster behind
  * maintain a task queue to:
  * - rebuild request from client
  * - rebuild response from server
@@ -71,8 +87,31 @@ public class GatewayThread extends SingleThreadEventLoop {
     private final RebuildMapper rebuildMapper;
     private final ErrorHandler errorHandler;
     private final MetricsRegistryProvider metricsRegistryProvider;
+    private final HeavyHitters heavyHitters;
+    private final SlowRequestLog.Ring slowRequests;
+    /**
+     * request and response bytes, for the least bytes rate assignment
+     */
+    private final LongAdder bytes = new LongAdder();
+    /**
+     * client connections assigned to this thread, for the least loaded assignment
+     */
+    private final Set<GatewayChannel> downstreamChannels = ConcurrentHashMap.newKeySet();
     private final Time time = Time.SYSTEM;
     private final Counter receivedRequestCounter;
+    private final Counter failedOverRequestCounter;
+    /**
+     * control-plane work, always polled before the regular task queue
+     */
+    private final Queue<Runnable> highPriorityTasks;
+    private final boolean prioritizeControlPlane;
+    /**
+     * request rebuild work shared fairly between client connections, null when it simply goes to the task queue
+     */
+    private final FairRequestQueue fairRequests;
+    private boolean fairRequestsFirst;
+    private final Timer highPriorityWait;
+    private final Timer normalPriorityWait;
 
 
     private volatile long gracefulShutdownQuietPeriodCustom;
@@ -89,21 +128,39 @@ public class GatewayThread extends SingleThreadEventLoop {
             Properties selectorProps,
             ConnectionConfig connectionConfig,
             int maxPendingTask,
+            boolean prioritizeControlPlane,
+            FairnessConfig fairness,
             InFlightRequestService inFlightRequestService,
             ErrorHandler errorHandler,
-            MetricsRegistryProvider metricsRegistryProvider) {
+            MetricsRegistryProvider metricsRegistryProvider,
+            HeavyHitters heavyHitters,
+            SlowRequestLog slowRequestLog,
+            Supplier<EventLoop> upstreamEventLoop) {
         super(parent, executor, false, PlatformDependent.newMpscQueue(maxPendingTask), PlatformDependent.newMpscQueue(), rejectedExecutionHandler);
-        this.upstreamIOOrchestration = new UpstreamIO(selectorProps, connectionConfig);
+        this.upstreamIOOrchestration = UpstreamIO.create(selectorProps, connectionConfig, upstreamEventLoop);
         this.inFlightRequestService = inFlightRequestService;
         this.rebuildMapper = rebuildMapper;
         this.errorHandler = errorHandler;
         this.metricsRegistryProvider = metricsRegistryProvider;
+        this.heavyHitters = heavyHitters;
+        this.slowRequests = slowRequestLog.newRing();
+        // set before threadProperties() as it starts the thread, which polls this queue right away
+        this.highPriorityTasks = PlatformDependent.newMpscQueue(maxPendingTask);
+        this.prioritizeControlPlane = prioritizeControlPlane;
+        this.fairRequests = fairness.isEnabled()
+                ? new FairRequestQueue(maxPendingTask, fairness.getQuantumBytes(), channel -> fairness.weightOf(principal(channel)))
+                : null;
         var threadProperties = this.threadProperties();
 
         metricsRegistryProvider.registry().gauge(MetricsRegistryKeys.THREAD_TASKS, Tags.of("threadId",
                 String.valueOf(threadProperties.id()), "name", threadProperties.name()), this, GatewayThread::pendingTasks);
         upstreamIOOrchestration.registerMetrics(metricsRegistryProvider.registry(), Tags.of("threadId", String.valueOf(threadProperties.id()), "name", threadProperties.name()));
         receivedRequestCounter = metricsRegistryProvider.registry().counter(MetricsRegistryKeys.THREAD_RECEIVED_REQUEST, Tags.of("threadId", String.valueOf(threadProperties.id()), "name", threadProperties.name()));
+        failedOverRequestCounter = metricsRegistryProvider.registry().counter(MetricsRegistryKeys.UPSTREAMIO_FAILED_OVER_REQUESTS, Tags.of("threadId", String.valueOf(threadProperties.id()), "name", threadProperties.name()));
+        this.highPriorityWait = metricsRegistryProvider.registry().timer(MetricsRegistryKeys.THREAD_QUEUE_WAIT, Tags.of("threadId",
+                String.valueOf(threadProperties.id()), "name", threadProperties.name(), "priority", "high"));
+        this.normalPriorityWait = metricsRegistryProvider.registry().timer(MetricsRegistryKeys.THREAD_QUEUE_WAIT, Tags.of("threadId",
+                String.valueOf(threadProperties.id()), "name", threadProperties.name(), "priority", "normal"));
     }
 
     /**
@@ -140,11 +197,179 @@ public class GatewayThread extends SingleThreadEventLoop {
         upstreamIOOrchestration.deregisterKafkaNode(node);
     }
 
+    /**
+     * @return a snapshot of this thread, the upstream part is taken on the thread itself as the selector is not thread safe
+     */
+    public CompletableFuture<DebugInfo> debugInfo() {
+        var debugInfo = new CompletableFuture<DebugInfo>();
+        var name = threadProperties().name();
+        var pendingTasks = pendingTasks();
+        try {
+            execute(() -> debugInfo.complete(new DebugInfo(name, pendingTasks,
+                    upstreamIOOrchestration.inFlightRequests(), upstreamIOOrchestration.connectionStates())));
+        } catch (RejectedExecutionException e) {
+            debugInfo.completeExceptionally(e);
+        }
+        return debugInfo;
+    }
+
+    public int inFlightRequests() {
+        return upstreamIOOrchestration.inFlightRequests();
+    }
+
+    /**
+     * Counts a client connection served by this thread from the moment it is accepted, before it sends anything.
+     */
+    public void assign(GatewayChannel gatewayChannel) {
+        if (downstreamChannels.add(gatewayChannel)) {
+            gatewayChannel.closeFuture().thenAccept(rs -> downstreamChannels.remove(gatewayChannel));
+        }
+    }
+
+    public int downstreamChannels() {
+        return downstreamChannels.size();
+    }
+
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Forgets a client connection moving to another thread, it must have nothing in flight.
+     * Must be called on this thread, like any other use of its upstream connections.
+     */
+    public void release(GatewayChannel gatewayChannel) {
+        downstreamChannels.remove(gatewayChannel);
+        upstreamIOOrchestration.release(gatewayChannel);
+    }
+
     public void justSend(ByteBuf buf, GatewayChannel gatewayChannel) {
         //TODO: what will happen when the task queue is full?
         receivedRequestCounter.increment();
+        gatewayChannel.submittedRequests().incrementAndGet();
         buf.retain();
-        execute(() -> rebuild(buf, gatewayChannel));
+        var enqueuedAt = System.nanoTime();
+        try {
+            if (isHighPriority(buf, gatewayChannel)) {
+                executeHighPriority(() -> {
+                    highPriorityWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                    rebuildSubmitted(buf, gatewayChannel);
+                });
+                return;
+            }
+            executeNormalPriority(gatewayChannel, 1, buf.readableBytes(), () -> {
+                normalPriorityWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                rebuildSubmitted(buf, gatewayChannel);
+            });
+        } catch (RejectedExecutionException e) {
+            unsubmit(List.of(buf), gatewayChannel);
+            throw e;
+        }
+    }
+
+    /**
+     * Hands a whole read burst over in a single task, the buffers must already be retained by the caller.
+     * Control-plane requests leading the burst are split into a high priority task.
+     */
+    public void justSend(List<ByteBuf> bufs, GatewayChannel gatewayChannel) {
+        receivedRequestCounter.increment(bufs.size());
+        gatewayChannel.submittedRequests().addAndGet(bufs.size());
+        var enqueuedAt = System.nanoTime();
+        var highPriority = 0;
+        while (highPriority < bufs.size() && isHighPriority(bufs.get(highPriority), gatewayChannel)) {
+            highPriority++;
+        }
+        if (highPriority > 0) {
+            var head = bufs.subList(0, highPriority);
+            try {
+                executeHighPriority(() -> {
+                    highPriorityWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                    head.forEach(buf -> rebuildSubmitted(buf, gatewayChannel));
+                });
+            } catch (RejectedExecutionException e) {
+                unsubmit(bufs, gatewayChannel);
+                throw e;
+            }
+        }
+        if (highPriority < bufs.size()) {
+            var tail = bufs.subList(highPriority, bufs.size());
+            var tailBytes = tail.stream().mapToInt(ByteBuf::readableBytes).sum();
+            try {
+                executeNormalPriority(gatewayChannel, tail.size(), tailBytes, () -> {
+                    normalPriorityWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                    tail.forEach(buf -> rebuildSubmitted(buf, gatewayChannel));
+                });
+            } catch (RejectedExecutionException e) {
+                unsubmit(tail, gatewayChannel);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * undoes the submission of requests a full or shut down thread rejected
+     */
+    private static void unsubmit(List<ByteBuf> bufs, GatewayChannel gatewayChannel) {
+        gatewayChannel.submittedRequests().addAndGet(-bufs.size());
+        bufs.forEach(ByteBuf::release);
+    }
+
+    /**
+     * a control-plane request may only overtake requests of other clients, never earlier ones of its own client
+     */
+    private boolean isHighPriority(ByteBuf buf, GatewayChannel gatewayChannel) {
+        return prioritizeControlPlane
+                && gatewayChannel.normalPriorityRequests().get() == 0
+                && buf.readableBytes() >= Short.BYTES
+                && ApiKeys.hasId(buf.getShort(buf.readerIndex()))
+                && isControlPlane(ApiKeys.forId(buf.getShort(buf.readerIndex())));
+    }
+
+    private boolean isHighPriority(ClientRequest clientRequest) {
+        return prioritizeControlPlane && isControlPlane(clientRequest.getClientRequestHeader().apiKey());
+    }
+
+    private static boolean isControlPlane(ApiKeys apiKey) {
+        return switch (apiKey) {
+            case HEARTBEAT, JOIN_GROUP, SYNC_GROUP, LEAVE_GROUP, OFFSET_COMMIT, OFFSET_FETCH, FIND_COORDINATOR,
+                    CONSUMER_GROUP_HEARTBEAT, METADATA, API_VERSIONS -> true;
+            default -> false;
+        };
+    }
+
+    private void executeHighPriority(Runnable task) {
+        if (isShutdown() || !highPriorityTasks.offer(task)) {
+            reject(task);
+        }
+        if (!inEventLoop()) {
+            upstreamIOOrchestration.wakeup();
+        }
+    }
+
+    private void executeNormalPriority(GatewayChannel gatewayChannel, int requests, int bytes, Runnable task) {
+        var normalPriorityRequests = gatewayChannel.normalPriorityRequests();
+        normalPriorityRequests.addAndGet(requests);
+        Runnable counted = () -> {
+            // released as soon as the task starts, anything queued later runs after it anyway
+            normalPriorityRequests.addAndGet(-requests);
+            task.run();
+        };
+        if (fairRequests != null) {
+            if (isShutdown() || !fairRequests.offer(gatewayChannel, bytes, counted)) {
+                normalPriorityRequests.addAndGet(-requests);
+                reject(counted);
+            }
+            if (!inEventLoop()) {
+                upstreamIOOrchestration.wakeup();
+            }
+            return;
+        }
+        try {
+            execute(counted);
+        } catch (RejectedExecutionException e) {
+            normalPriorityRequests.addAndGet(-requests);
+            throw e;
+        }
     }
 
     public void close() {
@@ -164,7 +389,7 @@ public class GatewayThread extends SingleThreadEventLoop {
      * the tasks in the task queue and returns if it ran longer than {@code timeoutNanos}.
      */
     protected boolean runAllTasks(long timeoutNanos) {
-        Runnable task = pollTask();
+        Runnable task = pollNextTask();
 
         final long deadline = timeoutNanos > 0 ? getCurrentTimeNanos() + timeoutNanos : 0;
         long runTasks = 0;
@@ -181,7 +406,7 @@ public class GatewayThread extends SingleThreadEventLoop {
                     break;
                 }
             }
-            task = pollTask();
+            task = pollNextTask();
             if (task == null) {
                 break;
             }
@@ -189,6 +414,50 @@ public class GatewayThread extends SingleThreadEventLoop {
         return true;
     }
 
+    @Override
+    public int pendingTasks() {
+        return super.pendingTasks() + highPriorityTasks.size() + (fairRequests == null ? 0 : fairRequests.size());
+    }
+
+    /**
+     * Run by {@link #confirmShutdown()}, which only knows the regular task queue, so requests waiting in the
+     * high priority or fair queues still get an answer before the thread stops.
+     */
+    @Override
+    protected boolean runAllTasks() {
+        var ran = runAllTasksFrom(highPriorityTasks);
+        if (fairRequests != null) {
+            for (var task = fairRequests.poll(); task != null; task = fairRequests.poll()) {
+                safeExecute(task);
+                ran = true;
+            }
+        }
+        if (ran) {
+            updateLastExecutionTime();
+        }
+        return super.runAllTasks() || ran;
+    }
+
+    @Override
+    protected boolean hasTasks() {
+        return !highPriorityTasks.isEmpty() || (fairRequests != null && !fairRequests.isEmpty()) || super.hasTasks();
+    }
+
+    private Runnable pollNextTask() {
+        var task = highPriorityTasks.poll();
+        if (task != null || fairRequests == null) {
+            return task != null ? task : pollTask();
+        }
+        // alternate so neither new requests nor sends and responses of already rebuilt ones can starve the other
+        fairRequestsFirst = !fairRequestsFirst;
+        if (fairRequestsFirst) {
+            task = fairRequests.poll();
+            return task != null ? task : pollTask();
+        }
+        task = pollTask();
+        return task != null ? task : fairRequests.poll();
+    }
+
     @Override
     public void run() {
         var threadProperties = this.threadProperties();
@@ -203,11 +472,12 @@ public class GatewayThread extends SingleThreadEventLoop {
                     var timeLeftForWaitingForShutdown = gracefulShutdownQuietPeriodCustom - timeFromShutDown;
                     upstreamIOOrchestration.poll(timeLeftForWaitingForShutdown);
                 } else {
-                    upstreamIOOrchestration.poll(Long.MAX_VALUE);
+                    upstreamIOOrchestration.poll(upstreamIOOrchestration.nextProbeDelayMs());
                 }
 
                 handleDisconnections();
                 handleReceivers();
+                upstreamIOOrchestration.probeIfDue(inFlightRequestService::nextCorrelationId);
             } catch (IOException e) {
                 // If we receive an IOException here its because the Selector is messed up. Let's rebuild
                 // the selector and retry. https://github.com/netty/netty/issues/8566
@@ -249,22 +519,50 @@ public class GatewayThread extends SingleThreadEventLoop {
     }
 
     private void scheduleQueueRequestToKafka(ClientRequest clientRequest) {
+        if (isHighPriority(clientRequest)) {
+            executeHighPriority(() -> queueRequestToSendToKafka(clientRequest));
+            return;
+        }
         execute(() -> queueRequestToSendToKafka(clientRequest));
     }
 
     private void scheduleSendResponse(ClientRequest clientRequest) {
+        if (isHighPriority(clientRequest)) {
+            executeHighPriority(() -> clientRequest.getGatewayChannel().sendResponse());
+            return;
+        }
         execute(() -> clientRequest.getGatewayChannel().sendResponse());
     }
 
 
+    /**
+     * the client connection may only move to another thread once its request is in its pending queues
+     */
+    private void rebuildSubmitted(ByteBuf buf, GatewayChannel gatewayChannel) {
+        try {
+            rebuild(buf, gatewayChannel);
+        } finally {
+            gatewayChannel.submittedRequests().decrementAndGet();
+        }
+    }
+
     private void rebuild(ByteBuf buf, GatewayChannel gatewayChannel) {
+        var event = new RebuildRequestEvent();
+        event.begin();
         var kafkaPayload = buf.nioBuffer();
-        var upStreamConnection = upstreamIOOrchestration.getAssociatedConnection(gatewayChannel);
-        var connectionId = upStreamConnection.getConnectionId();
         var requestHeader = RequestHeader.parse(kafkaPayload);
-        var clientRequest = ClientRequest.initRequest(gatewayChannel, requestHeader, kafkaPayload.duplicate(),
+        var upStreamConnection = upstreamIOOrchestration.getAssociatedConnection(gatewayChannel, requestHeader.apiKey());
+        var connectionId = upStreamConnection.getConnectionId();
+        heavyHitters.record(requestHeader.clientId(), principal(gatewayChannel), buf.readableBytes(), 1);
+        bytes.add(buf.readableBytes());
+        var clientRequest = isFireAndForget(requestHeader, kafkaPayload)
+                ? ClientRequest.initFireAndForgetRequest(gatewayChannel, requestHeader, kafkaPayload.duplicate(),
+                connectionId, inFlightRequestService, this::scheduleSendResponse, this::scheduleQueueRequestToKafka)
+                : ClientRequest.initRequest(gatewayChannel, requestHeader, kafkaPayload.duplicate(),
                 connectionId, inFlightRequestService, this::scheduleSendResponse, this::scheduleQueueRequestToKafka
         );
+        clientRequest.setRecordingInterceptors(slowRequests.isEnabled());
+        var size = kafkaPayload.remaining();
         var threadProperties = this.threadProperties();
         metricsRegistryProvider.registry().counter(MetricsRegistryKeys.THREAD_REBUILD_REQUEST, Tags.of("threadId",
                 String.valueOf(threadProperties.id()), "name", threadProperties.name(), "api_key", requestHeader.apiKey().name())).increment();
@@ -278,9 +576,7 @@ public class GatewayThread extends SingleThreadEventLoop {
                         if (clientRequest.isReadyToReceiver()) {
                             markRequestDone(Unpooled.wrappedBuffer(rebuiltPayload), clientRequest);
                         } else {
-                            var byteBufferSend = new ByteBufferSend(rebuiltPayload);
-                            var networkSend = new NetworkSend(clientRequest.getConnectionId(), byteBufferSend);
-                            clientRequest.readyToSendToKafka(networkSend);
+                            clientRequest.readyToSendToKafka(rebuiltPayload);
                         }
                     })
                     .exceptionally(ex -> {
@@ -299,10 +595,21 @@ public class GatewayThread extends SingleThreadEventLoop {
                     exception);
             errorHandler.handleRequestError(clientRequest, kafkaPayload.duplicate());
         } finally {
+            if (event.shouldCommit()) {
+                event.request(clientRequest);
+                event.size(size);
+                event.commit();
+            }
             buf.release();
         }
     }
 
+    // kafka does not answer produce requests with acks=0
+    private static boolean isFireAndForget(RequestHeader requestHeader, ByteBuffer kafkaPayload) {
+        return requestHeader.apiKey() == ApiKeys.PRODUCE
+                && KafkaFrameScanner.produceAcks(kafkaPayload, requestHeader.apiVersion()) == 0;
+    }
+
     private void logErrorIfRequired(String message, Throwable exception) {
         if (exception instanceof InterceptorIntentionException && !((InterceptorIntentionException) exception).isLogAtErrorLevel()) {
             return;
@@ -320,13 +627,21 @@ public class GatewayThread extends SingleThreadEventLoop {
                 clientRequest.getGatewayChannel().pollTopToSend();
                 return;
             }
+            if (upstreamIOOrchestration.isBackingOff(topRequest.getConnectionId())) {
+                // answered now rather than retried until the backoff is over
+                clientRequest.getGatewayChannel().pollTopToSend();
+                inFlightRequestService.getAndRemoveRequest(clientRequest.getGatewayCorrelationId());
+                failOver(clientRequest, clientRequest.getConnectionId());
+                return;
+            }
         }
-        scheduleQueueRequestToKafka(clientRequest);
+        // retried from the regular queue, so a request waiting for an earlier one of its client cannot starve it
+        execute(() -> queueRequestToSendToKafka(clientRequest));
     }
 
     /**
-     * when our connection got terminated by the server.
-     * what should we do?
+     * when our connection got terminated by the server, either its clients are disconnected too
+     * or, with failover, only the requests in flight on it are failed.
      */
     private void handleDisconnections() {
         for (var connectionId : upstreamIOOrchestration.disconnected()) {
@@ -335,7 +650,33 @@ public class GatewayThread extends SingleThreadEventLoop {
     }
 
     private void processDisconnection(String connectionId) {
-        upstreamIOOrchestration.disconnect(connectionId);
+        if (!upstreamIOOrchestration.isFailoverEnabled()) {
+            upstreamIOOrchestration.disconnect(connectionId);
+            return;
+        }
+        for (var gatewayCorrelationId : upstreamIOOrchestration.failOver(connectionId)) {
+            // gone when it expired meanwhile
+            var clientRequest = inFlightRequestService.getAndRemoveRequest(gatewayCorrelationId);
+            if (clientRequest != null) {
+                failOver(clientRequest, connectionId);
+            }
+        }
+    }
+
+    private void failOver(ClientRequest clientRequest, String connectionId) {
+        failedOverRequestCounter.increment();
+        if (!clientRequest.isExpectingResponse()) {
+            // dropped, as Kafka drops fire and forget requests of a closed connection
+            return;
+        }
+        log.debug("Fail request {} of correlationId {} as its connection {} dropped", clientRequest.getClientRequestHeader().apiKey(),
+                clientRequest.getClientCorrelationId(), connectionId);
+        try {
+            errorHandler.handleUpstreamDisconnection(clientRequest);
+        } catch (Exception ex) {
+            log.error("Cannot answer request {} of correlationId {} after its connection dropped", clientRequest.getClientRequestHeader().apiKey(),
+                    clientRequest.getClientCorrelationId(), ex);
+        }
     }
 
     private void handleReceivers() {
@@ -344,11 +685,24 @@ public class GatewayThread extends SingleThreadEventLoop {
         }
     }
 
-    private void handleReceiver(NetworkReceive receive) {
-        var buf = Unpooled.wrappedBuffer(receive.payload());
+    private void handleReceiver(UpstreamIO.Receive receive) {
+        var event = new ReceiveResponseEvent();
+        event.begin();
+        // released once rebuilt, rebuilders forwarding part of it take their own reference
+        var buf = receive.payload();
+        var size = buf.readableBytes();
+        if (size >= Integer.BYTES && upstreamIOOrchestration.completeProbe(receive.source(), buf.getInt(buf.readerIndex()))) {
+            buf.release();
+            return;
+        }
         var clientRequest = retrieveClientRequest(receive.source(), buf);
+        if (clientRequest == null) {
+            buf.release();
+            return;
+        }
+        upstreamIOOrchestration.completed(receive.source(), clientRequest.getGatewayCorrelationId());
         try {
-            if (clientRequest == null) return;
+            clientRequest.markResponseReceived();
             var requestHeader = clientRequest.getClientRequestHeader();
             log.trace("receiver response of request {}, correlationId {} for source {}", clientRequest.getClientRequestHeader().apiKey(), clientRequest.getClientCorrelationId(), receive.source());
             var reBuilder = rebuildMapper.getReBuilder(requestHeader.apiKey());
@@ -358,10 +712,19 @@ public class GatewayThread extends SingleThreadEventLoop {
                         log.error("Error happen when send response to client: {}", requestHeader, ex);
                         errorHandler.handleResponseError(clientRequest, ex);
                         return null;
-                    });
+                    })
+                    .whenComplete((unused, ex) -> buf.release());
         } catch (Exception ex) {
             log.error("Cannot rebuild message of request {}, correlationId {}", clientRequest.getClientRequestHeader().apiKey(), clientRequest.getClientCorrelationId(), ex);
             errorHandler.handleResponseError(clientRequest, ex);
+            buf.release();
+        } finally {
+            if (event.shouldCommit()) {
+                event.request(clientRequest);
+                event.connectionId(receive.source());
+                event.size(size);
+                event.commit();
+            }
         }
     }
 
@@ -369,10 +732,21 @@ public class GatewayThread extends SingleThreadEventLoop {
         var responseHeaderByteBuf = buffer(RESPONSE_BUFFER_INITIAL_CAPACITY);
         responseHeaderByteBuf.writeInt(buf.readableBytes());
         log.trace("Done rebuild, mark done  of request {}, correlationId {}", clientRequest.getClientRequestHeader().apiKey(), clientRequest.getClientCorrelationId());
+        if (clientRequest.getGatewayChannel() != null) {
+            heavyHitters.record(clientRequest.getClientRequestHeader().clientId(), principal(clientRequest.getGatewayChannel()), buf.readableBytes(), 0);
+        }
+        slowRequests.offer(clientRequest, buf.readableBytes());
+        bytes.add(buf.readableBytes());
         clientRequest.marKDoneWithResponse(wrappedBuffer(responseHeaderByteBuf, buf));
         recordExecutionTime(clientRequest);
     }
 
+    private static String principal(GatewayChannel gatewayChannel) {
+        return gatewayChannel.getAuthenticator().getUser()
+                .map(User::getUsername)
+                .orElse(null);
+    }
+
     private void recordExecutionTime(ClientRequest clientRequest) {
         if (Objects.isNull(!clientRequest.isRecordingMetrics())) {
             return;
@@ -398,4 +772,7 @@ public class GatewayThread extends SingleThreadEventLoop {
         }
     }
 
+    public record DebugInfo(String name, int pendingTasks, int inFlightRequests, List<UpstreamIO.ConnectionState> upstreamConnections) {
+    }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.thread;
+
+import io.conduktor.gateway.config.ThreadAssignmentPolicy;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the least loaded {@link GatewayThread} according to a {@link ThreadAssignmentPolicy}.
+ * Ties go to the thread serving the fewest connections, then to the next one in turn,
+ * so idle threads still share new connections evenly.
+ */
+public class LeastLoadedChooserFactory implements EventExecutorChooserFactory {
+
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ThreadAssignmentPolicy policy;
+
+    public LeastLoadedChooserFactory(ThreadAssignmentPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        var threads = new GatewayThread[executors.length];
+        for (var i = 0; i < executors.length; i++) {
+            threads[i] = (GatewayThread) executors[i];
+        }
+        return new LeastLoadedChooser(threads);
+    }
+
+    private final class LeastLoadedChooser implements EventExecutorChooser {
+
+        private final GatewayThread[] threads;
+        private final long[] windowStartBytes;
+        private final long[] windowStartNanos;
+        private final double[] bytesPerSecond;
+        private int offset;
+
+        private LeastLoadedChooser(GatewayThread[] threads) {
+            this.threads = threads;
+            this.windowStartBytes = new long[threads.length];
+            this.windowStartNanos = new long[threads.length];
+            this.bytesPerSecond = new double[threads.length];
+        }
+
+        // picked on connection, not on request, a lock is fine
+        @Override
+        public synchronized EventExecutor next() {
+            var now = System.nanoTime();
+            var start = offset++ & Integer.MAX_VALUE;
+            var best = -1;
+            var bestLoad = 0d;
+            var bestChannels = 0;
+            for (var i = 0; i < threads.length; i++) {
+                var index = (start + i) % threads.length;
+                var load = load(index, now);
+                var channels = threads[index].downstreamChannels();
+                if (best < 0 || load < bestLoad || (load == bestLoad && channels < bestChannels)) {
+                    best = index;
+                    bestLoad = load;
+                    bestChannels = channels;
+                }
+            }
+            return threads[best];
+        }
+
+        private double load(int index, long now) {
+            var thread = threads[index];
+            return switch (policy) {
+                case ROUND_ROBIN -> 0;
+                case LEAST_PENDING_TASKS -> thread.pendingTasks();
+                case LEAST_IN_FLIGHT -> thread.inFlightRequests();
+                case LEAST_BYTES_RATE -> bytesPerSecond(index, now);
+            };
+        }
+
+        private double bytesPerSecond(int index, long now) {
+            var elapsed = now - windowStartNanos[index];
+            if (elapsed >= RATE_WINDOW_NANOS) {
+                var bytes = threads[index].bytes();
+                bytesPerSecond[index] = windowStartNanos[index] == 0
+                        ? 0
+                        : (bytes - windowStartBytes[index]) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+                windowStartBytes[index] = bytes;
+                windowStartNanos[index] = now;
+            }
+            return bytesPerSecond[index];
+        }
+    }
+}
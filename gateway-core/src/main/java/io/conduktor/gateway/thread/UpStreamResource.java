@@ -18,18 +18,31 @@ package io.conduktor.gateway.thread;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.conduktor.gateway.config.ConnectionConfig;
+import io.conduktor.gateway.config.ThreadAssignmentPolicy;
 import io.conduktor.gateway.config.UpstreamThreadConfig;
 import io.conduktor.gateway.error.handler.ErrorHandler;
+import io.conduktor.gateway.metrics.HeavyHitters;
 import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.metrics.SlowRequestLog;
 import io.conduktor.gateway.rebuilder.components.RebuildMapper;
 import io.conduktor.gateway.service.InFlightRequestService;
+import io.netty.channel.Channel;
 import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.MultithreadEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.Node;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -39,9 +52,20 @@ import static io.conduktor.gateway.metrics.MetricsRegistryKeys.UPSTREAM_NODES;
 /**
  * simple thread group to manage {@link GatewayThread}
  */
+@Slf4j
 public class UpStreamResource extends MultithreadEventLoopGroup {
 
     private final AtomicInteger nodeCount;
+    private final long rebalanceIdleMs;
+    private final boolean batchHandOff;
+    /**
+     * gateway thread paired with each downstream event loop in batch hand-off mode, null otherwise
+     */
+    private volatile Map<EventExecutor, GatewayThread> pairedThreads;
+    /**
+     * runs the upstream channels of the Netty transport, created on first use
+     */
+    private EventLoopGroup upstreamEventLoops;
 
     @Inject
     public UpStreamResource(@Named("upstreamThreadConfig") UpstreamThreadConfig upstreamThreadConfig,
@@ -50,12 +74,76 @@ public class UpStreamResource extends MultithreadEventLoopGroup {
                             RebuildMapper rebuildMapper,
                             InFlightRequestService inFlightRequestService,
                             ErrorHandler errorHandler,
-                            MetricsRegistryProvider metricsRegistryProvider) {
+                            MetricsRegistryProvider metricsRegistryProvider,
+                            HeavyHitters heavyHitters,
+                            SlowRequestLog slowRequestLog,
+                            @Named("batchHandOff") Boolean batchHandOff) {
         super(upstreamThreadConfig.getNumberOfThread(), new ThreadPerTaskExecutor(new DefaultThreadFactory(UpStreamResource.class)),
+                chooserFactory(upstreamThreadConfig.getAssignmentPolicy()),
                 selectorProps.clone(), connectionConfig,
                 rebuildMapper,
-                inFlightRequestService, errorHandler, metricsRegistryProvider, upstreamThreadConfig);
+                inFlightRequestService, errorHandler, metricsRegistryProvider, upstreamThreadConfig, heavyHitters, slowRequestLog);
         this.nodeCount = metricsRegistryProvider.registry().gauge(UPSTREAM_NODES, new AtomicInteger(0));
+        this.rebalanceIdleMs = upstreamThreadConfig.getRebalanceIdleMs();
+        this.batchHandOff = batchHandOff;
+        terminationFuture().addListener(future -> shutdownUpstreamEventLoops());
+    }
+
+    /**
+     * In batch hand-off mode, pairs every downstream event loop with one gateway thread so each thread only
+     * ever receives work from a single event loop, a no-op otherwise. Requests are still rebuilt on the gateway thread,
+     * the pairing only batches the hand-offs between both.
+     */
+    public void pairWith(EventLoopGroup downstream) {
+        if (!batchHandOff) {
+            return;
+        }
+        var gatewayThreads = new ArrayList<GatewayThread>();
+        forEach(executor -> gatewayThreads.add((GatewayThread) executor));
+        var pairs = new IdentityHashMap<EventExecutor, GatewayThread>();
+        for (var eventLoop : downstream) {
+            pairs.put(eventLoop, gatewayThreads.get(pairs.size() % gatewayThreads.size()));
+        }
+        log.info("Paired {} downstream event loops with {} gateway threads", pairs.size(), gatewayThreads.size());
+        this.pairedThreads = pairs;
+    }
+
+    /**
+     * @return the thread paired with the channel event loop in batch hand-off mode, the next one by the assignment policy otherwise
+     */
+    public GatewayThread gatewayThreadFor(Channel channel) {
+        var pairs = pairedThreads;
+        if (pairs != null) {
+            var paired = pairs.get(channel.eventLoop());
+            if (paired != null) {
+                return paired;
+            }
+        }
+        return nextGatewayThread();
+    }
+
+    public boolean batchHandOff() {
+        return batchHandOff;
+    }
+
+    private static EventExecutorChooserFactory chooserFactory(ThreadAssignmentPolicy policy) {
+        return policy == ThreadAssignmentPolicy.ROUND_ROBIN
+                ? DefaultEventExecutorChooserFactory.INSTANCE
+                : new LeastLoadedChooserFactory(policy);
+    }
+
+    /**
+     * @return the thread a new client connection should be served by
+     */
+    public GatewayThread nextGatewayThread() {
+        return (GatewayThread) next();
+    }
+
+    /**
+     * @return how long a client connection must stay idle before it may move to a less loaded thread, 0 never
+     */
+    public long rebalanceIdleMs() {
+        return rebalanceIdleMs;
     }
     @Override
     protected EventLoop newChild(Executor executor, Object... args) {
@@ -66,6 +154,8 @@ public class UpStreamResource extends MultithreadEventLoopGroup {
         var errorHandler = (ErrorHandler) args[4];
         var metricsRegistryProvider = (MetricsRegistryProvider) args[5];
         var upstreamThreadConfig = (UpstreamThreadConfig) args[6];
+        var heavyHitters = (HeavyHitters) args[7];
+        var slowRequestLog = (SlowRequestLog) args[8];
 
         return new GatewayThread(this,
                 executor,
@@ -74,12 +164,33 @@ public class UpStreamResource extends MultithreadEventLoopGroup {
                 selectorProps,
                 connectionConfig,
                 upstreamThreadConfig.getMaxPendingTask(),
+                upstreamThreadConfig.isPrioritizeControlPlane(),
+                upstreamThreadConfig.getFairness(),
                 inFlightRequestService,
                 errorHandler,
-                metricsRegistryProvider
+                metricsRegistryProvider,
+                heavyHitters,
+                slowRequestLog,
+                this::upstreamEventLoop
         );
     }
 
+    /**
+     * @return where a gateway thread using the Netty transport runs its upstream channels
+     */
+    private synchronized EventLoop upstreamEventLoop() {
+        if (upstreamEventLoops == null) {
+            upstreamEventLoops = new NioEventLoopGroup(executorCount(), new DefaultThreadFactory("upstream-io"));
+        }
+        return upstreamEventLoops.next();
+    }
+
+    private synchronized void shutdownUpstreamEventLoops() {
+        if (upstreamEventLoops != null) {
+            upstreamEventLoops.shutdownGracefully();
+        }
+    }
+
     public void registerKafkaNode(Node node) {
         nodeCount.getAndIncrement();
         for (io.netty.util.concurrent.EventExecutor eventExecutor : this) {
@@ -87,6 +198,10 @@ public class UpStreamResource extends MultithreadEventLoopGroup {
         }
     }
 
+    public int nodeCount() {
+        return nodeCount.get();
+    }
+
     public void deregisterKafkaNode(Node node) {
         nodeCount.getAndDecrement();
         for (io.netty.util.concurrent.EventExecutor eventExecutor : this) {
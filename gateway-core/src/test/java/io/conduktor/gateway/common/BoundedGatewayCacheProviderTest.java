@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.common;
+
+import io.conduktor.gateway.config.GatewayCacheConfig;
+import io.conduktor.gateway.config.GatewayCacheType;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BoundedGatewayCacheProviderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MetricsRegistryProvider metricsRegistryProvider;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metricsRegistryProvider = mock(MetricsRegistryProvider.class);
+        when(metricsRegistryProvider.registry()).thenReturn(meterRegistry);
+    }
+
+    @Test
+    public void testMakeCache_shouldBoundEntries() {
+        var provider = provider(bounded(10, 0, 0));
+        var cache = (BoundedGatewayCache<String, String>) provider.makeCache(Serdes.String(), Serdes.String());
+
+        IntStream.range(0, 100).forEach(i -> cache.put("key" + i, "value" + i));
+        cache.cache().cleanUp();
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    public void testMakeCache_shouldBoundSerializedBytes() {
+        var provider = provider(bounded(0, 1_000, 0));
+        var cache = (BoundedGatewayCache<String, String>) provider.makeCache(Serdes.String(), Serdes.String());
+
+        // each entry weighs 100 bytes
+        IntStream.range(0, 100).forEach(i -> cache.put("k%03d".formatted(i), "v".repeat(96)));
+        cache.cache().cleanUp();
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    public void testMakeCache_shouldExportStatistics() {
+        var provider = provider(bounded(10, 0, 0));
+        var cache = provider.makeCache(Serdes.String(), Serdes.String());
+
+        cache.put("key", "value");
+        cache.get("key");
+        cache.get("missing");
+
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testMakeCache_shouldReloadStaleEntriesWithLoader() throws InterruptedException {
+        var provider = provider(bounded(10, 0, 1));
+        var cache = provider.makeCache(Serdes.String(), Serdes.String(), key -> "reloaded");
+
+        cache.put("key", "value");
+        Thread.sleep(10);
+        cache.get("key");
+
+        await().untilAsserted(() -> assertThat(cache.get("key")).isEqualTo("reloaded"));
+    }
+
+    @Test
+    public void testForEach_shouldWalkEveryEntry() {
+        var provider = provider(bounded(10, 0, 0));
+        var cache = provider.makeCache(Serdes.String(), Serdes.String());
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        Map<String, String> seen = new HashMap<>();
+        cache.forEach(seen::put);
+
+        assertThat(seen).isEqualTo(Map.of("a", "1", "b", "2"));
+    }
+
+    private static GatewayCacheConfig bounded(long maxEntries, long maxWeightBytes, long refreshAfterWriteMs) {
+        var cacheConfig = new GatewayCacheConfig();
+        cacheConfig.setType(GatewayCacheType.BOUNDED);
+        cacheConfig.setMaxEntries(maxEntries);
+        cacheConfig.setMaxWeightBytes(maxWeightBytes);
+        cacheConfig.setRefreshAfterWriteMs(refreshAfterWriteMs);
+        return cacheConfig;
+    }
+
+    private BoundedGatewayCacheProvider provider(GatewayCacheConfig cacheConfig) {
+        return new BoundedGatewayCacheProvider(cacheConfig, metricsRegistryProvider);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.common;
+
+import org.apache.kafka.common.message.FetchRequestData;
+import org.apache.kafka.common.message.FetchResponseData;
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.MessageUtil;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KafkaFrameScannerTest {
+
+    private static final Map<String, List<Integer>> EXPECTED = Map.of(
+            "payments.eu", List.of(0, 3),
+            "orders", List.of(1));
+
+    static IntStream produceVersions() {
+        return IntStream.rangeClosed(0, ApiKeys.PRODUCE.latestVersion());
+    }
+
+    static IntStream fetchVersions() {
+        return IntStream.rangeClosed(0, 12);
+    }
+
+    @ParameterizedTest
+    @MethodSource("produceVersions")
+    public void testScanProduceRequest(int version) {
+        var data = new ProduceRequestData()
+                .setTransactionalId(version >= 3 ? "tx" : null)
+                .setAcks((short) -1)
+                .setTimeoutMs(1000);
+        EXPECTED.forEach((topic, partitions) -> {
+            var topicData = new ProduceRequestData.TopicProduceData().setName(topic);
+            partitions.forEach(partition -> topicData.partitionData().add(new ProduceRequestData.PartitionProduceData()
+                    .setIndex(partition)
+                    .setRecords(MemoryRecords.withRecords(CompressionType.NONE, new SimpleRecord("key".getBytes(), "value".getBytes())))));
+            data.topicData().add(topicData);
+        });
+        var body = MessageUtil.toByteBuffer(data, (short) version);
+
+        var frame = KafkaFrameScanner.scanRequest(ApiKeys.PRODUCE, (short) version, body);
+
+        assertThat(frame.partitionsByTopic()).isEqualTo(EXPECTED);
+        assertThat(body.position()).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("produceVersions")
+    public void testProduceAcks(int version) {
+        var data = new ProduceRequestData()
+                .setTransactionalId(version >= 3 ? "tx" : null)
+                .setAcks((short) 0);
+
+        assertThat(KafkaFrameScanner.produceAcks(MessageUtil.toByteBuffer(data, (short) version), (short) version)).isZero();
+    }
+
+    @ParameterizedTest
+    @MethodSource("fetchVersions")
+    public void testScanFetchRequest(int version) {
+        var data = new FetchRequestData()
+                .setMaxWaitMs(500)
+                .setMinBytes(1);
+        EXPECTED.forEach((topic, partitions) -> {
+            var fetchTopic = new FetchRequestData.FetchTopic().setTopic(topic);
+            partitions.forEach(partition -> fetchTopic.partitions().add(new FetchRequestData.FetchPartition()
+                    .setPartition(partition)
+                    .setFetchOffset(42)));
+            data.topics().add(fetchTopic);
+        });
+
+        var frame = KafkaFrameScanner.scanRequest(ApiKeys.FETCH, (short) version, MessageUtil.toByteBuffer(data, (short) version));
+
+        assertThat(frame.partitionsByTopic()).isEqualTo(EXPECTED);
+    }
+
+    @ParameterizedTest
+    @MethodSource("fetchVersions")
+    public void testScanFetchResponse(int version) {
+        var data = new FetchResponseData();
+        EXPECTED.forEach((topic, partitions) -> {
+            var topicResponse = new FetchResponseData.FetchableTopicResponse().setTopic(topic);
+            partitions.forEach(partition -> topicResponse.partitions().add(new FetchResponseData.PartitionData()
+                    .setPartitionIndex(partition)
+                    .setAbortedTransactions(List.of(new FetchResponseData.AbortedTransaction().setProducerId(7)))
+                    .setRecords(MemoryRecords.withRecords(CompressionType.NONE, new SimpleRecord("value".getBytes())))));
+            data.responses().add(topicResponse);
+        });
+
+        var frame = KafkaFrameScanner.scanResponse(ApiKeys.FETCH, (short) version, MessageUtil.toByteBuffer(data, (short) version));
+
+        assertThat(frame.partitionsByTopic()).isEqualTo(EXPECTED);
+    }
+
+    @ParameterizedTest
+    @MethodSource("fetchVersions")
+    public void testScanTruncatedFrame(int version) {
+        var frame = KafkaFrameScanner.scanRequest(ApiKeys.FETCH, (short) version, ByteBuffer.allocate(3));
+
+        assertThat(frame).isNull();
+    }
+}
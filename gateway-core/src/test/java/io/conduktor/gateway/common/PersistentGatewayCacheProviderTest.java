@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.common;
+
+import io.conduktor.gateway.config.GatewayCacheConfig;
+import io.conduktor.gateway.exception.GatewayCacheException;
+import org.apache.kafka.common.serialization.Serdes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PersistentGatewayCacheProviderTest {
+
+    @TempDir
+    Path directory;
+    private PersistentGatewayCacheProvider provider;
+
+    @BeforeEach
+    public void setUp() {
+        var cacheConfig = new GatewayCacheConfig();
+        cacheConfig.setDirectory(directory.toString());
+        cacheConfig.setMaxFileBytes(1 << 20);
+        provider = new PersistentGatewayCacheProvider(cacheConfig);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        provider.close();
+    }
+
+    @Test
+    public void testMakeCache_shouldReturnTheSameCacheForTheSameName() {
+        var cache = provider.makeCache("offsets", Serdes.String(), Serdes.Long());
+        cache.put("key", 1L);
+
+        var again = provider.makeCache("offsets", Serdes.String(), Serdes.Long());
+
+        assertThat(again).isSameAs(cache);
+        assertThat(again.get("key")).isEqualTo(1L);
+    }
+
+    @Test
+    public void testMakeCache_shouldRejectOtherSerdesForTheSameName() {
+        provider.makeCache("offsets", Serdes.String(), Serdes.Long());
+
+        assertThatThrownBy(() -> provider.makeCache("offsets", Serdes.String(), Serdes.String()))
+                .isInstanceOf(GatewayCacheException.class)
+                .hasMessageContaining("offsets");
+        assertThatThrownBy(() -> provider.makeCache("offsets", Serdes.Integer(), Serdes.Long()))
+                .isInstanceOf(GatewayCacheException.class);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.common;
+
+import io.conduktor.gateway.exception.GatewayCacheException;
+import org.apache.kafka.common.serialization.Serdes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PersistentGatewayCacheTest {
+
+    private static final int INITIAL_FILE_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        try (var cache = new Closing(open(1 << 20))) {
+            assertThat(cache.get().put("key", "value")).isNull();
+            assertThat(cache.get().put("key", "other")).isEqualTo("value");
+            assertThat(cache.get().get("key")).isEqualTo("other");
+            assertThat(cache.get().remove("key")).isEqualTo("other");
+            assertThat(cache.get().get("key")).isNull();
+            assertThat(cache.get().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void testPutNull_shouldRemove() throws Exception {
+        var cache = open(1 << 20);
+        cache.put("key", "value");
+        assertThat(cache.put("key", null)).isEqualTo("value");
+        assertThat(cache.get("key")).isNull();
+        assertThat(cache.containsKey("key")).isFalse();
+        cache.close();
+
+        try (var reopened = new Closing(open(1 << 20))) {
+            assertThat(reopened.get().get("key")).isNull();
+            assertThat(reopened.get().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    public void testReopen_shouldRecoverEntries() throws Exception {
+        var cache = open(1 << 20);
+        IntStream.range(0, 100).forEach(i -> cache.put("key" + i, "value" + i));
+        cache.put("key0", "updated");
+        cache.remove("key1");
+        cache.close();
+
+        try (var reopened = new Closing(open(1 << 20))) {
+            assertThat(reopened.get().size()).isEqualTo(99);
+            assertThat(reopened.get().get("key0")).isEqualTo("updated");
+            assertThat(reopened.get().get("key1")).isNull();
+            assertThat(reopened.get().get("key99")).isEqualTo("value99");
+        }
+    }
+
+    @Test
+    public void testPut_shouldGrowFileBeyondInitialSize() throws Exception {
+        try (var cache = new Closing(open(1 << 20))) {
+            IntStream.range(0, 1_000).forEach(i -> cache.get().put("key" + i, "value" + i));
+
+            assertThat(Files.size(file())).isGreaterThan(INITIAL_FILE_BYTES);
+            assertThat(cache.get().get("key999")).isEqualTo("value999");
+        }
+    }
+
+    @Test
+    public void testPut_shouldCompactOverwrittenEntries() throws Exception {
+        try (var cache = new Closing(open(INITIAL_FILE_BYTES * 2))) {
+            // far more than the file could hold without dropping dead records
+            IntStream.range(0, 10_000).forEach(i -> cache.get().put("key" + (i % 10), "value" + i));
+
+            assertThat(Files.size(file())).isLessThanOrEqualTo(INITIAL_FILE_BYTES * 2);
+            Map<String, String> all = new HashMap<>();
+            cache.get().forEach(all::put);
+            assertThat(all).hasSize(10).containsEntry("key9", "value9999");
+        }
+    }
+
+    @Test
+    public void testPut_shouldFailWhenFileIsFull() throws Exception {
+        try (var cache = new Closing(open(INITIAL_FILE_BYTES))) {
+            assertThatThrownBy(() -> IntStream.range(0, 1_000).forEach(i -> cache.get().put("key" + i, "value" + i)))
+                    .isInstanceOf(GatewayCacheException.class);
+        }
+    }
+
+    @Test
+    public void testClear_shouldNotRecoverClearedEntries() throws Exception {
+        var cache = open(1 << 20);
+        IntStream.range(0, 100).forEach(i -> cache.put("key" + i, "value" + i));
+        cache.clear();
+        cache.put("kept", "value");
+        cache.close();
+
+        try (var reopened = new Closing(open(1 << 20))) {
+            assertThat(reopened.get().keySet()).containsExactly("kept");
+        }
+    }
+
+    @Test
+    public void testOpen_shouldFailWhileAnotherCacheHoldsTheFile() throws Exception {
+        var cache = open(1 << 20);
+
+        assertThatThrownBy(() -> open(1 << 20))
+                .isInstanceOf(GatewayCacheException.class)
+                .hasMessageContaining("already used");
+
+        cache.close();
+        try (var reopened = new Closing(open(1 << 20))) {
+            assertThat(reopened.get().isEmpty()).isTrue();
+        }
+    }
+
+    private PersistentGatewayCache<String, String> open(int maxFileBytes) {
+        return new PersistentGatewayCache<>(file(), Serdes.String(), Serdes.String(), INITIAL_FILE_BYTES, maxFileBytes);
+    }
+
+    private Path file() {
+        return directory.resolve("test.cache");
+    }
+
+    private record Closing(PersistentGatewayCache<String, String> get) implements AutoCloseable {
+        @Override
+        public void close() throws Exception {
+            get.close();
+        }
+    }
+}
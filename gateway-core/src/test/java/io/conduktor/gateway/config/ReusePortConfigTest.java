@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReusePortConfigTest {
+
+    @Test
+    public void testShareOf_shouldRoundTheShareOfCoresDown() {
+        var config = new ReusePortConfig(true, 3);
+
+        assertThat(config.shareOf(16, 8)).isEqualTo(2);
+        assertThat(config.shareOf(16, 12)).isEqualTo(4);
+    }
+
+    @Test
+    public void testShareOf_shouldKeepASmallerPoolAsIs() {
+        var config = new ReusePortConfig(true, 2);
+
+        assertThat(config.shareOf(3, 16)).isEqualTo(3);
+    }
+
+    @Test
+    public void testShareOf_shouldKeepOneThreadWhenProcessesOutnumberCores() {
+        var config = new ReusePortConfig(true, 8);
+
+        assertThat(config.shareOf(16, 4)).isEqualTo(1);
+    }
+
+    @Test
+    public void testShareOf_shouldNotCapWithoutOtherProcesses() {
+        var config = new ReusePortConfig();
+        config.setProcesses(0);
+
+        assertThat(config.getProcesses()).isEqualTo(1);
+        assertThat(config.shareOf(16, 4)).isEqualTo(16);
+        assertThat(new ReusePortConfig(true, 0).shareOf(16, 4)).isEqualTo(16);
+        assertThat(new ReusePortConfig(true, -2).shareOf(16, 4)).isEqualTo(16);
+    }
+}
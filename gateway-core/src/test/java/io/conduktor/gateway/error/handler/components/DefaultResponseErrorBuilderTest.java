@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.error.handler.components;
+
+import io.conduktor.gateway.common.KafkaFrameScanner;
+import org.apache.kafka.common.errors.PolicyViolationException;
+import org.apache.kafka.common.message.FetchResponseData;
+import org.apache.kafka.common.message.ProduceResponseData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.protocol.MessageUtil;
+import org.apache.kafka.common.requests.FetchResponse;
+import org.apache.kafka.common.requests.ProduceResponse;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class DefaultResponseErrorBuilderTest {
+
+    private final DefaultResponseErrorBuilder<?, ?> responseErrorBuilder = new DefaultResponseErrorBuilder<>();
+
+    static IntStream produceVersions() {
+        return IntStream.rangeClosed(0, ApiKeys.PRODUCE.latestVersion());
+    }
+
+    static IntStream fetchVersions() {
+        return IntStream.rangeClosed(0, 12);
+    }
+
+    private static KafkaFrameScanner.ScannedFrame frame() {
+        var partitionsByTopic = new LinkedHashMap<String, List<Integer>>();
+        partitionsByTopic.put("payments", List.of(0, 2));
+        partitionsByTopic.put("orders", List.of(1));
+        return new KafkaFrameScanner.ScannedFrame(partitionsByTopic);
+    }
+
+    @ParameterizedTest
+    @MethodSource("produceVersions")
+    public void testProduceErrorFromFrame(int version) {
+        var response = (ProduceResponse) responseErrorBuilder.fromFrame(ApiKeys.PRODUCE, (short) version, frame(), new PolicyViolationException("denied"));
+
+        assertThat(response.errorCounts()).containsEntry(Errors.POLICY_VIOLATION, 3);
+        assertThat(response.data().responses())
+                .extracting(ProduceResponseData.TopicProduceResponse::name)
+                .containsExactly("payments", "orders");
+        // must be serializable at the requested version
+        assertThat(MessageUtil.toByteBuffer(response.data(), (short) version).remaining()).isPositive();
+    }
+
+    @ParameterizedTest
+    @MethodSource("fetchVersions")
+    public void testFetchErrorFromFrame(int version) {
+        var response = (FetchResponse) responseErrorBuilder.fromFrame(ApiKeys.FETCH, (short) version, frame(), new IllegalStateException());
+
+        assertThat(response.data().responses().get(0).partitions())
+                .extracting(FetchResponseData.PartitionData::partitionIndex, partition -> Errors.forCode(partition.errorCode()))
+                .containsExactly(
+                        tuple(0, Errors.UNKNOWN_SERVER_ERROR),
+                        tuple(2, Errors.UNKNOWN_SERVER_ERROR));
+        assertThat(MessageUtil.toByteBuffer(response.data(), (short) version).remaining()).isPositive();
+    }
+}
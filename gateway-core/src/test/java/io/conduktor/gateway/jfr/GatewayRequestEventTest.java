@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.jfr;
+
+import io.conduktor.gateway.service.ClientRequest;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GatewayRequestEventTest {
+
+    @Test
+    public void testBundledSettings_shouldRecordRequestsOverTheirThreshold(@TempDir Path tempDir) throws Exception {
+        Configuration configuration;
+        try (var settings = new InputStreamReader(getClass().getResourceAsStream("/gateway.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(settings);
+        }
+        var clientRequest = new ClientRequest(new RequestHeader(ApiKeys.METADATA, ApiKeys.METADATA.latestVersion(), "client-a", 42),
+                ByteBuffer.allocate(0), "0");
+        var recordingFile = tempDir.resolve("gateway.jfr");
+
+        try (var recording = new Recording(configuration)) {
+            recording.start();
+            var fast = new RebuildRequestEvent();
+            fast.begin();
+            fast.request(clientRequest);
+            fast.commit();
+            var slow = new RebuildRequestEvent();
+            slow.begin();
+            Thread.sleep(Duration.ofMillis(20).toMillis());
+            slow.request(clientRequest);
+            slow.size(128);
+            slow.commit();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        var events = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getEventType().getName().equals("io.conduktor.gateway.RebuildRequest"))
+                .toList();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getString("apiKey")).isEqualTo("METADATA");
+        assertThat(events.get(0).getString("clientId")).isEqualTo("client-a");
+        assertThat(events.get(0).getInt("clientCorrelationId")).isEqualTo(42);
+        assertThat(events.get(0).getLong("size")).isEqualTo(128);
+        assertThat(events.get(0).getThread().getJavaName()).isEqualTo(Thread.currentThread().getName());
+    }
+}
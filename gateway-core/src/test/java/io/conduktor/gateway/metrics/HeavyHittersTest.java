@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.metrics;
+
+import io.conduktor.gateway.config.HeavyHittersConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeavyHittersTest {
+
+    @Test
+    public void testSpaceSaving_shouldKeepHeavyKeysWhenLightOnesAreEvicted() {
+        var sketch = new SpaceSaving(2);
+        sketch.add("heavy", 1000, 1);
+        sketch.add("light-1", 10, 1);
+        sketch.add("light-2", 10, 1);
+
+        var snapshot = sketch.drain();
+
+        assertThat(snapshot.hitters()).extracting(SpaceSaving.Hitter::key).containsExactlyInAnyOrder("heavy", "light-2");
+        assertThat(snapshot.totalBytes()).isEqualTo(1020);
+        assertThat(snapshot.totalRequests()).isEqualTo(3);
+        assertThat(sketch.drain().hitters()).isEmpty();
+    }
+
+    @Test
+    public void testSpaceSaving_shouldEvictTheLightestSlot() {
+        var sketch = new SpaceSaving(4);
+        sketch.add("a", 40, 1);
+        sketch.add("b", 10, 1);
+        sketch.add("c", 30, 1);
+        sketch.add("d", 20, 1);
+        sketch.add("b", 25, 1);
+        sketch.add("e", 5, 1);
+        sketch.add("f", 1, 1);
+
+        var snapshot = sketch.drain();
+
+        // b grew to 35 so e took over d at 20, then f took over e at 25
+        assertThat(snapshot.hitters()).extracting(SpaceSaving.Hitter::key).containsExactlyInAnyOrder("a", "b", "c", "f");
+        assertThat(snapshot.hitters()).filteredOn(hitter -> hitter.key().equals("f")).extracting(SpaceSaving.Hitter::bytes).containsExactly(26L);
+    }
+
+    @Test
+    public void testExport_shouldForgetTerminatedThreadsAfterExportingThem() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var heavyHitters = new HeavyHitters(new HeavyHittersConfig(true, 1, 10, 10_000), new MetricsRegistryProvider(registry));
+        var thread = new FastThreadLocalThread(() -> heavyHitters.record("client-a", "alice", 1000, 1));
+        thread.start();
+        thread.join();
+        assertThat(heavyHitters.trackedThreads()).isEqualTo(1);
+
+        heavyHitters.export();
+
+        assertThat(bytes(registry, "client_id", "client-a")).isEqualTo(1000);
+        assertThat(heavyHitters.trackedThreads()).isZero();
+    }
+
+    @Test
+    public void testExport_shouldExportTopKAndSumTheRestAsOther() {
+        var registry = new SimpleMeterRegistry();
+        var heavyHitters = new HeavyHitters(new HeavyHittersConfig(true, 1, 10, 10_000), new MetricsRegistryProvider(registry));
+        heavyHitters.record("client-a", "alice", 1000, 1);
+        heavyHitters.record("client-a", "alice", 500, 0);
+        heavyHitters.record("client-b", "bob", 100, 1);
+        heavyHitters.record("client-c", "bob", 100, 1);
+
+        heavyHitters.export();
+
+        assertThat(bytes(registry, "client_id", "client-a")).isEqualTo(1500);
+        assertThat(requests(registry, "client_id", "client-a")).isEqualTo(1);
+        assertThat(bytes(registry, "client_id", HeavyHitters.OTHER)).isEqualTo(200);
+        assertThat(requests(registry, "client_id", HeavyHitters.OTHER)).isEqualTo(2);
+        assertThat(bytes(registry, "principal", "alice")).isEqualTo(1500);
+        assertThat(registry.find(MetricsRegistryKeys.HEAVY_HITTERS_BYTES).tag("key", "client-b").gauge()).isNull();
+    }
+
+    @Test
+    public void testExport_shouldRemoveKeysThatLeftTheTopK() {
+        var registry = new SimpleMeterRegistry();
+        var heavyHitters = new HeavyHitters(new HeavyHittersConfig(true, 1, 10, 10_000), new MetricsRegistryProvider(registry));
+        heavyHitters.record("client-a", "alice", 1000, 1);
+        heavyHitters.export();
+        heavyHitters.record("client-b", "alice", 1000, 1);
+
+        heavyHitters.export();
+
+        assertThat(registry.find(MetricsRegistryKeys.HEAVY_HITTERS_BYTES).tag("key", "client-a").gauge()).isNull();
+        assertThat(bytes(registry, "client_id", "client-b")).isEqualTo(1000);
+        assertThat(bytes(registry, "client_id", HeavyHitters.OTHER)).isZero();
+    }
+
+    private static double bytes(SimpleMeterRegistry registry, String dimension, String key) {
+        return registry.get(MetricsRegistryKeys.HEAVY_HITTERS_BYTES).tags("dimension", dimension, "key", key).gauge().value();
+    }
+
+    private static double requests(SimpleMeterRegistry registry, String dimension, String key) {
+        return registry.get(MetricsRegistryKeys.HEAVY_HITTERS_REQUESTS).tags("dimension", dimension, "key", key).gauge().value();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.metrics;
+
+import io.conduktor.gateway.config.SlowRequestLogConfig;
+import io.conduktor.gateway.interceptor.DirectionType;
+import io.conduktor.gateway.service.ClientRequest;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlowRequestLogTest {
+
+    @Test
+    public void testOffer_shouldOnlyKeepRequestsOverTheThreshold() {
+        var slowRequestLog = new SlowRequestLog(new SlowRequestLogConfig(true, 60_000, 8));
+
+        slowRequestLog.newRing().offer(clientRequest(1), 10);
+
+        assertThat(slowRequestLog.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void testRecordInterceptor_shouldRecordNothingWhenNotRecording() {
+        var clientRequest = clientRequest(1);
+
+        clientRequest.recordInterceptor("io.example.Interceptor", DirectionType.REQUEST, System.nanoTime());
+
+        assertThat(clientRequest.getInterceptorTimings()).isEmpty();
+    }
+
+    @Test
+    public void testOffer_shouldOverwriteTheOldestRequests() {
+        var slowRequestLog = new SlowRequestLog(new SlowRequestLogConfig(true, 0, 2));
+        var ring = slowRequestLog.newRing();
+
+        for (var correlationId = 1; correlationId <= 3; correlationId++) {
+            ring.offer(clientRequest(correlationId), 10);
+        }
+
+        assertThat(slowRequestLog.snapshot())
+                .extracting(SlowRequestLog.SlowRequest::clientCorrelationId)
+                .containsExactlyInAnyOrder(2, 3);
+    }
+
+    @Test
+    public void testOffer_shouldKeepTheStageTimeline() {
+        var slowRequestLog = new SlowRequestLog(new SlowRequestLogConfig(true, 0, 8));
+        var clientRequest = clientRequest(1);
+        clientRequest.setRecordingInterceptors(true);
+        clientRequest.recordInterceptor("io.example.Interceptor", DirectionType.REQUEST, System.nanoTime());
+        clientRequest.markSentToKafka();
+        clientRequest.markResponseReceived();
+
+        slowRequestLog.newRing().offer(clientRequest, 42);
+
+        var slowRequest = slowRequestLog.snapshot().get(0);
+        assertThat(slowRequest.apiKey()).isEqualTo("PRODUCE");
+        assertThat(slowRequest.clientId()).isEqualTo("client-a");
+        assertThat(slowRequest.requestBytes()).isEqualTo(16);
+        assertThat(slowRequest.responseBytes()).isEqualTo(42);
+        assertThat(slowRequest.totalMicros()).isNotNegative();
+        // never rebuilt through readyToSendToKafka
+        assertThat(slowRequest.rebuildRequestMicros()).isEqualTo(-1);
+        assertThat(slowRequest.upstreamMicros()).isNotNegative();
+        assertThat(slowRequest.interceptors()).extracting(ClientRequest.InterceptorTiming::interceptor)
+                .containsExactly("io.example.Interceptor");
+    }
+
+    @Test
+    public void testOffer_shouldKeepNothingWhenDisabled() {
+        var slowRequestLog = new SlowRequestLog(new SlowRequestLogConfig(false, 0, 8));
+
+        slowRequestLog.newRing().offer(clientRequest(1), 10);
+
+        assertThat(slowRequestLog.snapshot()).isEmpty();
+    }
+
+    private static ClientRequest clientRequest(int correlationId) {
+        return new ClientRequest(new RequestHeader(ApiKeys.PRODUCE, ApiKeys.PRODUCE.latestVersion(), "client-a", correlationId),
+                ByteBuffer.allocate(16), "0");
+    }
+}
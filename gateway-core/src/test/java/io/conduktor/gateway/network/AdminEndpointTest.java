@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.config.AdminEndpointConfig;
+import io.conduktor.gateway.config.HostPortConfiguration;
+import io.conduktor.gateway.config.ReusePortConfig;
+import io.conduktor.gateway.config.SlowRequestLogConfig;
+import io.conduktor.gateway.exception.GatewayStartFailException;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.metrics.SlowRequestLog;
+import io.conduktor.gateway.service.ClientRequest;
+import io.conduktor.gateway.thread.UpStreamResource;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdminEndpointTest {
+
+    private PrometheusMeterRegistry registry;
+    private UpStreamResource upStreamResource;
+    private SlowRequestLog slowRequestLog;
+    private AdminEndpoint adminEndpoint;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        upStreamResource = mock(UpStreamResource.class);
+        slowRequestLog = new SlowRequestLog(new SlowRequestLogConfig(true, 0, 8));
+        adminEndpoint = new AdminEndpoint(new AdminEndpointConfig(true, 0, 60_000), new HostPortConfiguration(),
+                mock(GatewayBrokers.class), registry, upStreamResource, slowRequestLog);
+        channel = new EmbeddedChannel(adminEndpoint.newHandler());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        adminEndpoint.close();
+    }
+
+    @Test
+    public void testMetrics_shouldServeTheCachedScrape() {
+        registry.counter("requests").increment();
+
+        var first = get("/metrics");
+        registry.counter("requests_after_scrape").increment();
+        var second = get("/metrics");
+
+        assertThat(first.status()).isEqualTo(HttpResponseStatus.OK);
+        assertThat(body(first)).contains("requests_total 1.0");
+        assertThat(body(second)).isEqualTo(body(first)).doesNotContain("requests_after_scrape");
+        first.release();
+        second.release();
+    }
+
+    @Test
+    public void testHealth_shouldBeDownUntilAKafkaNodeIsKnown() {
+        var down = get("/health");
+        when(upStreamResource.nodeCount()).thenReturn(3);
+        var up = get("/health");
+
+        assertThat(down.status()).isEqualTo(HttpResponseStatus.SERVICE_UNAVAILABLE);
+        assertThat(up.status()).isEqualTo(HttpResponseStatus.OK);
+        assertThat(body(up)).contains("\"status\":\"UP\"").contains("\"kafkaNodes\":3");
+        down.release();
+        up.release();
+    }
+
+    @Test
+    public void testSlowRequests_shouldServeTheTimelineOfSlowRequests() {
+        var clientRequest = new ClientRequest(new RequestHeader(ApiKeys.FETCH, ApiKeys.FETCH.latestVersion(), "client-a", 7),
+                ByteBuffer.allocate(10), "3");
+        slowRequestLog.newRing().offer(clientRequest, 100);
+
+        var response = get("/debug/slow-requests");
+
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.OK);
+        assertThat(body(response)).contains("\"apiKey\":\"FETCH\"").contains("\"upstreamConnectionId\":\"3\"");
+        response.release();
+    }
+
+    @Test
+    public void testUnknownPath_shouldBeNotFound() {
+        var response = get("/unknown");
+
+        assertThat(response.status()).isEqualTo(HttpResponseStatus.NOT_FOUND);
+        response.release();
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    public void testStart_shouldAskForAnAdminPortPerProcessWithReusePort() throws Exception {
+        var hostPortConfiguration = new HostPortConfiguration();
+        hostPortConfiguration.setGatewayBindHost(InetAddress.getLoopbackAddress().getHostAddress());
+        var gatewayBrokers = new GatewayBrokers(1, new ReusePortConfig(true, 2), hostPortConfiguration,
+                new MetricsRegistryProvider(registry));
+        try (var otherProcess = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            var endpoint = new AdminEndpoint(new AdminEndpointConfig(true, otherProcess.getLocalPort(), 60_000), hostPortConfiguration,
+                    gatewayBrokers, registry, upStreamResource, slowRequestLog);
+
+            assertThatThrownBy(endpoint::start)
+                    .isInstanceOfSatisfying(GatewayStartFailException.class, e -> assertThat(e.getReason())
+                            .contains(String.valueOf(otherProcess.getLocalPort()))
+                            .contains("ADMIN_ENDPOINT_PORT"));
+        } finally {
+            gatewayBrokers.close();
+        }
+    }
+
+    private FullHttpResponse get(String uri) {
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri));
+        return channel.readOutbound();
+    }
+
+    private static String body(FullHttpResponse response) {
+        return response.content().toString(StandardCharsets.UTF_8);
+    }
+}
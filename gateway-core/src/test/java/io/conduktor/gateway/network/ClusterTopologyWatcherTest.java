@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.config.GaugeBackendBrokersTimerConfig;
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.service.ClientService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ClusterTopologyWatcherTest {
+
+    private static final Node BROKER_0 = new Node(0, "broker-0", 9092);
+    private static final Node BROKER_1 = new Node(1, "broker-1", 9092);
+
+    private final ClientService clientService = mock(ClientService.class);
+    private final BrokerManager brokerManager = mock(BrokerManager.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ClusterTopologyWatcher watcher;
+
+    @AfterEach
+    public void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    public void testRefresh_shouldMapAChangedNodeList() {
+        when(clientService.describeClusterNodes()).thenReturn(KafkaFuture.completedFuture(List.of(BROKER_0, BROKER_1)));
+        watcher = watcher(new GaugeBackendBrokersTimerConfig(1, 10));
+
+        watcher.start();
+
+        verify(brokerManager).getRealToGatewayMap(List.of(BROKER_0));
+        verify(brokerManager, timeout(5000)).getRealToGatewayMap(argThat((List<Node> nodes) -> nodes.size() == 2 && nodes.containsAll(List.of(BROKER_0, BROKER_1))));
+        // the same nodes polled again are not mapped twice
+        verify(clientService, timeout(5000).atLeast(3)).describeClusterNodes();
+        verify(brokerManager, times(2)).getRealToGatewayMap(any(List.class));
+    }
+
+    @Test
+    public void testUnknownBroker_shouldRefreshBeforeTheNextPoll() {
+        doCallRealMethod().when(brokerManager).setUnknownBrokerListener(any());
+        doCallRealMethod().when(brokerManager).unknownBrokerSeen();
+        when(clientService.describeClusterNodes()).thenReturn(KafkaFuture.completedFuture(List.of(BROKER_0, BROKER_1)));
+        watcher = watcher(new GaugeBackendBrokersTimerConfig(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        watcher.start();
+        verify(clientService, after(100).never()).describeClusterNodes();
+
+        brokerManager.unknownBrokerSeen();
+
+        verify(brokerManager, timeout(5000)).getRealToGatewayMap(argThat((List<Node> nodes) -> nodes.size() == 2));
+    }
+
+    @Test
+    public void testRefresh_shouldKeepTheMappingWhenDescribeClusterFails() {
+        var failed = new KafkaFutureImpl<Collection<Node>>();
+        failed.completeExceptionally(new TimeoutException("describeCluster timed out"));
+        when(clientService.describeClusterNodes())
+                .thenReturn(failed)
+                .thenReturn(KafkaFuture.completedFuture(List.of(BROKER_0)));
+        watcher = watcher(new GaugeBackendBrokersTimerConfig(1, 10));
+
+        watcher.start();
+
+        verify(clientService, timeout(5000).atLeast(2)).describeClusterNodes();
+        verify(brokerManager).getRealToGatewayMap(List.of(BROKER_0));
+        assertThat(registry.get(MetricsRegistryKeys.BACKEND_BROKERS).gauge().value()).isEqualTo(1);
+    }
+
+    private ClusterTopologyWatcher watcher(GaugeBackendBrokersTimerConfig timerConfig) {
+        return new ClusterTopologyWatcher(clientService, brokerManager, timerConfig, List.of(BROKER_0),
+                new MetricsRegistryProvider(registry));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.config.HostPortConfiguration;
+import io.conduktor.gateway.config.ReusePortConfig;
+import io.conduktor.gateway.exception.GatewayStartFailException;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class GatewayBrokersTest {
+
+    @Test
+    public void testReusePort_shouldRefuseToStartWithoutEpoll() {
+        try (var epoll = Mockito.mockStatic(Epoll.class)) {
+            epoll.when(Epoll::isAvailable).thenReturn(false);
+            epoll.when(Epoll::unavailabilityCause).thenReturn(new UnsatisfiedLinkError("no native library"));
+
+            assertThatThrownBy(() -> gatewayBrokers(true))
+                    .isInstanceOfSatisfying(GatewayStartFailException.class, e -> assertThat(e.getReason())
+                            .contains("epoll")
+                            .contains("no native library"));
+        }
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    public void testReusePort_shouldLetTwoGatewaysBindTheSamePort() throws IOException {
+        var port = freePort();
+        var first = gatewayBrokers(true);
+        var second = gatewayBrokers(true);
+        try {
+            first.acquirePort(port, mock(GatewayChannelInitializer.class));
+            second.acquirePort(port, mock(GatewayChannelInitializer.class));
+
+            assertThat(first.serverChannelType()).isEqualTo(second.serverChannelType());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    public void testNoReusePort_shouldFailToBindATakenPort() throws IOException {
+        var port = freePort();
+        var first = gatewayBrokers(false);
+        var second = gatewayBrokers(false);
+        try {
+            first.acquirePort(port, mock(GatewayChannelInitializer.class));
+
+            assertThatThrownBy(() -> second.acquirePort(port, mock(GatewayChannelInitializer.class)))
+                    .isInstanceOf(GatewayStartFailException.class);
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    private static GatewayBrokers gatewayBrokers(boolean reusePort) {
+        var hostPortConfiguration = new HostPortConfiguration();
+        hostPortConfiguration.setGatewayBindHost(InetAddress.getLoopbackAddress().getHostAddress());
+        return new GatewayBrokers(1, new ReusePortConfig(reusePort, 2), hostPortConfiguration,
+                new MetricsRegistryProvider(new SimpleMeterRegistry()));
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.authorization.SecurityHandler;
+import io.conduktor.gateway.service.ClientRequest;
+import io.conduktor.gateway.thread.GatewayThread;
+import io.conduktor.gateway.thread.UpStreamResource;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.SocketChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GatewayChannelTest {
+
+    private final SocketChannel socketChannel = mock(SocketChannel.class);
+    private final EventLoop eventLoop = mock(EventLoop.class);
+    private final GatewayThread gatewayThread = mock(GatewayThread.class);
+    private final ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+    private GatewayChannel gatewayChannel;
+
+    @BeforeEach
+    public void setUp() {
+        when(socketChannel.remoteAddress()).thenReturn(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        when(socketChannel.closeFuture()).thenReturn(mock(ChannelFuture.class));
+        when(socketChannel.eventLoop()).thenReturn(eventLoop);
+        var authenticator = mock(SecurityHandler.class);
+        when(authenticator.complete()).thenReturn(true);
+        var upStreamResource = mock(UpStreamResource.class);
+        when(upStreamResource.batchHandOff()).thenReturn(true);
+        var brokerManager = mock(BrokerManager.class);
+        when(brokerManager.getUpStreamResource()).thenReturn(upStreamResource);
+        gatewayChannel = new GatewayChannel(authenticator, brokerManager, socketChannel, gatewayThread, "localhost");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testBatchHandOff_shouldHandAReadBurstOverOnceInReadOrder() throws Exception {
+        var first = request(1);
+        var second = request(2);
+        var third = request(3);
+
+        gatewayChannel.channelRead(ctx, first);
+        gatewayChannel.channelRead(ctx, second);
+        gatewayChannel.channelRead(ctx, third);
+        verify(gatewayThread, never()).justSend(any(List.class), any());
+        gatewayChannel.channelReadComplete(ctx);
+        gatewayChannel.channelReadComplete(ctx);
+
+        ArgumentCaptor<List<ByteBuf>> batch = ArgumentCaptor.forClass(List.class);
+        verify(gatewayThread).justSend(batch.capture(), eq(gatewayChannel));
+        verify(gatewayThread, never()).justSend(any(ByteBuf.class), any());
+        assertThat(batch.getValue()).containsExactly(first, second, third);
+        // the channel released its read, the gateway thread owns the retained buffers
+        assertThat(batch.getValue()).allMatch(buf -> buf.refCnt() == 1);
+    }
+
+    @Test
+    public void testBatchHandOff_shouldWriteDoneResponsesInRequestOrderWithASingleFlush() {
+        var firstResponse = Unpooled.buffer(1).writeByte(1);
+        var secondResponse = Unpooled.buffer(1).writeByte(2);
+        var first = doneRequest(firstResponse);
+        var second = doneRequest(secondResponse);
+        var third = mock(ClientRequest.class);
+        when(third.isExpectingResponse()).thenReturn(true);
+        gatewayChannel.enqueueRequest(first);
+        gatewayChannel.enqueueRequest(second);
+        gatewayChannel.enqueueRequest(third);
+
+        gatewayChannel.sendResponse();
+        gatewayChannel.sendResponse();
+
+        var flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(eventLoop).execute(flush.capture());
+        flush.getValue().run();
+        var inOrder = inOrder(socketChannel);
+        inOrder.verify(socketChannel).write(firstResponse);
+        inOrder.verify(socketChannel).write(secondResponse);
+        inOrder.verify(socketChannel).flush();
+        verify(socketChannel, never()).writeAndFlush(any());
+        // still waiting for the third response
+        assertThat(gatewayChannel.inFlightRequests()).isEqualTo(1);
+    }
+
+    private static ByteBuf request(int correlationId) {
+        return Unpooled.buffer().writeShort(0).writeShort(7).writeInt(correlationId);
+    }
+
+    private static ClientRequest doneRequest(ByteBuf response) {
+        var request = mock(ClientRequest.class);
+        when(request.isExpectingResponse()).thenReturn(true);
+        when(request.isDone()).thenReturn(true);
+        when(request.claimResponse()).thenReturn(true);
+        when(request.getResponse()).thenReturn(response);
+        return request;
+    }
+}
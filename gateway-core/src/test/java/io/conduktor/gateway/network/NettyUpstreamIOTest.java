@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.config.ConnectionConfig;
+import io.conduktor.gateway.config.ConnectionLanesConfig;
+import io.conduktor.gateway.config.UpstreamFailoverConfig;
+import io.conduktor.gateway.config.UpstreamTransport;
+import io.conduktor.gateway.config.UpstreamWarmPoolConfig;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class NettyUpstreamIOTest {
+
+    private final NioEventLoopGroup group = new NioEventLoopGroup(1);
+    private final List<Channel> brokerChannels = new CopyOnWriteArrayList<>();
+    private Channel broker;
+    private NettyUpstreamIO upstreamIO;
+
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        // echoes every request back, so the size prefixed request comes back as a response frame
+        broker = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        brokerChannels.add(channel);
+                        channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                ctx.writeAndFlush(msg);
+                            }
+                        });
+                    }
+                })
+                .bind("localhost", 0)
+                .sync()
+                .channel();
+        upstreamIO = new NettyUpstreamIO(new Properties(), new ConnectionConfig(1, 0, UpstreamTransport.NETTY, new ConnectionLanesConfig(), new UpstreamFailoverConfig(), new UpstreamWarmPoolConfig()), group::next);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        upstreamIO.close();
+        broker.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Test
+    public void testSend_shouldQueueTheResponseFrameForTheGatewayThread() {
+        var connectionId = connect();
+
+        upstreamIO.send(connectionId, ByteBuffer.allocate(8).putInt(4).putInt(42).flip());
+
+        var receives = new ArrayList<UpstreamIO.Receive>();
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            upstreamIO.poll(100);
+            receives.addAll(upstreamIO.completedReceives());
+            return !receives.isEmpty();
+        });
+        var receive = receives.get(0);
+        assertThat(receive.source()).isEqualTo(connectionId);
+        assertThat(ByteBufUtil.getBytes(receive.payload())).containsExactly(0, 0, 0, 42);
+        receive.payload().release();
+    }
+
+    @Test
+    public void testSend_shouldSkipAConnectionClosedAfterItWasAbleToSend() {
+        var connectionId = connect();
+        assertThat(upstreamIO.isAbleToSend(connectionId)).isTrue();
+
+        // as the close listener does from the event loop, between the two calls of the gateway thread
+        upstreamIO.close(connectionId);
+        await().atMost(Duration.ofSeconds(5)).until(() -> "DISCONNECTED".equals(upstreamIO.state(connectionId)));
+
+        assertThat(upstreamIO.send(connectionId, ByteBuffer.allocate(8).putInt(4).putInt(42).flip())).isFalse();
+        assertThat(upstreamIO.isAbleToSend(connectionId)).isFalse();
+    }
+
+    @Test
+    public void testBrokerClose_shouldReportTheDisconnection() {
+        var connectionId = connect();
+
+        brokerChannels.forEach(Channel::close);
+
+        var disconnected = new ArrayList<String>();
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            upstreamIO.poll(100);
+            disconnected.addAll(upstreamIO.disconnected());
+            return !disconnected.isEmpty();
+        });
+        assertThat(disconnected).containsExactly(connectionId);
+        assertThat(upstreamIO.isReady(connectionId)).isFalse();
+        assertThat(upstreamIO.state(connectionId)).isEqualTo("DISCONNECTED");
+    }
+
+    private String connect() {
+        var node = new Node(0, "localhost", ((InetSocketAddress) broker.localAddress()).getPort());
+        upstreamIO.registerNode(node);
+        var gatewayChannel = Mockito.mock(GatewayChannel.class);
+        Mockito.when(gatewayChannel.getNode()).thenReturn(node);
+        Mockito.when(gatewayChannel.closeFuture()).thenReturn(new CompletableFuture<>());
+        var connectionId = upstreamIO.getAssociatedConnection(gatewayChannel, ApiKeys.METADATA).getConnectionId();
+        await().atMost(Duration.ofSeconds(5)).until(() -> {
+            upstreamIO.poll(100);
+            return upstreamIO.isReady(connectionId);
+        });
+        assertThat(upstreamIO.state(connectionId)).isEqualTo("READY");
+        return connectionId;
+    }
+}
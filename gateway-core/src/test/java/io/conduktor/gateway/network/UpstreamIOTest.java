@@ -0,0 +1,287 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network;
+
+import io.conduktor.gateway.config.ConnectionConfig;
+import io.conduktor.gateway.config.ConnectionLanesConfig;
+import io.conduktor.gateway.config.UpstreamFailoverConfig;
+import io.conduktor.gateway.config.UpstreamTransport;
+import io.conduktor.gateway.config.UpstreamWarmPoolConfig;
+import io.conduktor.gateway.service.ClientRequest;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UpstreamIOTest {
+
+    private static final Node NODE = new Node(0, "localhost", 9092);
+
+    @Test
+    public void testLanes_shouldRouteEachClassOfRequestToItsOwnConnections() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig(true, 3, 2, 1));
+        upstreamIO.registerNode(NODE);
+        var client = gatewayChannel();
+
+        var fetch = upstreamIO.getAssociatedConnection(client, ApiKeys.FETCH);
+        var produce = upstreamIO.getAssociatedConnection(client, ApiKeys.PRODUCE);
+        var heartbeat = upstreamIO.getAssociatedConnection(client, ApiKeys.HEARTBEAT);
+
+        assertThat(List.of(fetch.getLane().name(), produce.getLane().name(), heartbeat.getLane().name()))
+                .containsExactly("FETCH", "PRODUCE", "CONTROL");
+        assertThat(new HashSet<>(List.of(fetch, produce, heartbeat))).hasSize(3);
+        assertThat(upstreamIO.getAssociatedConnection(client, ApiKeys.METADATA)).isSameAs(heartbeat);
+        assertThat(upstreamIO.getAssociatedConnection(client, ApiKeys.FETCH)).isSameAs(fetch);
+        assertThat(upstreamIO.connectionStates())
+                .extracting(UpstreamIO.ConnectionState::lane)
+                .containsExactlyInAnyOrder("FETCH", "FETCH", "FETCH", "PRODUCE", "PRODUCE", "CONTROL");
+    }
+
+    @Test
+    public void testNoLanes_shouldShareOneConnectionPerClientRoundRobin() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig());
+        upstreamIO.registerNode(NODE);
+        var connections = new HashSet<UpStreamConnection>();
+
+        for (int i = 0; i < 3; i++) {
+            var client = gatewayChannel();
+            var fetch = upstreamIO.getAssociatedConnection(client, ApiKeys.FETCH);
+            assertThat(upstreamIO.getAssociatedConnection(client, ApiKeys.HEARTBEAT)).isSameAs(fetch);
+            connections.add(fetch);
+        }
+
+        assertThat(connections).hasSize(3);
+        assertThat(upstreamIO.connectionStates()).extracting(UpstreamIO.ConnectionState::lane).containsOnly("SHARED");
+    }
+
+    @Test
+    public void testFailOver_shouldHandBackTheUnansweredRequestsAndKeepTheClients() throws Exception {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig(), new UpstreamFailoverConfig(true, 0, 0));
+        upstreamIO.registerNode(NODE);
+        var client = gatewayChannel();
+        var connection = upstreamIO.getAssociatedConnection(client, ApiKeys.PRODUCE);
+        upstreamIO.ableToSend = true;
+
+        assertThat(upstreamIO.trySend(request(client, connection, 1))).isTrue();
+        assertThat(upstreamIO.trySend(request(client, connection, 2))).isTrue();
+        upstreamIO.completed(connection.getConnectionId(), 1);
+
+        assertThat(upstreamIO.failOver(connection.getConnectionId())).containsExactly(2);
+        assertThat(upstreamIO.failOver(connection.getConnectionId())).isEmpty();
+        Mockito.verify(client, Mockito.never()).close();
+        assertThat(connection.getAssociatedChannels()).containsKey(client);
+    }
+
+    @Test
+    public void testFailOver_shouldReconnectOnTheNextSendOnceTheBackoffElapsed() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig(), new UpstreamFailoverConfig(true, 0, 0));
+        upstreamIO.registerNode(NODE);
+        var client = gatewayChannel();
+        var connection = upstreamIO.getAssociatedConnection(client, ApiKeys.PRODUCE);
+        assertThat(upstreamIO.connects).isEqualTo(1);
+
+        upstreamIO.connected.remove(connection.getConnectionId());
+        upstreamIO.failOver(connection.getConnectionId());
+        upstreamIO.trySend(request(client, connection, 1));
+        upstreamIO.trySend(request(client, connection, 1));
+
+        assertThat(upstreamIO.connects).isEqualTo(2);
+    }
+
+    @Test
+    public void testFailOver_shouldReportTheBackoffUntilItElapsed() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig(), new UpstreamFailoverConfig(true, 60_000, 60_000));
+        upstreamIO.registerNode(NODE);
+        var client = gatewayChannel();
+        var connection = upstreamIO.getAssociatedConnection(client, ApiKeys.PRODUCE);
+        assertThat(upstreamIO.isBackingOff(connection.getConnectionId())).isFalse();
+
+        upstreamIO.connected.remove(connection.getConnectionId());
+        upstreamIO.failOver(connection.getConnectionId());
+
+        assertThat(upstreamIO.trySend(request(client, connection, 1))).isFalse();
+        assertThat(upstreamIO.isBackingOff(connection.getConnectionId())).isTrue();
+        assertThat(upstreamIO.connects).isEqualTo(1);
+    }
+
+    @Test
+    public void testNoFailover_shouldNotTrackRequests() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig());
+        upstreamIO.registerNode(NODE);
+        var client = gatewayChannel();
+        var connection = upstreamIO.getAssociatedConnection(client, ApiKeys.PRODUCE);
+        upstreamIO.ableToSend = true;
+
+        upstreamIO.trySend(request(client, connection, 1));
+
+        assertThat(upstreamIO.isFailoverEnabled()).isFalse();
+        assertThat(connection.getInFlight()).isEmpty();
+    }
+
+    @Test
+    public void testWarmPool_shouldOpenEveryConnectionOfANewNode() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig(), new UpstreamFailoverConfig(), new UpstreamWarmPoolConfig(true, 60_000, true));
+        upstreamIO.registerNode(NODE);
+
+        assertThat(upstreamIO.nextProbeDelayMs()).isZero();
+        upstreamIO.probeIfDue(() -> 1);
+
+        assertThat(upstreamIO.connects).isEqualTo(3);
+        assertThat(upstreamIO.nextProbeDelayMs()).isPositive();
+    }
+
+    @Test
+    public void testWarmPool_shouldProbeReadyConnectionsAndRecordTheirRtt() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig(), new UpstreamFailoverConfig(), new UpstreamWarmPoolConfig(true, 60_000, true));
+        var registry = new SimpleMeterRegistry();
+        upstreamIO.registerMetrics(registry, Tags.empty());
+        upstreamIO.registerNode(NODE);
+        upstreamIO.probeIfDue(() -> 1);
+        upstreamIO.ableToSend = true;
+        var correlationIds = new int[]{100};
+
+        upstreamIO.registerNode(NODE);
+        upstreamIO.probeIfDue(() -> correlationIds[0]++);
+
+        assertThat(upstreamIO.sent).hasSize(3);
+        var probe = upstreamIO.sent.get(0);
+        assertThat(probe.getInt()).isEqualTo(probe.remaining());
+        var header = RequestHeader.parse(probe);
+        assertThat(header.apiKey()).isEqualTo(ApiKeys.API_VERSIONS);
+        assertThat(header.correlationId()).isEqualTo(100);
+        assertThat(upstreamIO.completeProbe("0", 100)).isTrue();
+        assertThat(upstreamIO.completeProbe("0", 100)).isFalse();
+        assertThat(upstreamIO.completeProbe("1", 7)).isFalse();
+        assertThat(registry.get("gateway.upstreamio.rtt").tag("broker", "localhost:9092").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRttAwareSelection_shouldPreferTheReadyConnection() {
+        var upstreamIO = new StubUpstreamIO(new ConnectionLanesConfig(), new UpstreamFailoverConfig(), new UpstreamWarmPoolConfig(true, 60_000, true));
+        upstreamIO.registerNode(NODE);
+        upstreamIO.connected.add("1");
+
+        var first = upstreamIO.getAssociatedConnection(gatewayChannel(), ApiKeys.FETCH);
+        var second = upstreamIO.getAssociatedConnection(gatewayChannel(), ApiKeys.FETCH);
+
+        assertThat(first.getConnectionId()).isEqualTo("1");
+        assertThat(second.getConnectionId()).isEqualTo("1");
+    }
+
+    private static ClientRequest request(GatewayChannel client, UpStreamConnection connection, int gatewayCorrelationId) {
+        var request = Mockito.mock(ClientRequest.class);
+        Mockito.when(request.getGatewayChannel()).thenReturn(client);
+        Mockito.when(request.getConnectionId()).thenReturn(connection.getConnectionId());
+        Mockito.when(request.getToSendKafka()).thenReturn(ByteBuffer.allocate(8));
+        Mockito.when(request.isExpectingResponse()).thenReturn(true);
+        Mockito.when(request.getGatewayCorrelationId()).thenReturn(gatewayCorrelationId);
+        return request;
+    }
+
+    private static GatewayChannel gatewayChannel() {
+        var gatewayChannel = Mockito.mock(GatewayChannel.class);
+        Mockito.when(gatewayChannel.getNode()).thenReturn(NODE);
+        Mockito.when(gatewayChannel.closeFuture()).thenReturn(new CompletableFuture<>());
+        return gatewayChannel;
+    }
+
+    private static class StubUpstreamIO extends UpstreamIO {
+
+        private final Set<String> connected = new HashSet<>();
+        private final List<ByteBuffer> sent = new ArrayList<>();
+        private boolean ableToSend;
+        private int connects;
+
+        StubUpstreamIO(ConnectionLanesConfig lanes) {
+            this(lanes, new UpstreamFailoverConfig());
+        }
+
+        StubUpstreamIO(ConnectionLanesConfig lanes, UpstreamFailoverConfig failover) {
+            this(lanes, failover, new UpstreamWarmPoolConfig());
+        }
+
+        StubUpstreamIO(ConnectionLanesConfig lanes, UpstreamFailoverConfig failover, UpstreamWarmPoolConfig warmPool) {
+            super(new ConnectionConfig(3, 0, UpstreamTransport.SELECTOR, lanes, failover, warmPool));
+        }
+
+        @Override
+        public void poll(long timeout) {
+        }
+
+        @Override
+        public Collection<Receive> completedReceives() {
+            return List.of();
+        }
+
+        @Override
+        public void wakeup() {
+        }
+
+        @Override
+        public Collection<String> disconnected() {
+            return List.of();
+        }
+
+        @Override
+        protected boolean isReady(String connectionId) {
+            return connected.contains(connectionId);
+        }
+
+        @Override
+        protected boolean isAbleToSend(String connectionId) {
+            return ableToSend;
+        }
+
+        @Override
+        protected void connect(UpStreamConnection upStreamConnection) {
+            connects++;
+            connected.add(upStreamConnection.getConnectionId());
+        }
+
+        @Override
+        protected boolean send(String connectionId, ByteBuffer payload) {
+            sent.add(payload);
+            return true;
+        }
+
+        @Override
+        protected void close(String connectionId) {
+        }
+
+        @Override
+        protected String state(String connectionId) {
+            return connected.contains(connectionId) ? "READY" : DISCONNECTED;
+        }
+
+        @Override
+        protected int connectedCount() {
+            return 0;
+        }
+    }
+}
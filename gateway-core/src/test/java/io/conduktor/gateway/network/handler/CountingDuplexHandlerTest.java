@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network.handler;
+
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CountingDuplexHandlerTest {
+
+    @Test
+    public void testCounting_shouldAggregateBytesOfAllChannels() {
+        var registry = new SimpleMeterRegistry();
+        var metricsRegistryProvider = new MetricsRegistryProvider(registry);
+        var first = new EmbeddedChannel(new CountingDuplexHandler(metricsRegistryProvider));
+        var second = new EmbeddedChannel(new CountingDuplexHandler(metricsRegistryProvider));
+
+        first.writeInbound(Unpooled.wrappedBuffer(new byte[10]));
+        second.writeInbound(Unpooled.wrappedBuffer(new byte[5]));
+        first.writeOutbound(Unpooled.wrappedBuffer(new byte[7]));
+
+        assertThat(bytes(registry, "upstream")).isEqualTo(15);
+        assertThat(bytes(registry, "downstream")).isEqualTo(7);
+        assertThat(registry.find(MetricsRegistryKeys.CHANNEL_BYTES).meters()).isEmpty();
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testCounting_shouldExposeChannelMetricsUntilTheChannelCloses() {
+        var registry = new SimpleMeterRegistry();
+        var channel = new EmbeddedChannel(new CountingDuplexHandler(new MetricsRegistryProvider(registry, true)));
+
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[10]));
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[10]));
+        channel.writeOutbound(Unpooled.wrappedBuffer(new byte[3]));
+
+        assertThat(registry.get(MetricsRegistryKeys.CHANNEL_BYTES).tag("direction", "upstream").functionCounter().count()).isEqualTo(20);
+        assertThat(registry.get(MetricsRegistryKeys.CHANNEL_MESSAGES).tag("direction", "upstream").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get(MetricsRegistryKeys.CHANNEL_MESSAGES).tag("direction", "downstream").functionCounter().count()).isEqualTo(1);
+
+        channel.finishAndReleaseAll();
+
+        assertThat(registry.find(MetricsRegistryKeys.CHANNEL_BYTES).meters()).isEmpty();
+    }
+
+    private static double bytes(SimpleMeterRegistry registry, String direction) {
+        return registry.get(MetricsRegistryKeys.BYTES_EXCHANGED).tag("direction", direction).functionCounter().count();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.network.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.kafka.common.message.SaslAuthenticateRequestData;
+import org.apache.kafka.common.message.SaslAuthenticateResponseData;
+import org.apache.kafka.common.message.SaslHandshakeRequestData;
+import org.apache.kafka.common.message.SaslHandshakeResponseData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.ByteBufferAccessor;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.protocol.MessageUtil;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.junit.jupiter.api.Test;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UpstreamSaslClientHandlerTest {
+
+    private static final CallbackHandler CREDENTIALS = callbacks -> {
+        for (Callback callback : callbacks) {
+            if (callback instanceof NameCallback name) {
+                name.setName("gateway");
+            } else if (callback instanceof PasswordCallback password) {
+                password.setPassword("secret".toCharArray());
+            }
+        }
+    };
+
+    @Test
+    public void testPlain_shouldHandshakeAuthenticateThenForwardFrames() {
+        var events = new ArrayList<Object>();
+        var frames = new ArrayList<ByteBuf>();
+        var channel = new EmbeddedChannel(
+                new UpstreamSaslClientHandler("PLAIN", new Subject(), CREDENTIALS, "kafka", "localhost", "gateway", false, 30_000),
+                recorder(events, frames));
+
+        var handshake = readRequest(channel);
+        assertThat(handshake.header().apiKey()).isEqualTo(ApiKeys.SASL_HANDSHAKE);
+        assertThat(new SaslHandshakeRequestData(new ByteBufferAccessor(handshake.body()), handshake.header().apiVersion()).mechanism())
+                .isEqualTo("PLAIN");
+        channel.writeInbound(response(handshake.header(), new SaslHandshakeResponseData().setErrorCode(Errors.NONE.code())));
+
+        var authenticate = readRequest(channel);
+        assertThat(authenticate.header().apiKey()).isEqualTo(ApiKeys.SASL_AUTHENTICATE);
+        var token = new SaslAuthenticateRequestData(new ByteBufferAccessor(authenticate.body()), authenticate.header().apiVersion()).authBytes();
+        assertThat(new String(token, StandardCharsets.UTF_8)).isEqualTo("\0gateway\0secret");
+        assertThat(events).isEmpty();
+        channel.writeInbound(response(authenticate.header(), new SaslAuthenticateResponseData().setErrorCode(Errors.NONE.code())));
+
+        assertThat(events).containsExactly(UpstreamSaslClientHandler.State.COMPLETE);
+        assertThat(channel.pipeline().get(UpstreamSaslClientHandler.class)).isNull();
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[]{1, 2, 3}));
+        assertThat(frames).hasSize(1);
+        frames.forEach(ByteBuf::release);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testPlain_shouldCloseTheChannelWhenTheBrokerRejectsTheCredentials() {
+        var events = new ArrayList<Object>();
+        var channel = new EmbeddedChannel(
+                new UpstreamSaslClientHandler("PLAIN", new Subject(), CREDENTIALS, "kafka", "localhost", "gateway", false, 30_000),
+                recorder(events, new ArrayList<>()));
+
+        var handshake = readRequest(channel);
+        channel.writeInbound(response(handshake.header(), new SaslHandshakeResponseData().setErrorCode(Errors.NONE.code())));
+        var authenticate = readRequest(channel);
+        channel.writeInbound(response(authenticate.header(), new SaslAuthenticateResponseData()
+                .setErrorCode(Errors.SASL_AUTHENTICATION_FAILED.code())
+                .setErrorMessage("invalid credentials")));
+
+        assertThat(channel.isOpen()).isFalse();
+        assertThat(events).doesNotContain(UpstreamSaslClientHandler.State.COMPLETE);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testUnknownMechanism_shouldCloseTheChannel() {
+        var channel = new EmbeddedChannel(
+                new UpstreamSaslClientHandler("PLAIN", new Subject(), CREDENTIALS, "kafka", "localhost", "gateway", false, 30_000));
+
+        var handshake = readRequest(channel);
+        channel.writeInbound(response(handshake.header(), new SaslHandshakeResponseData()
+                .setErrorCode(Errors.UNSUPPORTED_SASL_MECHANISM.code())
+                .setMechanisms(List.of("SCRAM-SHA-512"))));
+
+        assertThat(channel.isOpen()).isFalse();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testPlain_shouldAuthenticateAgainBeforeTheSessionExpires() {
+        var events = new ArrayList<Object>();
+        var frames = new ArrayList<ByteBuf>();
+        var channel = new EmbeddedChannel(
+                new UpstreamSaslClientHandler("PLAIN", new Subject(), CREDENTIALS, "kafka", "localhost", "gateway", false, 30_000),
+                recorder(events, frames));
+        authenticate(channel, 1_000);
+        assertThat(channel.pipeline().get(UpstreamSaslClientHandler.class)).isNotNull();
+
+        channel.advanceTimeBy(1, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+
+        assertThat(events).containsExactly(UpstreamSaslClientHandler.State.COMPLETE, UpstreamSaslClientHandler.State.REAUTHENTICATE);
+        var handshake = readRequest(channel);
+        assertThat(handshake.header().apiKey()).isEqualTo(ApiKeys.SASL_HANDSHAKE);
+        // held back until authenticated again, while the response to an earlier request goes through
+        channel.writeOutbound(Unpooled.wrappedBuffer(new byte[]{1, 2, 3}));
+        assertThat((Object) channel.readOutbound()).isNull();
+        channel.writeInbound(Unpooled.buffer().writeInt(7));
+        assertThat(frames).hasSize(1);
+        channel.writeInbound(response(handshake.header(), new SaslHandshakeResponseData().setErrorCode(Errors.NONE.code())));
+        var authenticate = readRequest(channel);
+        channel.writeInbound(response(authenticate.header(), new SaslAuthenticateResponseData().setErrorCode(Errors.NONE.code())));
+
+        assertThat(events).containsExactly(UpstreamSaslClientHandler.State.COMPLETE, UpstreamSaslClientHandler.State.REAUTHENTICATE,
+                UpstreamSaslClientHandler.State.COMPLETE);
+        assertThat(channel.pipeline().get(UpstreamSaslClientHandler.class)).isNull();
+        ByteBuf held = channel.readOutbound();
+        assertThat(held.readableBytes()).isEqualTo(3);
+        held.release();
+        frames.forEach(ByteBuf::release);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testPlain_shouldCloseTheChannelWhenTheBrokerDoesNotAnswerInTime() {
+        var channel = new EmbeddedChannel(
+                new UpstreamSaslClientHandler("PLAIN", new Subject(), CREDENTIALS, "kafka", "localhost", "gateway", false, 1_000));
+        readRequest(channel);
+
+        channel.advanceTimeBy(1, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+
+        assertThat(channel.isOpen()).isFalse();
+        channel.finishAndReleaseAll();
+    }
+
+    private static void authenticate(EmbeddedChannel channel, long sessionLifetimeMs) {
+        var handshake = readRequest(channel);
+        channel.writeInbound(response(handshake.header(), new SaslHandshakeResponseData().setErrorCode(Errors.NONE.code())));
+        var authenticate = readRequest(channel);
+        channel.writeInbound(response(authenticate.header(), new SaslAuthenticateResponseData()
+                .setErrorCode(Errors.NONE.code())
+                .setSessionLifetimeMs(sessionLifetimeMs)));
+    }
+
+    private static ChannelInboundHandlerAdapter recorder(List<Object> events, List<ByteBuf> frames) {
+        return new ChannelInboundHandlerAdapter() {
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                events.add(evt);
+            }
+
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                frames.add((ByteBuf) msg);
+            }
+        };
+    }
+
+    private static Request readRequest(EmbeddedChannel channel) {
+        ByteBuf frame = channel.readOutbound();
+        var buffer = ByteBuffer.allocate(frame.readableBytes());
+        frame.readBytes(buffer);
+        frame.release();
+        buffer.flip();
+        assertThat(buffer.getInt()).isEqualTo(buffer.remaining());
+        var header = RequestHeader.parse(buffer);
+        return new Request(header, buffer.slice());
+    }
+
+    private static ByteBuf response(RequestHeader requestHeader, ApiMessage data) {
+        var responseHeader = requestHeader.toResponseHeader();
+        return Unpooled.wrappedBuffer(
+                MessageUtil.toByteBuffer(responseHeader.data(), responseHeader.headerVersion()),
+                MessageUtil.toByteBuffer(data, requestHeader.apiVersion()));
+    }
+
+    private record Request(RequestHeader header, ByteBuffer body) {
+    }
+}
@@ -25,12 +25,11 @@ import org.apache.kafka.common.requests.MetadataResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Collections;
 import java.util.concurrent.CompletionStage;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class AbstractMetadataRebuilderTest {
@@ -52,11 +51,11 @@ public class AbstractMetadataRebuilderTest {
 
         assertThat(response.brokers().size())
                 .isEqualTo(0);
+        verify(mockBrokerManager).unknownBrokerSeen();
     }
 
     private void setupMocks() {
         when(mockRebuilerTools.brokerManager()).thenReturn(mockBrokerManager);
-        when(mockBrokerManager.getRealToGatewayMap(any(MetadataResponseData.MetadataResponseBrokerCollection.class))).thenReturn(Collections.emptyMap());
     }
 
     private MetadataResponse getMetadataResponse() {
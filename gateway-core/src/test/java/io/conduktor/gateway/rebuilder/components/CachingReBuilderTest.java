@@ -0,0 +1,224 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.rebuilder.components;
+
+import io.conduktor.gateway.authorization.SecurityHandler;
+import io.conduktor.gateway.config.CachedApiKeyConfig;
+import io.conduktor.gateway.network.GatewayChannel;
+import io.conduktor.gateway.rebuilder.ReBuilder;
+import io.conduktor.gateway.service.ClientRequest;
+import io.conduktor.gateway.service.InFlightRequestService;
+import io.conduktor.gateway.service.QuotaManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.message.ListGroupsRequestData;
+import org.apache.kafka.common.message.ListGroupsResponseData;
+import org.apache.kafka.common.message.ListOffsetsRequestData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ByteBufferAccessor;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.protocol.MessageUtil;
+import org.apache.kafka.common.requests.ListOffsetsRequest;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.apache.kafka.common.requests.ResponseHeader;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static org.apache.kafka.common.requests.RequestUtils.serialize;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingReBuilderTest {
+
+    private static final short LIST_GROUPS_VERSION = 4;
+
+    private final CountingReBuilder upstream = new CountingReBuilder();
+    private final QuotaManager quotaManager = Mockito.mock(QuotaManager.class);
+
+    @Test
+    public void testRebuildRequest_shouldAnswerIdenticalRequestFromCache() throws Exception {
+        var reBuilder = cachingReBuilder(ApiKeys.LIST_GROUPS);
+
+        var first = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 1);
+        reBuilder.rebuildRequest(listGroupsRequest(), first).toCompletableFuture().get();
+        assertThat(first.isReadyToReceiver()).isFalse();
+        reBuilder.rebuildResponse(listGroupsResponse(1, Errors.NONE), first).toCompletableFuture().get();
+
+        var second = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 2);
+        var cached = reBuilder.rebuildRequest(listGroupsRequest(), second).toCompletableFuture().get();
+
+        assertThat(second.isReadyToReceiver()).isTrue();
+        assertThat(upstream.requests).hasValue(1);
+        assertThat(cached.getInt(0)).isEqualTo(2);
+        assertThat(groupsOf(cached)).isEqualTo(List.of("group"));
+    }
+
+    @Test
+    public void testRebuildRequest_shouldShareTheRequestInFlight() throws Exception {
+        var reBuilder = cachingReBuilder(ApiKeys.LIST_GROUPS);
+
+        var first = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 1);
+        reBuilder.rebuildRequest(listGroupsRequest(), first);
+        var second = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 2);
+        var shared = reBuilder.rebuildRequest(listGroupsRequest(), second).toCompletableFuture();
+
+        assertThat(shared).isNotDone();
+        reBuilder.rebuildResponse(listGroupsResponse(1, Errors.NONE), first).toCompletableFuture().get();
+
+        assertThat(upstream.requests).hasValue(1);
+        assertThat(second.isReadyToReceiver()).isTrue();
+        assertThat(shared.get().getInt(0)).isEqualTo(2);
+    }
+
+    @Test
+    public void testRebuildRequest_shouldNotCacheErrorResponse() throws Exception {
+        var reBuilder = cachingReBuilder(ApiKeys.LIST_GROUPS);
+
+        var first = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 1);
+        reBuilder.rebuildRequest(listGroupsRequest(), first).toCompletableFuture().get();
+        reBuilder.rebuildResponse(listGroupsResponse(1, Errors.COORDINATOR_NOT_AVAILABLE), first).toCompletableFuture().get();
+        var second = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 2);
+        reBuilder.rebuildRequest(listGroupsRequest(), second).toCompletableFuture().get();
+
+        assertThat(second.isReadyToReceiver()).isFalse();
+        assertThat(upstream.requests).hasValue(2);
+    }
+
+    @Test
+    public void testRebuildRequest_shouldOnlyCacheLatestListOffsets() throws Exception {
+        var reBuilder = cachingReBuilder(ApiKeys.LIST_OFFSETS);
+        var version = ApiKeys.LIST_OFFSETS.latestVersion();
+
+        reBuilder.rebuildRequest(listOffsetsRequest(version, 1_000L), clientRequest(ApiKeys.LIST_OFFSETS, version, 1));
+        reBuilder.rebuildRequest(listOffsetsRequest(version, 1_000L), clientRequest(ApiKeys.LIST_OFFSETS, version, 2));
+
+        assertThat(upstream.requests).hasValue(2);
+    }
+
+    @Test
+    public void testRebuildRequest_shouldKeepTheAnswersOfEachBrokerApart() throws Exception {
+        var reBuilder = cachingReBuilder(ApiKeys.LIST_GROUPS);
+
+        var first = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 1, 0);
+        reBuilder.rebuildRequest(listGroupsRequest(), first).toCompletableFuture().get();
+        var second = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 2, 1);
+        var other = reBuilder.rebuildRequest(listGroupsRequest(), second).toCompletableFuture();
+
+        assertThat(other).isDone();
+        assertThat(second.isReadyToReceiver()).isFalse();
+        assertThat(upstream.requests).hasValue(2);
+    }
+
+    @Test
+    public void testRebuildRequest_shouldReleaseWaitersWhenTheSharedRequestIsAnsweredWithoutResponse() throws Exception {
+        var reBuilder = cachingReBuilder(ApiKeys.LIST_GROUPS);
+        var gatewayChannel = Mockito.mock(GatewayChannel.class);
+        Mockito.when(gatewayChannel.getNode()).thenReturn(new Node(0, "localhost", 9092));
+        Mockito.when(gatewayChannel.getAuthenticator()).thenReturn(Mockito.mock(SecurityHandler.class));
+        var first = ClientRequest.initRequest(gatewayChannel, new RequestHeader(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, "client", 1),
+                ByteBuffer.allocate(0), "connection", new InFlightRequestService(60_000), request -> {}, request -> {});
+        reBuilder.rebuildRequest(listGroupsRequest(), first);
+        var second = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 2, 0);
+        var shared = reBuilder.rebuildRequest(listGroupsRequest(), second).toCompletableFuture();
+
+        first.marKDoneWithResponse(wrappedBuffer(new byte[0]));
+
+        assertThat(shared.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(second.isReadyToReceiver()).isFalse();
+        assertThat(upstream.requests).hasValue(2);
+    }
+
+    @Test
+    public void testRebuildRequest_shouldAccountCacheHitsForQuotas() throws Exception {
+        var reBuilder = cachingReBuilder(ApiKeys.LIST_GROUPS);
+        var first = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 1);
+        reBuilder.rebuildRequest(listGroupsRequest(), first).toCompletableFuture().get();
+        reBuilder.rebuildResponse(listGroupsResponse(1, Errors.NONE), first).toCompletableFuture().get();
+
+        var second = clientRequest(ApiKeys.LIST_GROUPS, LIST_GROUPS_VERSION, 2);
+        reBuilder.rebuildRequest(listGroupsRequest(), second).toCompletableFuture().get();
+
+        Mockito.verify(quotaManager).recordRequest(Mockito.eq(second), Mockito.anyLong());
+        Mockito.verify(quotaManager).recordResponse(Mockito.eq(second), Mockito.anyLong());
+    }
+
+    private CachingReBuilder cachingReBuilder(ApiKeys apiKey) {
+        return new CachingReBuilder(upstream, new CachedApiKeyConfig(apiKey, 60_000, 10), 60_000, quotaManager, new SimpleMeterRegistry());
+    }
+
+    private static ClientRequest clientRequest(ApiKeys apiKey, short version, int correlationId) {
+        return clientRequest(apiKey, version, correlationId, 0);
+    }
+
+    private static ClientRequest clientRequest(ApiKeys apiKey, short version, int correlationId, int nodeId) {
+        return new ClientRequest(new RequestHeader(apiKey, version, "client", correlationId), ByteBuffer.allocate(0), "connection", nodeId);
+    }
+
+    private static ByteBuffer listGroupsRequest() {
+        return MessageUtil.toByteBuffer(new ListGroupsRequestData().setStatesFilter(List.of("Stable")), LIST_GROUPS_VERSION);
+    }
+
+    private static ByteBuffer listOffsetsRequest(short version, long timestamp) {
+        var partition = new ListOffsetsRequestData.ListOffsetsPartition().setPartitionIndex(0).setTimestamp(timestamp);
+        var topic = new ListOffsetsRequestData.ListOffsetsTopic().setName("topic").setPartitions(List.of(partition));
+        return MessageUtil.toByteBuffer(new ListOffsetsRequestData().setReplicaId(ListOffsetsRequest.CONSUMER_REPLICA_ID)
+                .setTopics(List.of(topic)), version);
+    }
+
+    private static ByteBuf listGroupsResponse(int correlationId, Errors error) {
+        var data = new ListGroupsResponseData()
+                .setErrorCode(error.code())
+                .setGroups(List.of(new ListGroupsResponseData.ListedGroup().setGroupId("group")));
+        var header = new ResponseHeader(correlationId, ApiKeys.LIST_GROUPS.responseHeaderVersion(LIST_GROUPS_VERSION));
+        return wrappedBuffer(serialize(header.data(), header.headerVersion(), data, LIST_GROUPS_VERSION));
+    }
+
+    private static List<String> groupsOf(ByteBuffer response) {
+        var buffer = response.duplicate();
+        ResponseHeader.parse(buffer, ApiKeys.LIST_GROUPS.responseHeaderVersion(LIST_GROUPS_VERSION));
+        var data = new ListGroupsResponseData(new ByteBufferAccessor(buffer), LIST_GROUPS_VERSION);
+        return data.groups().stream().map(ListGroupsResponseData.ListedGroup::groupId).toList();
+    }
+
+    private static class CountingReBuilder implements ReBuilder {
+
+        private final AtomicInteger requests = new AtomicInteger();
+
+        @Override
+        public ApiKeys apiKeys() {
+            return null;
+        }
+
+        @Override
+        public CompletionStage<ByteBuffer> rebuildRequest(ByteBuffer kafkaPayload, ClientRequest clientRequest) {
+            requests.incrementAndGet();
+            return CompletableFuture.completedFuture(kafkaPayload);
+        }
+
+        @Override
+        public CompletionStage<ByteBuf> rebuildResponse(ByteBuf payload, ClientRequest clientRequest) {
+            return CompletableFuture.completedFuture(payload);
+        }
+    }
+}
@@ -25,10 +25,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.util.Arrays;
-import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 public class DefaultMetadataReBuilderTest extends ComponentBaseTest {
@@ -36,9 +34,7 @@ public class DefaultMetadataReBuilderTest extends ComponentBaseTest {
     @Test
     public void testRebuildResponse_shouldMapHosts() {
 
-        when(brokerManager.getRealToGatewayMap(any(MetadataResponseData.MetadataResponseBrokerCollection.class))).thenReturn(Map.of(
-                "kafka:9092", new Endpoint("gateway", 6969)
-        ));
+        when(brokerManager.getGatewayByReal("kafka", 9092)).thenReturn(new Endpoint("gateway", 6969));
         var rebuilder = new DefaultMetadataReBuilder(mockRebuilderTools);
         var response = buildMetadataResponseTemplate();
         var clientRequest = Mockito.mock(ClientRequest.class);
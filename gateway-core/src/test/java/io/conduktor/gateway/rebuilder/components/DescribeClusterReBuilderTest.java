@@ -19,9 +19,6 @@ import io.conduktor.gateway.config.Endpoint;
 import io.conduktor.gateway.service.ClientRequest;
 import org.junit.jupiter.api.Test;
 
-import java.util.Map;
-
-import static io.conduktor.gateway.common.NodeUtils.keyOf;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -38,9 +35,8 @@ public class DescribeClusterReBuilderTest extends ComponentBaseTest {
         clientRequest.initGatewayRequestHeader(requestHeader.correlationId());
 
         var firstBroker = response.data().brokers().stream().findFirst().get();
-        var mappingKey = keyOf(firstBroker.host(), firstBroker.port());
-        when(brokerManager.getRealToGatewayMap(response.data().brokers())).thenReturn(
-            Map.of(mappingKey, new Endpoint("b1.proxy", firstBroker.port()))
+        when(brokerManager.getGatewayByReal(firstBroker.host(), firstBroker.port())).thenReturn(
+            new Endpoint("b1.proxy", firstBroker.port())
         );
 
         var reBuilder = new DescribeClusterRebuilder(mockRebuilderTools);
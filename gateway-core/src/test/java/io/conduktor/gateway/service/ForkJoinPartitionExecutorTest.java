@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.service;
+
+import io.conduktor.gateway.config.PartitionParallelismConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ForkJoinPartitionExecutorTest {
+
+    private static final List<Integer> PARTITIONS = IntStream.range(0, 64).boxed().toList();
+
+    @Test
+    public void testForEach_belowThresholdShouldRunOnCallingThread() {
+        var threads = ConcurrentHashMap.<Thread>newKeySet();
+        var processed = ConcurrentHashMap.<Integer>newKeySet();
+
+        try (var executor = new ForkJoinPartitionExecutor(new PartitionParallelismConfig(4, 1024))) {
+            executor.forEach(PARTITIONS, partition -> 1, partition -> {
+                threads.add(Thread.currentThread());
+                processed.add(partition);
+            });
+        }
+
+        assertThat(threads).containsExactly(Thread.currentThread());
+        assertThat(processed).containsExactlyInAnyOrderElementsOf(PARTITIONS);
+    }
+
+    @Test
+    public void testForEach_aboveThresholdShouldProcessEveryPartitionBeforeReturning() {
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+
+        try (var executor = new ForkJoinPartitionExecutor(new PartitionParallelismConfig(4, 1024))) {
+            executor.forEach(PARTITIONS, partition -> 512, partition -> {
+                processed.add(partition);
+            });
+        }
+
+        assertThat(processed).containsExactlyInAnyOrderElementsOf(PARTITIONS);
+    }
+
+    @Test
+    public void testForEach_shouldPropagateFailure() {
+        try (var executor = new ForkJoinPartitionExecutor(new PartitionParallelismConfig(4, 0))) {
+            assertThatThrownBy(() -> executor.forEach(PARTITIONS, partition -> 1, partition -> {
+                if (partition == 42) {
+                    throw new IllegalStateException("bad partition");
+                }
+            })).isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("bad partition");
+        }
+    }
+}
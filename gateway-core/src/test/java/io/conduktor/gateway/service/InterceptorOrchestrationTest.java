@@ -4,6 +4,8 @@ import io.conduktor.gateway.interceptor.DirectionType;
 import io.conduktor.gateway.interceptor.Interceptor;
 import io.conduktor.gateway.interceptor.InterceptorContext;
 import io.conduktor.gateway.interceptor.InterceptorValue;
+import io.conduktor.gateway.interceptor.PartitionExecutor;
+import io.conduktor.gateway.interceptor.SyncInterceptor;
 import io.conduktor.gateway.model.InterceptContext;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import org.apache.kafka.common.message.FetchResponseData;
@@ -15,8 +17,11 @@ import org.mockito.Mockito;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import static java.util.concurrent.CompletableFuture.delayedExecutor;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,7 +38,7 @@ public class InterceptorOrchestrationTest {
     @BeforeAll
     public static void setup() {
         interceptorPoolService = Mockito.mock(InterceptorPoolService.class);
-        interceptorOrchestration = new InterceptorOrchestration(interceptorPoolService);
+        interceptorOrchestration = new InterceptorOrchestration(interceptorPoolService, PartitionExecutor.SEQUENTIAL);
 
         interceptContext = Mockito.mock(InterceptContext.class);
         when(interceptContext.getDirectionType())
@@ -73,6 +78,72 @@ public class InterceptorOrchestrationTest {
                 .isEqualTo(produceRequest);
     }
 
+    @Test
+    public void testInterceptor_shouldSkipTopicScopedInterceptorOfOtherTopics() throws Exception {
+        var calls = new AtomicInteger();
+        Interceptor<FetchResponse> counting = (input, context) -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(input);
+        };
+        when(interceptorPoolService.getAllInterceptors(any()))
+                .thenReturn(List.of(
+                        new InterceptorValue((Interceptor) counting, 1, 2000L, Pattern.compile("payments\\..*")),
+                        new InterceptorValue((Interceptor) counting, 2, 2000L, Pattern.compile("orders"))));
+
+        var fetchResponse = new FetchResponse(new FetchResponseData()
+                .setResponses(List.of(new FetchResponseData.FetchableTopicResponse().setTopic("payments.eu"))));
+        interceptorOrchestration.intercept(interceptContext, fetchResponse)
+                .toCompletableFuture()
+                .get(30, TimeUnit.SECONDS);
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void testInterceptor_shouldRunSyncAndAsyncInterceptorsInPriorityOrder() throws Exception {
+        var order = new ConcurrentLinkedQueue<String>();
+        SyncInterceptor<FetchResponse> first = (input, context) -> {
+            order.add("sync1");
+            return input;
+        };
+        Interceptor<FetchResponse> second = (input, context) -> CompletableFuture.supplyAsync(() -> {
+            order.add("async2");
+            return input;
+        });
+        SyncInterceptor<FetchResponse> third = (input, context) -> {
+            order.add("sync3");
+            return input;
+        };
+        when(interceptorPoolService.getAllInterceptors(any()))
+                .thenReturn(List.of(
+                        new InterceptorValue((Interceptor) third, 3, 2000L),
+                        new InterceptorValue((Interceptor) first, 1, 2000L),
+                        new InterceptorValue((Interceptor) second, 2, 2000L)));
+
+        var fetchResponse = new FetchResponse(new FetchResponseData());
+        var result = interceptorOrchestration.intercept(interceptContext, fetchResponse)
+                .toCompletableFuture()
+                .get(30, TimeUnit.SECONDS);
+
+        assertThat(result).isEqualTo(fetchResponse);
+        assertThat(order).containsExactly("sync1", "async2", "sync3");
+    }
+
+    @Test
+    public void testInterceptor_syncInterceptorErrorShouldFailTheStage() {
+        SyncInterceptor<FetchResponse> failing = (input, context) -> {
+            throw new IllegalStateException("boom");
+        };
+        when(interceptorPoolService.getAllInterceptors(any()))
+                .thenReturn(List.of(new InterceptorValue((Interceptor) failing, 1, 2000L)));
+
+        var stage = interceptorOrchestration.intercept(interceptContext, new FetchResponse(new FetchResponseData()));
+
+        assertThatThrownBy(() -> stage.toCompletableFuture().get(30, TimeUnit.SECONDS))
+                .cause()
+                .isInstanceOf(IllegalStateException.class);
+    }
+
     public static class InterceptorTest implements Interceptor<FetchResponse> {
 
         @Override
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.service;
+
+import io.conduktor.gateway.config.QuotaConfig;
+import io.conduktor.gateway.config.QuotaKeyType;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class QuotaManagerTest {
+
+    @Test
+    public void testTokenBucket_shouldThrottleForTheTimeToPayBackItsDebt() {
+        var bucket = new QuotaManager.TokenBucket(1000, 1000, 0);
+
+        assertThat(bucket.consume(1000, 0)).isEqualTo(0);
+        assertThat(bucket.consume(500, 0)).isEqualTo(500);
+        // 500 ms later the debt is paid back
+        assertThat(bucket.consume(0, TimeUnit.MILLISECONDS.toNanos(500))).isEqualTo(0);
+    }
+
+    @Test
+    public void testTokenBucket_shouldNotRefillAboveBurst() {
+        var bucket = new QuotaManager.TokenBucket(1000, 1000, 0);
+
+        assertThat(bucket.consume(1500, TimeUnit.SECONDS.toNanos(60))).isEqualTo(500);
+    }
+
+    @Test
+    public void testRecordRequest_shouldThrottleProduceOverQuotaPerClientId() {
+        var quotaManager = quotaManager(new QuotaConfig(true, QuotaKeyType.CLIENT_ID, 1000, 0, 1000, 30_000, 60_000));
+
+        var first = clientRequest(ApiKeys.PRODUCE, "client-a");
+        quotaManager.recordRequest(first, 1000);
+        assertThat(first.getThrottleTimeMs()).isZero();
+
+        var second = clientRequest(ApiKeys.PRODUCE, "client-a");
+        quotaManager.recordRequest(second, 2000);
+        assertThat(second.getThrottleTimeMs()).isBetween(1900, 2000);
+
+        var otherClient = clientRequest(ApiKeys.PRODUCE, "client-b");
+        quotaManager.recordRequest(otherClient, 1000);
+        assertThat(otherClient.getThrottleTimeMs()).isZero();
+    }
+
+    @Test
+    public void testRecord_shouldOnlyAccountTheQuotaOfTheApiKey() {
+        var quotaManager = quotaManager(new QuotaConfig(true, QuotaKeyType.CLIENT_ID, 1000, 0, 1000, 30_000, 60_000));
+
+        var fetch = clientRequest(ApiKeys.FETCH, "client-a");
+        quotaManager.recordResponse(fetch, 10_000);
+        assertThat(fetch.getThrottleTimeMs()).isZero();
+
+        var metadata = clientRequest(ApiKeys.METADATA, "client-a");
+        quotaManager.recordRequest(metadata, 10_000);
+        assertThat(metadata.getThrottleTimeMs()).isZero();
+    }
+
+    @Test
+    public void testRecordResponse_shouldCapThrottleTime() {
+        var quotaManager = quotaManager(new QuotaConfig(true, QuotaKeyType.CLIENT_ID, 0, 1000, 1000, 5_000, 60_000));
+
+        var fetch = clientRequest(ApiKeys.FETCH, "client-a");
+        quotaManager.recordResponse(fetch, 1_000_000);
+        assertThat(fetch.getThrottleTimeMs()).isEqualTo(5_000);
+    }
+
+    @Test
+    public void testRecord_disabledShouldNeverThrottle() {
+        var quotaManager = quotaManager(new QuotaConfig(false, QuotaKeyType.CLIENT_ID, 1, 1, 1000, 30_000, 60_000));
+
+        var produce = clientRequest(ApiKeys.PRODUCE, "client-a");
+        quotaManager.recordRequest(produce, 1_000_000);
+        assertThat(produce.getThrottleTimeMs()).isZero();
+    }
+
+    private static QuotaManager quotaManager(QuotaConfig quotaConfig) {
+        var metricsRegistryProvider = mock(MetricsRegistryProvider.class);
+        when(metricsRegistryProvider.registry()).thenReturn(new SimpleMeterRegistry());
+        return new QuotaManager(quotaConfig, metricsRegistryProvider);
+    }
+
+    private static ClientRequest clientRequest(ApiKeys apiKey, String clientId) {
+        var header = new RequestHeader(apiKey, apiKey.latestVersion(), clientId, 1);
+        return new ClientRequest(header, ByteBuffer.allocate(0), "connection");
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.thread;
+
+import io.conduktor.gateway.network.GatewayChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class FairRequestQueueTest {
+
+    private final GatewayChannel large = mock(GatewayChannel.class);
+    private final GatewayChannel small = mock(GatewayChannel.class);
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    public void testPoll_shouldNotLetALargeClientStarveASmallOne() {
+        var queue = new FairRequestQueue(100, 1000, channel -> 1);
+        offer(queue, large, "L", 4, 1000);
+        offer(queue, small, "S", 4, 100);
+
+        drain(queue);
+
+        assertThat(ran).containsExactly("L0", "S0", "S1", "S2", "S3", "L1", "L2", "L3");
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testPoll_shouldServeInProportionToWeights() {
+        var weights = Map.of(large, 2, small, 1);
+        var queue = new FairRequestQueue(100, 1000, weights::get);
+        offer(queue, large, "L", 4, 1000);
+        offer(queue, small, "S", 4, 1000);
+
+        drain(queue);
+
+        assertThat(ran).containsExactly("L0", "L1", "S0", "L2", "L3", "S1", "S2", "S3");
+    }
+
+    @Test
+    public void testPoll_shouldCarryTheDeficitOverForRequestsLargerThanTheQuantum() {
+        var queue = new FairRequestQueue(100, 1000, channel -> 1);
+        offer(queue, large, "L", 1, 2500);
+        offer(queue, small, "S", 3, 1000);
+
+        drain(queue);
+
+        assertThat(ran).containsExactly("S0", "S1", "L0", "S2");
+    }
+
+    @Test
+    public void testOffer_shouldAcceptWorkAgainOnceADrainedConnectionRetired() {
+        var queue = new FairRequestQueue(100, 1000, channel -> 1);
+        offer(queue, small, "A", 1, 100);
+        drain(queue);
+
+        offer(queue, small, "B", 1, 100);
+        drain(queue);
+
+        assertThat(ran).containsExactly("A0", "B0");
+    }
+
+    @Test
+    public void testOffer_shouldRefuseWorkWhenFull() {
+        var queue = new FairRequestQueue(2, 1000, channel -> 1);
+
+        assertThat(queue.offer(small, 1, () -> {})).isTrue();
+        assertThat(queue.offer(large, 1, () -> {})).isTrue();
+        assertThat(queue.offer(small, 1, () -> {})).isFalse();
+        assertThat(queue.size()).isEqualTo(2);
+    }
+
+    private void offer(FairRequestQueue queue, GatewayChannel channel, String name, int count, int bytes) {
+        for (var i = 0; i < count; i++) {
+            var id = name + i;
+            assertThat(queue.offer(channel, bytes, () -> ran.add(id))).isTrue();
+        }
+    }
+
+    private void drain(FairRequestQueue queue) {
+        for (var task = queue.poll(); task != null; task = queue.poll()) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.thread;
+
+import io.conduktor.gateway.authorization.SecurityHandler;
+import io.conduktor.gateway.config.ConnectionConfig;
+import io.conduktor.gateway.config.FairnessConfig;
+import io.conduktor.gateway.config.SlowRequestLogConfig;
+import io.conduktor.gateway.error.handler.ErrorHandler;
+import io.conduktor.gateway.metrics.HeavyHitters;
+import io.conduktor.gateway.metrics.MetricsRegistryKeys;
+import io.conduktor.gateway.metrics.MetricsRegistryProvider;
+import io.conduktor.gateway.metrics.SlowRequestLog;
+import io.conduktor.gateway.network.BrokerManager;
+import io.conduktor.gateway.network.GatewayChannel;
+import io.conduktor.gateway.rebuilder.ReBuilder;
+import io.conduktor.gateway.rebuilder.components.RebuildMapper;
+import io.conduktor.gateway.service.ClientRequest;
+import io.conduktor.gateway.service.InFlightRequestService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.message.HeartbeatRequestData;
+import org.apache.kafka.common.message.MetadataRequestData;
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.apache.kafka.common.requests.RequestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GatewayThreadTest {
+
+    private static final short PRODUCE_VERSION = 7;
+    private static final short METADATA_VERSION = 4;
+    private static final short HEARTBEAT_VERSION = 3;
+
+    private final InFlightRequestService inFlightRequestService = new InFlightRequestService(30_000);
+    private final RebuildMapper rebuildMapper = mock(RebuildMapper.class);
+    private final ReBuilder reBuilder = mock(ReBuilder.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    /**
+     * requests in the order the gateway thread rebuilt them
+     */
+    private final List<ClientRequest> rebuilt = new CopyOnWriteArrayList<>();
+    /**
+     * correlation ids of the requests the broker received, in order
+     */
+    private final List<Integer> brokerReceived = new CopyOnWriteArrayList<>();
+    private ServerSocket broker;
+    private Node node;
+    private GatewayThread gatewayThread;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        broker = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        node = new Node(0, broker.getInetAddress().getHostAddress(), broker.getLocalPort());
+        var acceptor = new Thread(this::acceptConnections, "fake-broker");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        when(rebuildMapper.getReBuilder(any())).thenReturn(reBuilder);
+        when(reBuilder.rebuildRequest(any(), any())).thenAnswer(invocation -> {
+            ClientRequest clientRequest = invocation.getArgument(1);
+            rebuilt.add(clientRequest);
+            return CompletableFuture.completedFuture(toSendKafka(clientRequest));
+        });
+        when(reBuilder.rebuildResponse(any(), any())).thenAnswer(invocation -> CompletableFuture.completedFuture(Unpooled.buffer(0)));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (gatewayThread != null) {
+            gatewayThread.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly(5, TimeUnit.SECONDS);
+        }
+        broker.close();
+    }
+
+    @Test
+    public void testFireAndForget_shouldNotWaitForAResponseNorHoldBackTheNextOne() {
+        gatewayThread = gatewayThread(false);
+        var socketChannel = socketChannel();
+        var client = gatewayChannel(socketChannel);
+
+        gatewayThread.justSend(produce(1, (short) 0), client);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> brokerReceived.size() == 1);
+        var fireAndForget = rebuilt.get(0);
+        assertThat(fireAndForget.isExpectingResponse()).isFalse();
+        assertThat(inFlightRequestService.getAndRemoveRequest(fireAndForget.getGatewayCorrelationId())).isNull();
+        assertThat(client.inFlightRequests()).isZero();
+
+        gatewayThread.justSend(metadata(2), client);
+
+        verify(socketChannel, timeout(5000)).writeAndFlush(any());
+        assertThat(brokerReceived).containsExactly(fireAndForget.getGatewayCorrelationId(), rebuilt.get(1).getGatewayCorrelationId());
+        assertThat(rebuilt.get(1).getClientCorrelationId()).isEqualTo(2);
+        assertThat(rebuilt.get(1).isDone()).isTrue();
+        assertThat(client.inFlightRequests()).isZero();
+    }
+
+    @Test
+    public void testBatchHandOff_shouldRebuildTheRequestsOfAChannelInOrder() {
+        gatewayThread = gatewayThread(true);
+        var client = gatewayChannel(socketChannel());
+        var blocked = block();
+
+        gatewayThread.justSend(List.of(heartbeat(1), produce(2, (short) 1), heartbeat(3)), client);
+        gatewayThread.justSend(List.of(heartbeat(4)), client);
+        blocked.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> rebuilt.size() == 4);
+        assertThat(rebuilt).extracting(ClientRequest::getClientCorrelationId).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    public void testControlPlanePriority_shouldRunAHeartbeatAheadOfAnotherChannelsProduceBacklog() {
+        gatewayThread = gatewayThread(true);
+        var producer = gatewayChannel(socketChannel());
+        var consumer = gatewayChannel(socketChannel());
+        var blocked = block();
+
+        for (int i = 1; i <= 5; i++) {
+            gatewayThread.justSend(produce(i, (short) 1), producer);
+        }
+        gatewayThread.justSend(heartbeat(6), consumer);
+        blocked.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> rebuilt.size() == 6);
+        assertThat(rebuilt).extracting(ClientRequest::getClientCorrelationId).containsExactly(6, 1, 2, 3, 4, 5);
+        assertThat(rebuilt.get(0).getGatewayChannel()).isSameAs(consumer);
+    }
+
+    @Test
+    public void testControlPlanePriority_shouldNotOvertakeEarlierRequestsOfItsOwnChannel() {
+        gatewayThread = gatewayThread(true);
+        var client = gatewayChannel(socketChannel());
+        var other = gatewayChannel(socketChannel());
+        var blocked = block();
+
+        gatewayThread.justSend(produce(1, (short) 1), client);
+        gatewayThread.justSend(heartbeat(2), client);
+        gatewayThread.justSend(heartbeat(3), other);
+        blocked.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> rebuilt.size() == 3);
+        assertThat(rebuilt).extracting(ClientRequest::getClientCorrelationId).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    public void testControlPlanePriority_shouldTagTheQueueWaitByPriority() {
+        gatewayThread = gatewayThread(true);
+        var producer = gatewayChannel(socketChannel());
+        var consumer = gatewayChannel(socketChannel());
+        var blocked = block();
+
+        gatewayThread.justSend(produce(1, (short) 1), producer);
+        gatewayThread.justSend(produce(2, (short) 1), producer);
+        gatewayThread.justSend(heartbeat(3), consumer);
+        blocked.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> rebuilt.size() == 3);
+        assertThat(queueWait("high").count()).isEqualTo(1);
+        assertThat(queueWait("normal").count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNormalPriorityRequests_shouldBeBackToZeroAfterAFailedTask() {
+        gatewayThread = gatewayThread(true);
+        var client = gatewayChannel(socketChannel());
+
+        gatewayThread.justSend(Unpooled.wrappedBuffer(new byte[]{0, 1}), client);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> client.submittedRequests().get() == 0);
+        assertThat(client.normalPriorityRequests()).hasValue(0);
+        assertThat(rebuilt).isEmpty();
+
+        gatewayThread.justSend(heartbeat(1), client);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> rebuilt.size() == 1);
+        assertThat(queueWait("high").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNormalPriorityRequests_shouldBeBackToZeroAfterARejectedTask() {
+        gatewayThread = gatewayThread(true);
+        var client = gatewayChannel(socketChannel());
+        gatewayThread.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly(5, TimeUnit.SECONDS);
+        var produce = produce(1, (short) 1);
+        var batch = List.of(produce(2, (short) 1).retain(), heartbeat(3).retain());
+
+        assertThatThrownBy(() -> gatewayThread.justSend(produce, client)).isInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> gatewayThread.justSend(batch, client)).isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(client.normalPriorityRequests()).hasValue(0);
+        assertThat(client.submittedRequests()).hasValue(0);
+        assertThat(produce.refCnt()).isEqualTo(1);
+        assertThat(batch).allSatisfy(buf -> assertThat(buf.refCnt()).isEqualTo(1));
+    }
+
+    private Timer queueWait(String priority) {
+        return registry.get(MetricsRegistryKeys.THREAD_QUEUE_WAIT).tag("priority", priority).timer();
+    }
+
+    /**
+     * @return released to let the gateway thread run the tasks queued meanwhile
+     */
+    private CountDownLatch block() {
+        var blocked = new CountDownLatch(1);
+        var running = new CountDownLatch(1);
+        gatewayThread.execute(() -> {
+            running.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            running.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return blocked;
+    }
+
+    private GatewayThread gatewayThread(boolean prioritizeControlPlane) {
+        var selectorProps = new Properties();
+        selectorProps.put("bootstrap.servers", node.host() + ":" + node.port());
+        var thread = new GatewayThread(null,
+                new ThreadPerTaskExecutor(new DefaultThreadFactory("gateway-thread-test")),
+                RejectedExecutionHandlers.reject(),
+                rebuildMapper,
+                selectorProps,
+                new ConnectionConfig(),
+                1024,
+                prioritizeControlPlane,
+                new FairnessConfig(),
+                inFlightRequestService,
+                mock(ErrorHandler.class),
+                new MetricsRegistryProvider(registry),
+                mock(HeavyHitters.class),
+                new SlowRequestLog(new SlowRequestLogConfig(false, 0, 8)),
+                () -> null);
+        thread.registerNode(node);
+        return thread;
+    }
+
+    private static SocketChannel socketChannel() {
+        var socketChannel = mock(SocketChannel.class);
+        when(socketChannel.remoteAddress()).thenReturn(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        when(socketChannel.closeFuture()).thenReturn(mock(ChannelFuture.class));
+        return socketChannel;
+    }
+
+    private GatewayChannel gatewayChannel(SocketChannel socketChannel) {
+        var authenticator = mock(SecurityHandler.class);
+        when(authenticator.complete()).thenReturn(true);
+        when(authenticator.handleAuthenticationFailure()).thenReturn(CompletableFuture.completedFuture(null));
+        var brokerManager = mock(BrokerManager.class);
+        when(brokerManager.getUpStreamResource()).thenReturn(mock(UpStreamResource.class));
+        var gatewayChannel = new GatewayChannel(authenticator, brokerManager, socketChannel, gatewayThread, "localhost");
+        gatewayChannel.setNode(node);
+        return gatewayChannel;
+    }
+
+    private static ByteBuf produce(int correlationId, short acks) {
+        var data = new ProduceRequestData()
+                .setAcks(acks)
+                .setTimeoutMs(1000);
+        return frame(ApiKeys.PRODUCE, PRODUCE_VERSION, correlationId, data);
+    }
+
+    private static ByteBuf heartbeat(int correlationId) {
+        return frame(ApiKeys.HEARTBEAT, HEARTBEAT_VERSION, correlationId, new HeartbeatRequestData().setGroupId("group"));
+    }
+
+    private static ByteBuf metadata(int correlationId) {
+        return frame(ApiKeys.METADATA, METADATA_VERSION, correlationId, new MetadataRequestData());
+    }
+
+    private static ByteBuf frame(ApiKeys apiKey, short version, int correlationId, ApiMessage data) {
+        var header = new RequestHeader(apiKey, version, "client", correlationId);
+        return Unpooled.wrappedBuffer(RequestUtils.serialize(header.data(), header.headerVersion(), data, version));
+    }
+
+    /**
+     * the rebuilt request as the fake broker reads it: api key, version and the gateway correlation id
+     */
+    private static ByteBuffer toSendKafka(ClientRequest clientRequest) {
+        var header = clientRequest.getClientRequestHeader();
+        return ByteBuffer.allocate(12)
+                .putInt(8)
+                .putShort(header.apiKey().id)
+                .putShort(header.apiVersion())
+                .putInt(clientRequest.getGatewayCorrelationId())
+                .flip();
+    }
+
+    /**
+     * answers every request but produce requests with their correlation id only
+     */
+    private void acceptConnections() {
+        while (!broker.isClosed()) {
+            try {
+                var socket = broker.accept();
+                var connection = new Thread(() -> {
+                    try (socket; var in = new DataInputStream(socket.getInputStream());
+                         var out = new DataOutputStream(socket.getOutputStream())) {
+                        for (; ; ) {
+                            var request = new byte[in.readInt()];
+                            in.readFully(request);
+                            var payload = ByteBuffer.wrap(request);
+                            var apiKey = payload.getShort();
+                            payload.getShort();
+                            var correlationId = payload.getInt();
+                            brokerReceived.add(correlationId);
+                            if (apiKey != ApiKeys.PRODUCE.id) {
+                                out.writeInt(Integer.BYTES);
+                                out.writeInt(correlationId);
+                                out.flush();
+                            }
+                        }
+                    } catch (IOException e) {
+                        // connection closed
+                    }
+                }, "fake-broker-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+}
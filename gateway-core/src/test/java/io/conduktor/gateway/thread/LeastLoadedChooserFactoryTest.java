@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.thread;
+
+import io.conduktor.gateway.config.ThreadAssignmentPolicy;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LeastLoadedChooserFactoryTest {
+
+    @Test
+    public void testNext_shouldPickTheThreadWithTheFewestInFlightRequests() {
+        var busy = thread(10, 0, 0);
+        var idle = thread(1, 0, 0);
+        var chooser = new LeastLoadedChooserFactory(ThreadAssignmentPolicy.LEAST_IN_FLIGHT)
+                .newChooser(new EventExecutor[]{busy, idle});
+
+        for (var i = 0; i < 4; i++) {
+            assertThat(chooser.next()).isSameAs(idle);
+        }
+    }
+
+    @Test
+    public void testNext_shouldPickTheThreadWithTheFewestPendingTasks() {
+        var busy = thread(0, 100, 0);
+        var idle = thread(0, 2, 0);
+        var chooser = new LeastLoadedChooserFactory(ThreadAssignmentPolicy.LEAST_PENDING_TASKS)
+                .newChooser(new EventExecutor[]{busy, idle});
+
+        assertThat(chooser.next()).isSameAs(idle);
+    }
+
+    @Test
+    public void testNext_shouldBreakTiesByConnectionsThenInTurn() {
+        var crowded = thread(0, 0, 5);
+        var first = thread(0, 0, 1);
+        var second = thread(0, 0, 1);
+        var chooser = new LeastLoadedChooserFactory(ThreadAssignmentPolicy.LEAST_IN_FLIGHT)
+                .newChooser(new EventExecutor[]{crowded, first, second});
+
+        var picked = new HashSet<EventExecutor>();
+        for (var i = 0; i < 6; i++) {
+            picked.add(chooser.next());
+        }
+        assertThat(picked).containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    public void testNext_shouldPickTheThreadWithTheLowestBytesRate() throws Exception {
+        var heavy = thread(0, 0, 0);
+        var light = thread(0, 0, 0);
+        when(heavy.bytes()).thenReturn(0L, 1_000_000L);
+        when(light.bytes()).thenReturn(0L, 1_000L);
+        var chooser = new LeastLoadedChooserFactory(ThreadAssignmentPolicy.LEAST_BYTES_RATE)
+                .newChooser(new EventExecutor[]{heavy, light});
+        // the first pick opens the measure window
+        chooser.next();
+
+        Thread.sleep(1_100);
+
+        assertThat(chooser.next()).isSameAs(light);
+    }
+
+    private static GatewayThread thread(int inFlightRequests, int pendingTasks, int downstreamChannels) {
+        var thread = mock(GatewayThread.class);
+        when(thread.inFlightRequests()).thenReturn(inFlightRequests);
+        when(thread.pendingTasks()).thenReturn(pendingTasks);
+        when(thread.downstreamChannels()).thenReturn(downstreamChannels);
+        return thread;
+    }
+}
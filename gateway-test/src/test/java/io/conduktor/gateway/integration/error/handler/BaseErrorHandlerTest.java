@@ -18,6 +18,8 @@ package io.conduktor.gateway.integration.error.handler;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import io.conduktor.gateway.config.ResponseCacheConfig;
 import io.conduktor.gateway.integration.BaseGatewayIntegrationTest;
 import io.conduktor.gateway.integration.util.ClientFactory;
 import io.conduktor.gateway.rebuilder.components.RebuildMapper;
@@ -82,8 +84,9 @@ public class BaseErrorHandlerTest extends BaseGatewayIntegrationTest {
 
         @Provides
         @Singleton
-        public RebuildMapper rebuildMapper(RebuilderTools rebuilderTools) {
-            var instance = new RebuildMapper(rebuilderTools);
+        public RebuildMapper rebuildMapper(RebuilderTools rebuilderTools,
+                                           @Named("responseCacheConfig") ResponseCacheConfig responseCacheConfig) {
+            var instance = new RebuildMapper(rebuilderTools, responseCacheConfig);
             return Mockito.spy(instance);
         }
 
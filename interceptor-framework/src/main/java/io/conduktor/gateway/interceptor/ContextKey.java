@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.interceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A typed key to pass state along a request and its response through {@link InterceptorContext#get(ContextKey)}
+ * and {@link InterceptorContext#put(ContextKey, Object)}.
+ * Keys get a dense index when registered, so values live in a small array instead of a map.
+ * Register them once, as static fields of the interceptor using them:
+ * <pre>{@code
+ * static final ContextKey<String> SOURCE = ContextKey.of("audit.source", String.class);
+ * }</pre>
+ */
+public final class ContextKey<T> {
+
+    private static final Map<String, ContextKey<?>> KEYS = new ConcurrentHashMap<>();
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private final String name;
+    private final Class<T> type;
+    private final int index;
+
+    private ContextKey(String name, Class<T> type, int index) {
+        this.name = name;
+        this.type = type;
+        this.index = index;
+    }
+
+    /**
+     * @return the key registered under this name, registered now if there is none yet
+     * @throws IllegalArgumentException when the name is already registered with another type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        var key = KEYS.computeIfAbsent(name, k -> new ContextKey<>(name, type, COUNT.getAndIncrement()));
+        if (key.type != type) {
+            throw new IllegalArgumentException("Context key " + name + " is already registered for " + key.type.getName());
+        }
+        return (ContextKey<T>) key;
+    }
+
+    /**
+     * @return how many keys are registered, every index is below it
+     */
+    static int registered() {
+        return COUNT.get();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    int index() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey{" + name + "}";
+    }
+}
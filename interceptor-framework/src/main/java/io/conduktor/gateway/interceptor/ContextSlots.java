@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.interceptor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State interceptors pass along a request and its response.
+ * Values of {@link ContextKey}s sit in an array indexed by key, the string keyed map is only made when asked for.
+ */
+public final class ContextSlots {
+
+    private Object[] values;
+    private Map<String, Object> inFlightInfo;
+
+    public ContextSlots() {
+    }
+
+    private ContextSlots(Map<String, Object> inFlightInfo) {
+        this.inFlightInfo = inFlightInfo;
+    }
+
+    public static ContextSlots of(Map<String, Object> inFlightInfo) {
+        return new ContextSlots(inFlightInfo);
+    }
+
+    public <T> T get(ContextKey<T> key) {
+        var index = key.index();
+        return values == null || index >= values.length ? null : key.type().cast(values[index]);
+    }
+
+    public <T> void put(ContextKey<T> key, T value) {
+        var index = key.index();
+        if (values == null) {
+            values = new Object[Math.max(ContextKey.registered(), index + 1)];
+        } else if (index >= values.length) {
+            values = Arrays.copyOf(values, Math.max(ContextKey.registered(), index + 1));
+        }
+        values[index] = value;
+    }
+
+    public Map<String, Object> inFlightInfo() {
+        if (inFlightInfo == null) {
+            inFlightInfo = new HashMap<>();
+        }
+        return inFlightInfo;
+    }
+}
@@ -23,6 +23,43 @@ import java.util.Map;
 public record InterceptorContext (
         DirectionType direction,
         RequestHeader requestHeader,
-        Map<String,Object> inFlightInfo,
-        InetSocketAddress clientAddress){
+        ContextSlots contextSlots,
+        InetSocketAddress clientAddress,
+        PartitionExecutor partitionExecutor){
+
+    public InterceptorContext(DirectionType direction,
+                              RequestHeader requestHeader,
+                              Map<String, Object> inFlightInfo,
+                              InetSocketAddress clientAddress,
+                              PartitionExecutor partitionExecutor) {
+        this(direction, requestHeader, ContextSlots.of(inFlightInfo), clientAddress, partitionExecutor);
+    }
+
+    public InterceptorContext(DirectionType direction,
+                              RequestHeader requestHeader,
+                              Map<String, Object> inFlightInfo,
+                              InetSocketAddress clientAddress) {
+        this(direction, requestHeader, ContextSlots.of(inFlightInfo), clientAddress, PartitionExecutor.SEQUENTIAL);
+    }
+
+    /**
+     * @return the value an interceptor stored for this request, null when there is none
+     */
+    public <T> T get(ContextKey<T> key) {
+        return contextSlots.get(key);
+    }
+
+    /**
+     * Stores a value for the interceptors running next on this request or its response.
+     */
+    public <T> void put(ContextKey<T> key, T value) {
+        contextSlots.put(key, value);
+    }
+
+    /**
+     * @return string keyed state of this request, prefer {@link #get(ContextKey)} and {@link #put(ContextKey, Object)}
+     */
+    public Map<String, Object> inFlightInfo() {
+        return contextSlots.inFlightInfo();
+    }
 }
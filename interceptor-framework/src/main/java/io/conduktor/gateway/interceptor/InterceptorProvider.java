@@ -2,7 +2,18 @@ package io.conduktor.gateway.interceptor;
 
 import org.apache.kafka.common.requests.AbstractRequestResponse;
 
+import java.util.regex.Pattern;
+
 public record InterceptorProvider<T extends AbstractRequestResponse>(Class<? extends T> type,
                                                                      Interceptor<T> interceptor) {
 
+    /**
+     * Provides an interceptor that only runs for Produce and Fetch traffic on topics matching the pattern.
+     */
+    public static <T extends AbstractRequestResponse> InterceptorProvider<T> forTopics(Class<? extends T> type,
+                                                                                      Pattern topicPattern,
+                                                                                      Interceptor<T> interceptor) {
+        return new InterceptorProvider<>(type, new TopicScopedInterceptor<>(topicPattern, interceptor));
+    }
+
 }
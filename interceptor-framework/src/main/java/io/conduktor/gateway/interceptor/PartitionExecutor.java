@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.interceptor;
+
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.requests.ProduceRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs per-partition work of a single request.
+ * The Gateway may fan the work out to several cores when the request is large enough,
+ * but every call returns only once all partitions have been processed.
+ * Actions must only touch the partition they are given.
+ */
+public interface PartitionExecutor {
+
+    PartitionExecutor SEQUENTIAL = new PartitionExecutor() {
+        @Override
+        public <T> void forEach(List<T> partitions, ToLongFunction<T> sizeOf, Consumer<T> action) {
+            partitions.forEach(action);
+        }
+    };
+
+    /**
+     * @param partitions partitions to process
+     * @param sizeOf     size in bytes of a partition, used to decide whether fanning out is worth it
+     * @param action     work to run on each partition
+     */
+    <T> void forEach(List<T> partitions, ToLongFunction<T> sizeOf, Consumer<T> action);
+
+    default void forEachPartition(ProduceRequest request, BiConsumer<String, ProduceRequestData.PartitionProduceData> action) {
+        var partitions = new ArrayList<TopicPartitionData>();
+        request.data().topicData().forEach(topicProduceData ->
+                topicProduceData.partitionData().forEach(partitionProduceData ->
+                        partitions.add(new TopicPartitionData(topicProduceData.name(), partitionProduceData))));
+        forEach(partitions,
+                partition -> partition.data().records() == null ? 0 : partition.data().records().sizeInBytes(),
+                partition -> action.accept(partition.topic(), partition.data()));
+    }
+
+    record TopicPartitionData(String topic, ProduceRequestData.PartitionProduceData data) {
+    }
+
+}
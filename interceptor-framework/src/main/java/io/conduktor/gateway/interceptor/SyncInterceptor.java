@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.conduktor.gateway.interceptor;
+
+import org.apache.kafka.common.requests.AbstractRequestResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An interceptor doing its work on the calling thread, which returns the intercepted value directly.
+ * The Gateway runs consecutive synchronous interceptors in a plain loop, without a {@link CompletionStage} for each,
+ * so CPU-only interceptors should prefer it. It is not bound by the interceptor timeout.
+ */
+@FunctionalInterface
+public interface SyncInterceptor<INOUT extends AbstractRequestResponse> extends Interceptor<INOUT> {
+
+    INOUT interceptSync(INOUT input, InterceptorContext interceptorContext);
+
+    @Override
+    default CompletionStage<INOUT> intercept(INOUT input, InterceptorContext interceptorContext) {
+        return CompletableFuture.completedFuture(interceptSync(input, interceptorContext));
+    }
+}
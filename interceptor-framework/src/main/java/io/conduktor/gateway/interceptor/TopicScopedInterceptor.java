@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.interceptor;
+
+import org.apache.kafka.common.requests.AbstractRequestResponse;
+
+import java.util.concurrent.CompletionStage;
+import java.util.regex.Pattern;
+
+/**
+ * An interceptor that only runs for Produce and Fetch traffic touching at least one topic matching {@link #topicPattern()}.
+ * Other requests and responses never reach it.
+ * When nothing registered matches a message, the Gateway forwards it without decoding it.
+ * Create one with {@link InterceptorProvider#forTopics(Class, Pattern, Interceptor)}.
+ */
+public record TopicScopedInterceptor<INOUT extends AbstractRequestResponse>(Pattern topicPattern,
+                                                                             Interceptor<INOUT> delegate) implements Interceptor<INOUT> {
+
+    @Override
+    public CompletionStage<INOUT> intercept(INOUT input, InterceptorContext interceptorContext) {
+        return delegate.intercept(input, interceptorContext);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Conduktor, Inc
+ *
+ * Licensed under the Conduktor Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * https://www.conduktor.io/conduktor-community-license-agreement-v1.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.conduktor.gateway.interceptor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContextSlotsTest {
+
+    private static final ContextKey<String> SOURCE = ContextKey.of("test.source", String.class);
+    private static final ContextKey<Integer> COUNT = ContextKey.of("test.count", Integer.class);
+
+    @Test
+    public void shouldStoreValuesByKey() {
+        var slots = new ContextSlots();
+        assertThat(slots.get(SOURCE)).isNull();
+
+        slots.put(SOURCE, "host");
+        slots.put(COUNT, 3);
+
+        assertThat(slots.get(SOURCE)).isEqualTo("host");
+        assertThat(slots.get(COUNT)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldAcceptKeysRegisteredAfterFirstUse() {
+        var slots = new ContextSlots();
+        slots.put(SOURCE, "host");
+
+        var late = ContextKey.of("test.late", Long.class);
+        slots.put(late, 1L);
+
+        assertThat(slots.get(late)).isEqualTo(1L);
+        assertThat(slots.get(SOURCE)).isEqualTo("host");
+    }
+
+    @Test
+    public void sameNameShouldGiveSameKey() {
+        assertThat(ContextKey.of("test.source", String.class)).isSameAs(SOURCE);
+        assertThatThrownBy(() -> ContextKey.of("test.source", Integer.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void inFlightInfoShouldBeMadeOnFirstUse() {
+        var slots = new ContextSlots();
+        slots.inFlightInfo().put("source", "host");
+
+        assertThat(slots.inFlightInfo()).containsEntry("source", "host");
+    }
+}
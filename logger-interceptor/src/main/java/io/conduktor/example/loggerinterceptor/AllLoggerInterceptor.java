@@ -15,16 +15,13 @@
 
 package io.conduktor.example.loggerinterceptor;
 
-import io.conduktor.gateway.interceptor.Interceptor;
 import io.conduktor.gateway.interceptor.InterceptorContext;
+import io.conduktor.gateway.interceptor.SyncInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.requests.AbstractRequestResponse;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
-
 @Slf4j
-public class AllLoggerInterceptor implements Interceptor<AbstractRequestResponse> {
+public class AllLoggerInterceptor implements SyncInterceptor<AbstractRequestResponse> {
 
     private final String prefix;
 
@@ -32,8 +29,8 @@ public class AllLoggerInterceptor implements Interceptor<AbstractRequestResponse
         this.prefix = prefix;
     }
     @Override
-    public CompletionStage<AbstractRequestResponse> intercept(AbstractRequestResponse input, InterceptorContext interceptorContext) {
+    public AbstractRequestResponse interceptSync(AbstractRequestResponse input, InterceptorContext interceptorContext) {
         log.warn("{}, a {} was sent/received", prefix, input.getClass());
-        return CompletableFuture.completedFuture(input);
+        return input;
     }
 }
\ No newline at end of file
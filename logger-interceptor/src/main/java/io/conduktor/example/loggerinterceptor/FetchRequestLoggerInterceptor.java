@@ -15,21 +15,22 @@
 
 package io.conduktor.example.loggerinterceptor;
 
-import io.conduktor.gateway.interceptor.Interceptor;
+import io.conduktor.gateway.interceptor.ContextKey;
 import io.conduktor.gateway.interceptor.InterceptorContext;
+import io.conduktor.gateway.interceptor.SyncInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.requests.FetchRequest;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
-
 @Slf4j
-public class FetchRequestLoggerInterceptor implements Interceptor<FetchRequest> {
+public class FetchRequestLoggerInterceptor implements SyncInterceptor<FetchRequest> {
+
+    static final ContextKey<String> SOURCE = ContextKey.of("logger.source", String.class);
+
     @Override
-    public CompletionStage<FetchRequest> intercept(FetchRequest input, InterceptorContext interceptorContext) {
+    public FetchRequest interceptSync(FetchRequest input, InterceptorContext interceptorContext) {
         var source = interceptorContext.clientAddress().getHostName();
         log.warn("Fetch was requested from {}", source);
-        interceptorContext.inFlightInfo().put("source", source);
-        return CompletableFuture.completedFuture(input);
+        interceptorContext.put(SOURCE, source);
+        return input;
     }
 }
\ No newline at end of file
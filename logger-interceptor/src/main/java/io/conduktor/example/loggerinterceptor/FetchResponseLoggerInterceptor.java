@@ -15,19 +15,16 @@
 
 package io.conduktor.example.loggerinterceptor;
 
-import io.conduktor.gateway.interceptor.Interceptor;
 import io.conduktor.gateway.interceptor.InterceptorContext;
+import io.conduktor.gateway.interceptor.SyncInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.requests.FetchResponse;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
-
 @Slf4j
-public class FetchResponseLoggerInterceptor implements Interceptor<FetchResponse> {
+public class FetchResponseLoggerInterceptor implements SyncInterceptor<FetchResponse> {
     @Override
-    public CompletionStage<FetchResponse> intercept(FetchResponse input, InterceptorContext interceptorContext) {
-        log.warn("Fetch from client {} was responded to", interceptorContext.inFlightInfo().get("source"));
-        return CompletableFuture.completedFuture(input);
+    public FetchResponse interceptSync(FetchResponse input, InterceptorContext interceptorContext) {
+        log.warn("Fetch from client {} was responded to", interceptorContext.get(FetchRequestLoggerInterceptor.SOURCE));
+        return input;
     }
 }
\ No newline at end of file
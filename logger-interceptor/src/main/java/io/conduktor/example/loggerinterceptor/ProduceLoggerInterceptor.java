@@ -15,33 +15,26 @@
 
 package io.conduktor.example.loggerinterceptor;
 
-import io.conduktor.gateway.interceptor.Interceptor;
 import io.conduktor.gateway.interceptor.InterceptorContext;
+import io.conduktor.gateway.interceptor.SyncInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.requests.ProduceRequest;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
-
 @Slf4j
-public class ProduceLoggerInterceptor implements Interceptor<ProduceRequest> {
+public class ProduceLoggerInterceptor implements SyncInterceptor<ProduceRequest> {
     @Override
-    public CompletionStage<ProduceRequest> intercept(ProduceRequest input, InterceptorContext interceptorContext) {
+    public ProduceRequest interceptSync(ProduceRequest input, InterceptorContext interceptorContext) {
         var version = interceptorContext.requestHeader().apiVersion();
         log.warn("Produce was called with version: {}", version);
 
-        // add a message header to every message
-        // for each topic
-        input.data().topicData().forEach(topicProduceData -> {
-            // for each partition
-            topicProduceData.partitionData().forEach(partitionProduceData -> {
+        // add a message header to every message, partitions of large requests are rewritten in parallel
+        var auditEntry = getAuditEntry(interceptorContext);
+        interceptorContext.partitionExecutor().forEachPartition(input, (topic, partitionProduceData) ->
                 partitionProduceData.setRecords(RecordUtils.addHeaderToRecords(
                         partitionProduceData.records(),
-                        "fromClient", getAuditEntry(interceptorContext)));
-            });
-        });
+                        "fromClient", auditEntry)));
 
-        return CompletableFuture.completedFuture(input);
+        return input;
     }
 
     private String getAuditEntry(InterceptorContext interceptorContext) {
@@ -16,19 +16,16 @@
 package io.conduktor.example.loggerinterceptor;
 
 import io.conduktor.gateway.interceptor.DirectionType;
-import io.conduktor.gateway.interceptor.Interceptor;
 import io.conduktor.gateway.interceptor.InterceptorContext;
+import io.conduktor.gateway.interceptor.SyncInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.requests.AbstractResponse;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
-
 @Slf4j
-public class ResponseLoggerInterceptor implements Interceptor<AbstractResponse> {
+public class ResponseLoggerInterceptor implements SyncInterceptor<AbstractResponse> {
     @Override
-    public CompletionStage<AbstractResponse> intercept(AbstractResponse input, InterceptorContext interceptorContext) {
+    public AbstractResponse interceptSync(AbstractResponse input, InterceptorContext interceptorContext) {
         log.warn("A {} was sent", DirectionType.RESPONSE);
-        return CompletableFuture.completedFuture(input);
+        return input;
     }
 }
\ No newline at end of file